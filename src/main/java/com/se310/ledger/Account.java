@@ -1,22 +1,31 @@
 package com.se310.ledger;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Account class implementation representing account in the Blockchain
  *
  * @author  Sergey L. Sundukovskiy
- * @version 1.0
+ * @version 1.4
  */
 public class Account {
 
     private String address;
-    private Integer balance;
+    private int balance;
+    // Set once a Transaction naming the account is accepted, since its Merkle leaf is keyed on the address
+    private volatile boolean addressFrozen;
+    // Credits to a hot account accumulate here and are merged into the balance when the Block is sealed.
+    // Copies of the account share it, so credits landing while the Block is swapped are never lost
+    private LongAdder pendingCredits;
+    // Held for cross shard transfers that are prepared but not committed yet, still part of the balance
+    private int reserved;
 
     /**
      * Account Constructor
      * @param address
      * @param balance
      */
-    public Account(String address, Integer balance) {
+    public Account(String address, int balance) {
         this.address = address;
         this.balance = balance;
     }
@@ -31,12 +40,23 @@ public class Account {
 
     /**
      * Setter Method for account address
+     * - Rejected once a Transaction naming the account has been accepted
      * @param address
      */
     public void setAddress(String address) {
+        if (addressFrozen) {
+            throw new IllegalStateException("Account Address Is Frozen: " + this.address);
+        }
         this.address = address;
     }
 
+    /**
+     * Freeze account address, called when a Transaction naming the account is accepted
+     */
+    void freezeAddress() {
+        this.addressFrozen = true;
+    }
+
     /**
      * Getter method for account balance
      * @return
@@ -49,15 +69,101 @@ public class Account {
      * Setter method for account balance
      * @param balance
      */
-    public void setBalance(Integer balance) {
+    public void setBalance(int balance) {
         this.balance = balance;
     }
 
+    /**
+     * Check whether credits to the account are accumulated instead of applied in place
+     * @return
+     */
+    public boolean isHot() {
+        return pendingCredits != null;
+    }
+
+    /**
+     * Start accumulating credits to the account, called while its Ledger is sealing a Block
+     */
+    public void markHot() {
+        if (pendingCredits == null) {
+            pendingCredits = new LongAdder();
+        }
+    }
+
+    /**
+     * Add amount to the account, without touching the balance when the account is hot
+     * @param amount
+     */
+    public void credit(int amount) {
+        if (pendingCredits != null) {
+            pendingCredits.add(amount);
+        } else {
+            this.balance += amount;
+        }
+    }
+
+    /**
+     * Get balance that can be spent, including credits that have not been merged yet
+     * and without the amount reserved for prepared transfers
+     * @return
+     */
+    public long getAvailableBalance() {
+        long available = (long) balance - reserved;
+        return pendingCredits == null ? available : available + pendingCredits.sum();
+    }
+
+    /**
+     * Getter method for the amount reserved for prepared transfers
+     * @return
+     */
+    public int getReservedBalance() {
+        return reserved;
+    }
+
+    /**
+     * Hold amount of the balance for a prepared transfer, called under its Ledger lock
+     * @param amount
+     */
+    void reserve(int amount) {
+        this.reserved = Math.addExact(reserved, amount);
+    }
+
+    /**
+     * Release amount held for a transfer that committed or aborted, called under its Ledger lock
+     * @param amount
+     */
+    void release(int amount) {
+        if (amount > reserved) {
+            throw new IllegalStateException("Released More Than Reserved: " + address);
+        }
+        this.reserved -= amount;
+    }
+
+    /**
+     * Fold accumulated credits into the balance, called while its Ledger is sealing a Block
+     * - Only the merged sum is taken out, so a credit added concurrently stays pending for the next merge
+     * @throws ArithmeticException if the balance would overflow, leaving the credits pending
+     */
+    public void mergePendingCredits() {
+        if (pendingCredits != null) {
+            long pending = pendingCredits.sum();
+            int merged = Math.addExact(balance, Math.toIntExact(pending));
+            pendingCredits.add(-pending);
+            this.balance = merged;
+        }
+    }
+
     /**
      * Method for creating an account copy
+     * - Copy shares the accumulated credits of a hot account, keeps its reservations and keeps a frozen
+     *   address frozen
      * @return
      */
     public Object clone() {
-        return new Account(this.getAddress(), this.balance);
+        Account account = new Account(this.getAddress(), this.balance);
+        account.pendingCredits = this.pendingCredits;
+        account.reserved = this.reserved;
+        account.addressFrozen = this.addressFrozen;
+        return account;
     }
 }
@@ -0,0 +1,72 @@
+package com.se310.ledger;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AccountBalances class implementation presenting the Accounts of a committed Block as a read-only
+ * map of addresses to balances.
+ * Accounts of a committed Block are not modified once it is sealed, so the view is built per Block
+ * without copying a balance, and lookups read the Account itself
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+final class AccountBalances extends AbstractMap<String,Integer> {
+
+    private final Map<String,Account> accounts;
+
+    /**
+     * AccountBalances Constructor
+     * @param accounts Account map of a committed Block
+     */
+    AccountBalances(Map<String,Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    @Override
+    public Integer get(Object address) {
+        Account account = accounts.get(address);
+        return account == null ? null : account.getBalance();
+    }
+
+    @Override
+    public boolean containsKey(Object address) {
+        return accounts.containsKey(address);
+    }
+
+    @Override
+    public int size() {
+        return accounts.size();
+    }
+
+    @Override
+    public Set<Map.Entry<String,Integer>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Map.Entry<String,Integer>> iterator() {
+                Iterator<Map.Entry<String,Account>> entries = accounts.entrySet().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String,Integer> next() {
+                        Map.Entry<String,Account> entry = entries.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().getBalance());
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return accounts.size();
+            }
+        };
+    }
+}
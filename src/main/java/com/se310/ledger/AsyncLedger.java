@@ -0,0 +1,331 @@
+package com.se310.ledger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * AsyncLedger class implementation offering a non-blocking facade over a Ledger.
+ * Submissions are queued to one applier thread, which is all a Ledger can use since Transactions
+ * are applied under its lock, and return futures completed once the Transaction is applied or
+ * once its Block is sealed. Checks that do not need the Ledger lock run on the applier thread before
+ * it is taken, and journaled Transactions are waited for after it is released.
+ * Queries are answered from the latest LedgerSnapshot without locking.
+ * Futures fail with a CompletionException wrapping the LedgerException of the blocking API, or with
+ * whatever else the apply threw, and futures waiting for a seal fail when the Ledger is reset or the
+ * facade closed. The class is final since the constructor registers the facade as a listener of the Ledger
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public final class AsyncLedger implements LedgerListener, AutoCloseable {
+
+    private final Ledger ledger;
+    private final FinancialOps finOps = new FinancialOps();
+    private final TransactionValidator validator = new TransactionValidator();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    // Futures waiting for their Block to be sealed, only touched under the Ledger lock
+    private final Map<Integer,List<PendingSeal>> pendingSeals = new HashMap<>();
+    // Set under the Ledger lock by close, after which no Block seal is seen
+    private boolean closed;
+
+    /**
+     * AsyncLedger Constructor
+     * @param ledger
+     */
+    public AsyncLedger(Ledger ledger) {
+        this.ledger = ledger;
+        ledger.addLedgerListener(this);
+    }
+
+    /**
+     * Getter method for the Ledger behind the facade
+     * @return
+     */
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Submit Transaction to be applied
+     * @param transaction
+     * @return CompletableFuture completed with an unsealed Receipt once the Transaction is applied
+     */
+    public CompletableFuture<Receipt> submit(Transaction transaction) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                preValidate(transaction);
+                TransactionJournal journal = ledger.getTransactionJournal();
+                int blockNumber;
+                long sequence;
+                ledger.getLock().lock();
+                try {
+                    blockNumber = ledger.getUncommittedBlock().getBlockNumber();
+                    sequence = apply(transaction, journal);
+                } finally {
+                    ledger.getLock().unlock();
+                }
+                awaitDurable(journal, sequence);
+                return new Receipt(transaction.getTransactionId(), blockNumber, null);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            return closedFuture();
+        }
+    }
+
+    /**
+     * Submit Transaction to be applied and wait for its Block
+     * @param transaction
+     * @return CompletableFuture completed with a sealed Receipt once the Block holding the Transaction is sealed
+     */
+    public CompletableFuture<Receipt> submitAndAwaitSeal(Transaction transaction) {
+        CompletableFuture<Receipt> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    preValidate(transaction);
+                    TransactionJournal journal = ledger.getTransactionJournal();
+                    Receipt receipt = null;
+                    boolean unsealed = false;
+                    long sequence;
+                    ledger.getLock().lock();
+                    try {
+                        int blockNumber = ledger.getUncommittedBlock().getBlockNumber();
+                        sequence = apply(transaction, journal);
+
+                        // Transaction that filled the Block was sealed before processTransaction returned
+                        Block block = ledger.getSnapshot().getBlocks().get(blockNumber);
+                        if (block != null) {
+                            receipt = new Receipt(transaction.getTransactionId(), blockNumber, block.getHash());
+                        } else if (closed) {
+                            unsealed = true;
+                        } else {
+                            pendingSeals.computeIfAbsent(blockNumber, number -> new ArrayList<>())
+                                    .add(new PendingSeal(transaction.getTransactionId(), future));
+                        }
+                    } finally {
+                        ledger.getLock().unlock();
+                    }
+                    // Seal completions are queued behind this task, so they follow the journal wait too
+                    awaitDurable(journal, sequence);
+                    if (receipt != null) {
+                        future.complete(receipt);
+                    } else if (unsealed) {
+                        future.completeExceptionally(new CompletionException(
+                                new LedgerException("Await Seal", "Async Ledger Closed Before Block Was Sealed")));
+                    }
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return closedFuture();
+        }
+        return future;
+    }
+
+    /**
+     * Get committed Block
+     * @param blockNumber
+     * @return CompletableFuture with the Block, already complete
+     */
+    public CompletableFuture<Block> getBlock(int blockNumber) {
+        return query(() -> ledger.getBlock(blockNumber));
+    }
+
+    /**
+     * Get committed Account balance
+     * @param address
+     * @return CompletableFuture with the balance, already complete
+     */
+    public CompletableFuture<Integer> getAccountBalance(String address) {
+        return query(() -> ledger.getAccountBalance(address));
+    }
+
+    /**
+     * Get committed Transaction
+     * @param transactionId
+     * @return CompletableFuture with the Transaction, already complete
+     */
+    public CompletableFuture<Transaction> getTransaction(String transactionId) {
+        return query(() -> {
+            Transaction transaction = ledger.getTransactionIdFilter().mightContain(transactionId)
+                    ? ledger.getSnapshot().findTransaction(transactionId) : null;
+            if (transaction == null) {
+                throw new LedgerException("Get Transaction", "Transaction Does Not Exist");
+            }
+            return transaction;
+        });
+    }
+
+    /**
+     * Complete futures waiting for the sealed Block
+     * - Completions are handed off the Ledger lock, so callbacks never run under it
+     * @param ledger
+     * @param block
+     */
+    @Override
+    public void blockSealed(Ledger ledger, Block block) {
+        List<PendingSeal> sealed = pendingSeals.remove(block.getBlockNumber());
+        if (sealed == null) {
+            return;
+        }
+        handOff(() -> {
+            for (PendingSeal pending : sealed) {
+                pending.future.complete(new Receipt(pending.transactionId, block.getBlockNumber(), block.getHash()));
+            }
+        });
+    }
+
+    /**
+     * Fail futures waiting for a Block the reset discarded
+     * @param ledger
+     */
+    @Override
+    public void ledgerReset(Ledger ledger) {
+        failPendingSeals("Ledger Was Reset");
+    }
+
+    /**
+     * Stop the applier thread once submitted Transactions have been applied
+     * - Futures still waiting for a Block to be sealed fail, as do those of Transactions applied after
+     *   close, and submissions after close fail right away
+     */
+    @Override
+    public void close() {
+        ledger.getLock().lock();
+        try {
+            closed = true;
+            ledger.removeLedgerListener(this);
+            failPendingSeals("Async Ledger Closed Before Block Was Sealed");
+        } finally {
+            ledger.getLock().unlock();
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Helper method failing every future waiting for a seal
+     * - Caller holds the Ledger lock
+     * @param reason
+     */
+    private void failPendingSeals(String reason) {
+        if (pendingSeals.isEmpty()) {
+            return;
+        }
+        List<PendingSeal> failed = new ArrayList<>();
+        for (List<PendingSeal> pending : pendingSeals.values()) {
+            failed.addAll(pending);
+        }
+        pendingSeals.clear();
+        LedgerException exception = new LedgerException("Await Seal", reason);
+        handOff(() -> {
+            for (PendingSeal pending : failed) {
+                pending.future.completeExceptionally(new CompletionException(exception));
+            }
+        });
+    }
+
+    /**
+     * Helper method running completions on the applier thread, or on the common pool once it is shut down
+     * @param completion
+     */
+    private void handOff(Runnable completion) {
+        try {
+            executor.execute(completion);
+        } catch (RejectedExecutionException e) {
+            ForkJoinPool.commonPool().execute(completion);
+        }
+    }
+
+    /**
+     * Helper method running the checks that do not need the Ledger lock, turning LedgerException into
+     * CompletionException
+     * @param transaction
+     */
+    private void preValidate(Transaction transaction) {
+        try {
+            validator.preValidate(ledger, transaction);
+        } catch (LedgerException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Helper method applying prevalidated Transaction, turning LedgerException into CompletionException
+     * - Caller holds the Ledger lock
+     * @param transaction
+     * @param journal
+     * @return journal sequence number of the Transaction
+     */
+    private long apply(Transaction transaction, TransactionJournal journal) {
+        try {
+            return finOps.applyValidated(ledger, transaction, journal);
+        } catch (LedgerException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Helper method waiting for the journal once the Ledger lock is released
+     * @param journal
+     * @param sequence
+     */
+    private void awaitDurable(TransactionJournal journal, long sequence) {
+        try {
+            finOps.awaitDurable(journal, sequence);
+        } catch (LedgerException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Helper method answering a submission made after close
+     * @return CompletableFuture already failed
+     */
+    private static CompletableFuture<Receipt> closedFuture() {
+        return CompletableFuture.failedFuture(new CompletionException(
+                new LedgerException("Submit Transaction", "Async Ledger Is Closed")));
+    }
+
+    /**
+     * Helper method answering a query on the caller's thread
+     * @param query
+     * @return CompletableFuture completed with the result or the LedgerException
+     */
+    private static <T> CompletableFuture<T> query(LedgerQuery<T> query) {
+        try {
+            return CompletableFuture.completedFuture(query.get());
+        } catch (LedgerException e) {
+            return CompletableFuture.failedFuture(new CompletionException(e));
+        }
+    }
+
+    /**
+     * Query against the Ledger's snapshot that may fail with LedgerException
+     */
+    private interface LedgerQuery<T> {
+        T get() throws LedgerException;
+    }
+
+    /**
+     * Future waiting for the Block its Transaction was added to
+     */
+    private static class PendingSeal {
+        private final String transactionId;
+        private final CompletableFuture<Receipt> future;
+
+        private PendingSeal(String transactionId, CompletableFuture<Receipt> future) {
+            this.transactionId = transactionId;
+            this.future = future;
+        }
+    }
+}
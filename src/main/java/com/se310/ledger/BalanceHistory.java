@@ -0,0 +1,75 @@
+package com.se310.ledger;
+
+import java.util.Arrays;
+
+/**
+ * BalanceHistory class implementation keeping a compact record of account balances over time.
+ * Balances are stored as parallel sorted arrays of block numbers and balances, and an entry is
+ * only added when the balance actually changes, so a point in time lookup is a binary search
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class BalanceHistory {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] blockNumbers = new int[INITIAL_CAPACITY];
+    private int[] balances = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Record account balance as of the given block
+     * - Block numbers must be recorded in increasing order
+     * @param blockNumber
+     * @param balance
+     */
+    public synchronized void record(int blockNumber, int balance) {
+        if (size > 0) {
+            if (balances[size - 1] == balance) {
+                return;
+            }
+            if (blockNumbers[size - 1] >= blockNumber) {
+                throw new IllegalArgumentException("Block " + blockNumber + " Is Out of Order");
+            }
+        }
+        if (size == blockNumbers.length) {
+            blockNumbers = Arrays.copyOf(blockNumbers, size * 2);
+            balances = Arrays.copyOf(balances, size * 2);
+        }
+        blockNumbers[size] = blockNumber;
+        balances[size] = balance;
+        size++;
+    }
+
+    /**
+     * Get account balance as of the given block
+     * @param blockNumber
+     * @return Integer representing the balance or Null if the account was not committed yet
+     */
+    public synchronized Integer getBalanceAt(int blockNumber) {
+        int low = 0;
+        int high = size - 1;
+        int found = -1;
+
+        // Find the last entry recorded at or before the requested block
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (blockNumbers[mid] <= blockNumber) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found < 0 ? null : balances[found];
+    }
+
+    /**
+     * Get number of balance changes recorded
+     * @return int representing number of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -7,18 +7,34 @@ import java.util.Map;
 
 /**
  * Block class implementation representing block in the Blockchain
+ * Once archived, a Block keeps only its header, Transaction count and fee total in memory,
+ * its Transactions and Accounts are loaded from the BlockStore when asked for, until its body is
+ * restored or moved to another BlockStore.
+ * An uncommitted Block starts out sharing the Accounts of the committed Block before it, and copies
+ * an Account only when it is about to change, so Accounts of committed Blocks are never modified
  *
  * @author  Sergey L. Sundukovskiy
- * @version 1.0
+ * @version 1.6
  */
 public class Block {
 
     private Integer blockNumber;
     private String previousHash;
     private String hash;
-    private final Map<String,Account> accountBalanceMap = new HashMap<String,Account>();
-    private final List<Transaction> transactionList = new ArrayList<Transaction>();
+    private volatile Map<String,Account> accountBalanceMap;
+    private volatile List<Transaction> transactionList;
     private Block previousBlock;
+    private IncrementalMerkleBuilder merkleBuilder;
+    // Accounts of the committed Block this one started from, shared until they are copied for a change
+    private Map<String,Account> inheritedAccounts;
+    // Number of Transactions the Block is sealed at, 0 for a decoded Block until it is installed
+    private int blockSize;
+
+    // Set once the body has been written out, readers check it after reading the body fields,
+    // and read them again if a restore replaced them in between
+    private volatile BlockStore archive;
+    private int archivedTransactionCount;
+    private int archivedFeeTotal;
 
     /**
      * Block Constructor
@@ -28,6 +44,23 @@ public class Block {
     public Block(int blockNumber, String previousHash) {
         this.blockNumber = blockNumber;
         this.previousHash = previousHash;
+        this.accountBalanceMap = new HashMap<String,Account>();
+        this.transactionList = new ArrayList<Transaction>();
+    }
+
+    /**
+     * Block Constructor sizing its buffers up front so they never grow while the Block is filled
+     * @param blockNumber
+     * @param previousHash
+     * @param transactionCapacity number of Transactions the Block is sealed at
+     * @param accountCapacity number of Accounts carried over from the previous Block
+     */
+    public Block(int blockNumber, String previousHash, int transactionCapacity, int accountCapacity) {
+        this.blockNumber = blockNumber;
+        this.previousHash = previousHash;
+        this.accountBalanceMap = new HashMap<String,Account>(hashMapCapacity(accountCapacity));
+        this.transactionList = new ArrayList<Transaction>(transactionCapacity);
+        this.blockSize = transactionCapacity;
     }
 
     /**
@@ -83,7 +116,16 @@ public class Block {
      * @return
      */
     public Map<String, Account> getAccountBalanceMap() {
-        return accountBalanceMap;
+        while (true) {
+            Map<String,Account> accounts = accountBalanceMap;
+            BlockStore blockStore = archive;
+            if (blockStore != null) {
+                return blockStore.loadBlock(blockNumber).getAccountBalanceMap();
+            }
+            if (accounts == accountBalanceMap) {
+                return accounts;
+            }
+        }
     }
 
     /**
@@ -91,7 +133,137 @@ public class Block {
      * @return
      */
     public List<Transaction> getTransactionList() {
-        return transactionList;
+        while (true) {
+            List<Transaction> transactions = transactionList;
+            BlockStore blockStore = archive;
+            if (blockStore != null) {
+                return blockStore.loadBlock(blockNumber).getTransactionList();
+            }
+            if (transactions == transactionList) {
+                return transactions;
+            }
+        }
+    }
+
+    /**
+     * Getter method for the number of Transactions the block is sealed at
+     * - Fixed once the block is committed, so validation does not depend on later Ledger settings
+     * @return
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Setter method for the number of Transactions the block is sealed at
+     * @param blockSize
+     */
+    void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Get number of Transactions in the block without loading an archived block
+     * @return
+     */
+    public int getTransactionCount() {
+        while (true) {
+            List<Transaction> transactions = transactionList;
+            if (archive != null) {
+                return archivedTransactionCount;
+            }
+            if (transactions == transactionList) {
+                return transactions.size();
+            }
+        }
+    }
+
+    /**
+     * Get sum of the Transaction fees in the block without loading an archived block
+     * @return
+     */
+    public int getFeeTotal() {
+        List<Transaction> transactions;
+        do {
+            transactions = transactionList;
+            if (archive != null) {
+                return archivedFeeTotal;
+            }
+        } while (transactions != transactionList);
+        int fees = 0;
+        for (Transaction transaction : transactions) {
+            fees += transaction.getFee();
+        }
+        return fees;
+    }
+
+    /**
+     * Check whether the block body has been moved to a BlockStore
+     * @return
+     */
+    public boolean isArchived() {
+        return archive != null;
+    }
+
+    /**
+     * Drop Transactions and Accounts of a committed block already written to the store
+     * - Header, Transaction count and fee total stay in memory for chain validation
+     * @param blockStore store holding the block
+     */
+    void archive(BlockStore blockStore) {
+        this.archivedTransactionCount = transactionList.size();
+        this.archivedFeeTotal = getFeeTotal();
+        this.archive = blockStore;
+        this.transactionList = List.of();
+        this.accountBalanceMap = Map.of();
+    }
+
+    /**
+     * Point an archived block at another store that holds it as well, such as one replacing its store
+     * @param blockStore
+     */
+    void moveArchive(BlockStore blockStore) {
+        if (archive != null) {
+            this.archive = blockStore;
+        }
+    }
+
+    /**
+     * Load the body of an archived block back into memory, before the store holding it is closed
+     * - Body fields are set before the archive is cleared, readers seeing it cleared read them again
+     */
+    void restore() {
+        BlockStore blockStore = archive;
+        if (blockStore == null) {
+            return;
+        }
+        Block stored = blockStore.loadBlock(blockNumber);
+        this.transactionList = stored.getTransactionList();
+        this.accountBalanceMap = new HashMap<>(stored.getAccountBalanceMap());
+        this.archive = null;
+    }
+
+    /**
+     * Freeze the Transaction list of a Block that is about to be committed
+     * - Replaces the growable list with an immutable one backed by an exactly sized array
+     */
+    public void seal() {
+        this.transactionList = List.of(transactionList.toArray(new Transaction[0]));
+        this.inheritedAccounts = null;
+    }
+
+    /**
+     * Helper Method for adding Transaction to the Block
+     * - Accepts the Transaction, so its Merkle leaf is fixed from here on
+     * - Feeds the Merkle leaf to the builder right away when the Block has one
+     * @param transaction
+     */
+    public void addTransaction(Transaction transaction){
+        transaction.accept();
+        this.transactionList.add(transaction);
+        if (merkleBuilder != null) {
+            merkleBuilder.addLeaf(transaction.toString());
+        }
     }
 
     /**
@@ -105,11 +277,44 @@ public class Block {
 
     /**
      * Get Account from the Blockchain given account address
+     * - Account of an uncommitted Block may still be shared with the committed Block, change it only
+     *   through getWritableAccount
      * @param address
      * @return
      */
     public Account getAccount(String address){
-        return this.accountBalanceMap.get(address);
+        return getAccountBalanceMap().get(address);
+    }
+
+    /**
+     * Start an uncommitted Block from the Accounts of the committed Block before it, without copying them
+     * @param accounts Account map of the committed Block, not modified from here on
+     */
+    void inheritAccounts(Map<String,Account> accounts) {
+        this.accountBalanceMap.putAll(accounts);
+        this.inheritedAccounts = accounts;
+    }
+
+    /**
+     * Get Account of an uncommitted Block that is about to change
+     * - Account still shared with the committed Block is copied into this Block first, the copy is returned
+     *   from here on, also for a reference to the shared Account held since before the copy
+     * - Caller must hold the lock of the Ledger the Block belongs to
+     * @param account Account of this Block, or one it shares with the committed Block
+     * @return Account to change, the given one when it is not shared
+     */
+    Account getWritableAccount(Account account) {
+        if (account == null || inheritedAccounts == null
+                || inheritedAccounts.get(account.getAddress()) != account) {
+            return account;
+        }
+        Account current = accountBalanceMap.get(account.getAddress());
+        if (current != account) {
+            return current;
+        }
+        Account copy = (Account) account.clone();
+        accountBalanceMap.put(copy.getAddress(), copy);
+        return copy;
     }
 
     /**
@@ -127,4 +332,29 @@ public class Block {
     public void setPreviousBlock(Block previousBlock) {
         this.previousBlock = previousBlock;
     }
+
+    /**
+     * Getter method for the builder hashing Merkle leaves while the block is filled
+     * @return IncrementalMerkleBuilder or Null for blocks built elsewhere
+     */
+    public IncrementalMerkleBuilder getMerkleBuilder() {
+        return merkleBuilder;
+    }
+
+    /**
+     * Setter method for the builder hashing Merkle leaves while the block is filled
+     * @param merkleBuilder
+     */
+    public void setMerkleBuilder(IncrementalMerkleBuilder merkleBuilder) {
+        this.merkleBuilder = merkleBuilder;
+    }
+
+    /**
+     * Helper method computing HashMap capacity that holds the given number of entries without rehashing
+     * @param expectedSize
+     * @return
+     */
+    static int hashMapCapacity(int expectedSize) {
+        return (int) Math.ceil(expectedSize / 0.75);
+    }
 }
@@ -0,0 +1,164 @@
+package com.se310.ledger;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * BlockCodec class implementation encoding Blocks into compact binary form.
+ * Block header, account balances and transactions are written in that order,
+ * so a decoded Block can be installed and served without its previous Blocks.
+ * Dumps write Blocks in chain order and keep only the balances that changed since the previous Block
+ * of the dump, which is read back by carrying the previous Block's accounts forward
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class BlockCodec {
+
+    // First int of a block dump file, followed by Blocks each preceded by true and terminated by false
+    public static final int DUMP_MAGIC = 0x4C444752;
+
+    private BlockCodec() {
+    }
+
+    /**
+     * Write Block to the output
+     * @param out
+     * @param block
+     * @throws IOException
+     */
+    public static void writeBlock(DataOutput out, Block block) throws IOException {
+        writeBlock(out, block, Map.of());
+    }
+
+    /**
+     * Write Block to the output with only the balances that differ from the previous Block
+     * - Accounts are never removed from a Ledger, so every account of the previous Block is carried forward
+     * @param out
+     * @param block
+     * @param previousAccounts accounts of the previous Block written, empty to write every balance
+     * @throws IOException
+     */
+    public static void writeBlock(DataOutput out, Block block, Map<String,Account> previousAccounts)
+            throws IOException {
+        out.writeInt(block.getBlockNumber());
+        out.writeUTF(block.getPreviousHash());
+        out.writeUTF(block.getHash());
+
+        Map<String,Account> accounts = block.getAccountBalanceMap();
+        out.writeInt(countChangedBalances(accounts, previousAccounts));
+        for (Account account : accounts.values()) {
+            if (isBalanceChanged(account, previousAccounts)) {
+                out.writeUTF(account.getAddress());
+                out.writeInt(account.getBalance());
+            }
+        }
+
+        out.writeInt(block.getTransactionList().size());
+        for (Transaction transaction : block.getTransactionList()) {
+            out.writeUTF(transaction.getTransactionId());
+            out.writeInt(transaction.getAmount());
+            out.writeInt(transaction.getFee());
+            out.writeUTF(transaction.getNote());
+            out.writeUTF(transaction.getPayer().getAddress());
+            out.writeUTF(transaction.getReceiver().getAddress());
+        }
+    }
+
+    /**
+     * Read Block from the input
+     * @param in
+     * @return Block with its transactions and accounts
+     * @throws IOException
+     */
+    public static Block readBlock(DataInput in) throws IOException {
+        return readBlock(in, Map.of());
+    }
+
+    /**
+     * Read Block written with only the balances that differ from the previous Block
+     * - Unchanged accounts are shared with the previous Block, committed accounts are not modified
+     * @param in
+     * @param previousAccounts accounts of the previous Block read, empty for the first Block
+     * @return Block with its transactions and accounts
+     * @throws IOException
+     */
+    public static Block readBlock(DataInput in, Map<String,Account> previousAccounts) throws IOException {
+        Block block = new Block(in.readInt(), in.readUTF());
+        block.setHash(in.readUTF());
+        carryForward(block, previousAccounts);
+
+        int accountCount = in.readInt();
+        for (int i = 0; i < accountCount; i++) {
+            Account account = new Account(in.readUTF(), in.readInt());
+            block.addAccount(account.getAddress(), account);
+        }
+
+        // Transactions point at the Block's own accounts, like Blocks sealed locally
+        int transactionCount = in.readInt();
+        for (int i = 0; i < transactionCount; i++) {
+            String transactionId = in.readUTF();
+            int amount = in.readInt();
+            int fee = in.readInt();
+            String note = in.readUTF();
+            Account payer = getOrCreateAccount(block, in.readUTF());
+            Account receiver = getOrCreateAccount(block, in.readUTF());
+            block.addTransaction(new Transaction(transactionId, amount, fee, note, payer, receiver));
+        }
+        return block;
+    }
+
+    /**
+     * Count balances of the accounts that differ from the previous Block
+     * @param accounts
+     * @param previousAccounts
+     * @return
+     */
+    static int countChangedBalances(Map<String,Account> accounts, Map<String,Account> previousAccounts) {
+        if (previousAccounts.isEmpty()) {
+            return accounts.size();
+        }
+        int count = 0;
+        for (Account account : accounts.values()) {
+            if (isBalanceChanged(account, previousAccounts)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check whether account is new or its balance differs from the previous Block
+     * @param account
+     * @param previousAccounts
+     * @return
+     */
+    static boolean isBalanceChanged(Account account, Map<String,Account> previousAccounts) {
+        Account previous = previousAccounts.get(account.getAddress());
+        return previous != account && (previous == null || previous.getBalance() != account.getBalance());
+    }
+
+    /**
+     * Add the accounts of the previous Block to a Block being decoded
+     * @param block
+     * @param previousAccounts
+     */
+    static void carryForward(Block block, Map<String,Account> previousAccounts) {
+        for (Map.Entry<String,Account> entry : previousAccounts.entrySet()) {
+            block.addAccount(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Helper method resolving transaction party against the Block accounts
+     * @param block
+     * @param address
+     * @return Account
+     */
+    private static Account getOrCreateAccount(Block block, String address) {
+        Account account = block.getAccount(address);
+        return account != null ? account : new Account(address, 0);
+    }
+}
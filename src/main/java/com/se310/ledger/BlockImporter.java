@@ -0,0 +1,498 @@
+package com.se310.ledger;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * BlockImporter class implementation loading sealed Blocks from a binary or JSON lines dump written by
+ * ChainExporter. Blocks are read in batches, the Merkle roots of a batch are rebuilt in parallel and the
+ * batch is then installed in order, which checks chain continuity and carries the balances of its last
+ * Block forward, without parsing commands or applying transactions one at a time.
+ * Each Block of a dump holds only the balances changed since the Block before it, the other accounts
+ * are carried forward from the previous Block read and shared with it
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class BlockImporter {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int batchSize;
+
+    /**
+     * BlockImporter Constructor
+     * @param batchSize number of Blocks verified in parallel at a time
+     */
+    public BlockImporter(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch Size Must Be Positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Import Blocks from a dump file, binary or JSON lines, gzip compressed or not
+     * - Dump must continue the Ledger's chain, Blocks before the first bad one stay installed
+     * @param ledger
+     * @param path
+     * @return number of Blocks imported
+     * @throws LedgerException
+     */
+    public int importBlocks(Ledger ledger, Path path) throws LedgerException {
+        if (!ledger.getUncommittedBlock().getTransactionList().isEmpty()) {
+            throw new LedgerException("Import Blocks", "Ledger Has Uncommitted Transactions");
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             DumpInputStream in = newInputStream(channel)) {
+
+            BlockSource source = in.peek(0) == '{'
+                    ? new JsonLinesSource(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8),
+                            BUFFER_SIZE))
+                    : new BinarySource(new DataInputStream(in));
+
+            int count = 0;
+            List<Block> batch = new ArrayList<>(batchSize);
+            Block block = source.next();
+            while (block != null) {
+                batch.add(block);
+                block = source.next();
+                if (batch.size() == batchSize || block == null) {
+                    count += installBatch(ledger, batch);
+                    batch.clear();
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            throw new LedgerException("Import Blocks", "Unable to Read File: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method rebuilding the Merkle roots of a batch in parallel and installing it in order
+     * @param ledger
+     * @param batch
+     * @return number of Blocks installed
+     * @throws LedgerException
+     */
+    private int installBatch(Ledger ledger, List<Block> batch) throws LedgerException {
+        List<String> merkleRoots = batch.parallelStream()
+                .map(block -> ledger.buildMerkleTree(block).getRoot())
+                .toList();
+        ledger.installBlocks(batch, merkleRoots);
+        return batch.size();
+    }
+
+    /**
+     * Helper method buffering the file channel and unwrapping gzip when the file starts with its header
+     * @param channel
+     * @return DumpInputStream
+     * @throws IOException
+     */
+    private static DumpInputStream newInputStream(FileChannel channel) throws IOException {
+        DumpInputStream in = new DumpInputStream(Channels.newInputStream(channel));
+        if (in.peek(0) == 0x1f && in.peek(1) == 0x8b) {
+            return new DumpInputStream(new GZIPInputStream(in, BUFFER_SIZE));
+        }
+        return in;
+    }
+
+    /**
+     * Buffered stream for the single thread reading a dump
+     * - Decoding reads records a few bytes at a time, so unlike BufferedInputStream no read takes a lock
+     */
+    private static final class DumpInputStream extends InputStream {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int position;
+        private int limit;
+
+        private DumpInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Look at a byte ahead without consuming it
+         * @param offset number of bytes ahead of the current position, less than the buffer size
+         * @return byte value, or -1 past the end of the stream
+         */
+        private int peek(int offset) throws IOException {
+            if (position + offset >= limit) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+                while (offset >= limit) {
+                    int read = in.read(buffer, limit, buffer.length - limit);
+                    if (read < 0) {
+                        return -1;
+                    }
+                    limit += read;
+                }
+            }
+            return buffer[position + offset] & 0xff;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position == limit) {
+                //Large reads skip the buffer
+                if (length >= buffer.length) {
+                    return in.read(bytes, offset, length);
+                }
+                if (!fill()) {
+                    return -1;
+                }
+            }
+            int count = Math.min(length, limit - position);
+            System.arraycopy(buffer, position, bytes, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+
+    /**
+     * Blocks read one at a time from a dump
+     */
+    private interface BlockSource {
+
+        /**
+         * Read next Block
+         * @return Block, or Null once the dump is exhausted
+         */
+        Block next() throws IOException, LedgerException;
+    }
+
+    /**
+     * Blocks read from BlockCodec records, each preceded by true and terminated by false
+     */
+    private static final class BinarySource implements BlockSource {
+
+        private final DataInputStream in;
+        private boolean started;
+        private Map<String,Account> previousAccounts = Map.of();
+
+        private BinarySource(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public Block next() throws IOException, LedgerException {
+            if (!started) {
+                if (in.readInt() != BlockCodec.DUMP_MAGIC) {
+                    throw new LedgerException("Import Blocks", "File Is Not a Block Dump");
+                }
+                started = true;
+            }
+            if (!in.readBoolean()) {
+                return null;
+            }
+            Block block = BlockCodec.readBlock(in, previousAccounts);
+            previousAccounts = block.getAccountBalanceMap();
+            return block;
+        }
+    }
+
+    /**
+     * Blocks read from the JSON lines export, a block record followed by its transaction and changed balance records
+     * - Records are flat objects with the fields ChainExporter writes, each parsed into slots by field
+     */
+    private static final class JsonLinesSource implements BlockSource {
+
+        private static final String[] FIELDS = { "record", "block_number", "hash", "previous_hash",
+                "transaction_count", "transaction_id", "amount", "fee", "note", "payer", "receiver", "address",
+                "balance" };
+        private static final int RECORD = 0;
+        private static final int BLOCK_NUMBER = 1;
+        private static final int HASH = 2;
+        private static final int PREVIOUS_HASH = 3;
+        private static final int TRANSACTION_COUNT = 4;
+        private static final int TRANSACTION_ID = 5;
+        private static final int AMOUNT = 6;
+        private static final int FEE = 7;
+        private static final int NOTE = 8;
+        private static final int PAYER = 9;
+        private static final int RECEIVER = 10;
+        private static final int ADDRESS = 11;
+        private static final int BALANCE = 12;
+
+        private final BufferedReader reader;
+        private Map<String,Account> previousAccounts = Map.of();
+        private String[] pending;
+        private int lineNumber;
+        private String line;
+        private int position;
+
+        private JsonLinesSource(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public Block next() throws IOException, LedgerException {
+            String[] blockRecord = pending != null ? pending : readRecord();
+            pending = null;
+            if (blockRecord == null) {
+                return null;
+            }
+            if (!"block".equals(blockRecord[RECORD])) {
+                throw invalid("Expected Block Record");
+            }
+
+            int blockNumber = intField(blockRecord, BLOCK_NUMBER);
+            Block block = new Block(blockNumber, field(blockRecord, PREVIOUS_HASH));
+            block.setHash(field(blockRecord, HASH));
+            BlockCodec.carryForward(block, previousAccounts);
+
+            // Transactions come before the balances they refer to, so they are resolved once the Block is read
+            List<PendingTransaction> transactions = new ArrayList<>();
+            String[] record;
+            while ((record = readRecord()) != null && !"block".equals(record[RECORD])) {
+                if (intField(record, BLOCK_NUMBER) != blockNumber) {
+                    throw invalid("Record Of Another Block");
+                }
+                switch (field(record, RECORD)) {
+                    case "transaction" -> transactions.add(new PendingTransaction(field(record, TRANSACTION_ID),
+                            intField(record, AMOUNT), intField(record, FEE), field(record, NOTE),
+                            field(record, PAYER), field(record, RECEIVER)));
+                    case "balance" -> {
+                        Account account = new Account(field(record, ADDRESS), intField(record, BALANCE));
+                        block.addAccount(account.getAddress(), account);
+                    }
+                    default -> throw invalid("Unknown Record");
+                }
+            }
+            pending = record;
+
+            if (transactions.size() != intField(blockRecord, TRANSACTION_COUNT)) {
+                throw invalid("Transaction Count Does Not Match");
+            }
+            for (PendingTransaction transaction : transactions) {
+                block.addTransaction(new Transaction(transaction.transactionId, transaction.amount, transaction.fee,
+                        transaction.note, getOrCreateAccount(block, transaction.payer),
+                        getOrCreateAccount(block, transaction.receiver)));
+            }
+            block.seal();
+            previousAccounts = block.getAccountBalanceMap();
+            return block;
+        }
+
+        /**
+         * Helper method reading the next non-blank line as a flat JSON object
+         * @return field values by slot, numbers kept as their text, Null for absent fields, or Null at the end
+         */
+        private String[] readRecord() throws IOException, LedgerException {
+            do {
+                line = reader.readLine();
+                lineNumber++;
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+
+            String[] record = new String[FIELDS.length];
+            position = 0;
+            expect('{');
+            if (peek() == '}') {
+                return record;
+            }
+            while (true) {
+                int slot = readFieldName();
+                expect(':');
+                String value = peek() == '"' ? readString() : readLiteral();
+                if (slot >= 0) {
+                    record[slot] = value;
+                }
+                char separator = peek();
+                position++;
+                if (separator == '}') {
+                    return record;
+                }
+                if (separator != ',') {
+                    throw invalid("Malformed Record");
+                }
+            }
+        }
+
+        /**
+         * Helper method matching the field name against the known fields without copying it
+         * @return slot of the field, or -1 for a field the importer does not use
+         */
+        private int readFieldName() throws LedgerException {
+            expect('"');
+            int start = position;
+            int end = line.indexOf('"', start);
+            if (end < 0) {
+                throw invalid("Unterminated String");
+            }
+            position = end + 1;
+            for (int slot = 0; slot < FIELDS.length; slot++) {
+                String name = FIELDS[slot];
+                if (name.length() == end - start && line.startsWith(name, start)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private String readString() throws LedgerException {
+            expect('"');
+            StringBuilder value = null;
+            int start = position;
+            for (int i = start; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    position = i + 1;
+                    return value == null ? line.substring(start, i) : value.toString();
+                }
+                if (c == '\\') {
+                    if (value == null) {
+                        value = new StringBuilder(line.substring(start, i));
+                    }
+                    if (++i >= line.length()) {
+                        break;
+                    }
+                    switch (line.charAt(i)) {
+                        case 'n' -> value.append('\n');
+                        case 'r' -> value.append('\r');
+                        case 't' -> value.append('\t');
+                        case 'b' -> value.append('\b');
+                        case 'f' -> value.append('\f');
+                        case 'u' -> {
+                            if (i + 4 >= line.length()) {
+                                throw invalid("Malformed Escape");
+                            }
+                            value.append((char) Integer.parseInt(line, i + 1, i + 5, 16));
+                            i += 4;
+                        }
+                        default -> value.append(line.charAt(i));
+                    }
+                } else if (value != null) {
+                    value.append(c);
+                }
+            }
+            throw invalid("Unterminated String");
+        }
+
+        private String readLiteral() throws LedgerException {
+            int start = position;
+            int end = start;
+            while (end < line.length() && line.charAt(end) != ',' && line.charAt(end) != '}'
+                    && !Character.isWhitespace(line.charAt(end))) {
+                end++;
+            }
+            if (end == start) {
+                throw invalid("Missing Value");
+            }
+            position = end;
+            return line.startsWith("null", start) && end - start == 4 ? null : line.substring(start, end);
+        }
+
+        private char peek() throws LedgerException {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            if (position >= line.length()) {
+                throw invalid("Unexpected End Of Line");
+            }
+            return line.charAt(position);
+        }
+
+        private void expect(char expected) throws LedgerException {
+            if (peek() != expected) {
+                throw invalid("Expected '" + expected + "'");
+            }
+            position++;
+        }
+
+        private String field(String[] record, int slot) throws LedgerException {
+            String value = record[slot];
+            if (value == null) {
+                throw invalid("Missing Field " + FIELDS[slot]);
+            }
+            return value;
+        }
+
+        private int intField(String[] record, int slot) throws LedgerException {
+            try {
+                return Integer.parseInt(field(record, slot));
+            } catch (NumberFormatException e) {
+                throw invalid("Field " + FIELDS[slot] + " Is Not a Number");
+            }
+        }
+
+        private LedgerException invalid(String reason) {
+            return new LedgerException("Import Blocks", "Invalid Record At Line " + lineNumber + ": " + reason);
+        }
+
+        /**
+         * Transaction record waiting for the balance records of its Block
+         */
+        private static final class PendingTransaction {
+            private final String transactionId;
+            private final int amount;
+            private final int fee;
+            private final String note;
+            private final String payer;
+            private final String receiver;
+
+            private PendingTransaction(String transactionId, int amount, int fee, String note, String payer,
+                                       String receiver) {
+                this.transactionId = transactionId;
+                this.amount = amount;
+                this.fee = fee;
+                this.note = note;
+                this.payer = payer;
+                this.receiver = receiver;
+            }
+        }
+    }
+
+    /**
+     * Helper method resolving transaction party against the Block accounts
+     * @param block
+     * @param address
+     * @return Account
+     */
+    private static Account getOrCreateAccount(Block block, String address) {
+        Account account = block.getAccount(address);
+        return account != null ? account : new Account(address, 0);
+    }
+}
@@ -0,0 +1,57 @@
+package com.se310.ledger;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * BlockRangeIterator class implementation walking a range of blocks one at a time.
+ * Blocks are fetched lazily through the loader, so only the current block is held regardless
+ * of where the blocks are stored, and iteration ends at the first block that does not exist
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class BlockRangeIterator implements Iterator<Block> {
+
+    private final IntFunction<Block> blockLoader;
+    private final int toBlockNumber;
+    private int nextBlockNumber;
+    private Block nextBlock;
+    private boolean exhausted;
+
+    /**
+     * BlockRangeIterator Constructor
+     * @param blockLoader function returning Block by number or Null if it does not exist
+     * @param fromBlockNumber first block number, inclusive
+     * @param toBlockNumber last block number, inclusive
+     */
+    public BlockRangeIterator(IntFunction<Block> blockLoader, int fromBlockNumber, int toBlockNumber) {
+        this.blockLoader = blockLoader;
+        this.nextBlockNumber = fromBlockNumber;
+        this.toBlockNumber = toBlockNumber;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextBlock == null && !exhausted) {
+            nextBlock = blockLoader.apply(nextBlockNumber);
+            // Stop at the first gap so callers never see a partial range out of order
+            exhausted = nextBlock == null || nextBlockNumber == toBlockNumber;
+        }
+        return nextBlock != null;
+    }
+
+    @Override
+    public Block next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Block block = nextBlock;
+        nextBlock = null;
+        if (!exhausted) {
+            nextBlockNumber++;
+        }
+        return block;
+    }
+}
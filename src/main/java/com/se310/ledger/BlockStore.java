@@ -0,0 +1,812 @@
+package com.se310.ledger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * BlockStore class implementation persisting committed Blocks in append-only segment files.
+ * Each Block is one record in the BlockCodec encoding, compressed on its own when the segment uses
+ * DEFLATE, so a single Block is read with positional FileChannel reads without decoding its neighbours.
+ * Every segment has a memory-mapped sparse index holding the offset of every INDEX_INTERVAL-th record,
+ * so a read seeks to the nearest indexed record and skips at most INDEX_INTERVAL - 1 record headers.
+ * Segment layout:
+ *   int magic, int compression, then records of
+ *   int block number, int stored length, int raw length, int CRC32 of the stored bytes, stored bytes
+ * Segments are rolled over once they hold segmentBlocks Blocks; the next segment is prepared and the
+ * full one is forced to disk in the background, where short or differently compressed segments, such
+ * as those left by earlier runs, are also compacted into full segments. A failed compaction leaves the
+ * segments it was merging in place, and is reported by getCompactionFailure and thrown by close
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class BlockStore implements AutoCloseable {
+
+    /**
+     * Compression of the records in a segment
+     */
+    public enum Compression { NONE, DEFLATE }
+
+    public static final int DEFAULT_SEGMENT_BLOCKS = 1024;
+    public static final int INDEX_INTERVAL = 16;
+
+    private static final int SEGMENT_MAGIC = 0x4C534547;
+    private static final int SEGMENT_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int CACHED_BLOCKS = 16;
+    private static final String DATA_SUFFIX = ".dat";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private final Path directory;
+    private final int segmentBlocks;
+    private final Compression compression;
+    // Rollover work and compaction run on separate threads, so a long compaction never delays appends
+    private final ExecutorService background = newDaemonExecutor("block-store-rollover");
+    private final ExecutorService compactor = newDaemonExecutor("block-store-compaction");
+
+    // Segments by first block number, replaced as a whole by compaction
+    private final NavigableMap<Integer,Segment> segments = new ConcurrentSkipListMap<>();
+    private volatile int lastBlockNumber;
+    private volatile RecordPosition readHint;
+    private volatile IOException compactionFailure;
+
+    // Appending state, guarded by this store's monitor
+    private Segment activeSegment;
+    private Future<Segment> preparedSegment;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final Map<Integer,Block> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer,Block> eldest) {
+            return size() > CACHED_BLOCKS;
+        }
+    };
+
+    private BlockStore(Path directory, int segmentBlocks, Compression compression) {
+        this.directory = directory;
+        this.segmentBlocks = segmentBlocks;
+        this.compression = compression;
+    }
+
+    /**
+     * Open the store in the directory, recovering the segments written by earlier runs
+     * - Records torn by a crash at the end of the last segment are truncated
+     * - Segments shorter than segmentBlocks or compressed differently are compacted in the background
+     * @param directory directory holding the segment files, created if missing
+     * @param segmentBlocks number of Blocks after which a segment is rolled over
+     * @param compression compression of newly written segments
+     * @return BlockStore ready to append after the last stored Block
+     * @throws IOException
+     */
+    public static BlockStore open(Path directory, int segmentBlocks, Compression compression) throws IOException {
+        if (segmentBlocks < 1) {
+            throw new IllegalArgumentException("Segment Size Must Be Positive");
+        }
+        Files.createDirectories(directory);
+        BlockStore store = new BlockStore(directory, segmentBlocks, compression);
+        store.recover();
+        return store;
+    }
+
+    /**
+     * Getter method for the directory holding the segment files
+     * @return
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Getter method for the number of Blocks after which a segment is rolled over
+     * @return
+     */
+    public int getSegmentBlocks() {
+        return segmentBlocks;
+    }
+
+    /**
+     * Getter method for the compression of newly written segments
+     * @return
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get number of segments holding Blocks
+     * @return
+     */
+    public int getSegmentCount() {
+        return (int) segments.values().stream().filter(segment -> segment.blockCount > 0).count();
+    }
+
+    /**
+     * Get number of the first stored Block
+     * @return block number or 0 if nothing has been stored
+     */
+    public int getFirstBlockNumber() {
+        return lastBlockNumber == 0 ? 0 : segments.firstKey();
+    }
+
+    /**
+     * Get number of the last stored Block
+     * @return block number or 0 if nothing has been stored
+     */
+    public int getLastBlockNumber() {
+        return lastBlockNumber;
+    }
+
+    /**
+     * Append Block after the last stored one
+     * - Written with positional writes, forced to disk when its segment is rolled over
+     * @param block
+     * @throws IOException
+     */
+    public synchronized void append(Block block) throws IOException {
+        int blockNumber = block.getBlockNumber();
+        if (lastBlockNumber != 0 && blockNumber != lastBlockNumber + 1) {
+            throw new IllegalArgumentException("Block Number Is Out of Sequence: " + blockNumber);
+        }
+
+        if (activeSegment == null) {
+            activate(createSegment(blockNumber, compression));
+        } else if (activeSegment.blockCount >= segmentBlocks) {
+            rollover();
+        }
+
+        byte[] raw = encode(block);
+        appendRecord(activeSegment, blockNumber, raw, compress(deflater, raw, activeSegment.compression));
+        lastBlockNumber = blockNumber;
+    }
+
+    /**
+     * Load stored Block, answering recently loaded Blocks from a small cache
+     * - Returned Block is shared with other readers, so it must not be installed into a Ledger
+     * @param blockNumber
+     * @return Block with its Transactions and Accounts, not linked to its previous Block
+     * @throws UncheckedIOException if the Block cannot be read
+     */
+    public Block loadBlock(int blockNumber) {
+        synchronized (cache) {
+            Block block = cache.get(blockNumber);
+            if (block != null) {
+                return block;
+            }
+        }
+
+        Block block;
+        try {
+            try {
+                block = readBlock(blockNumber);
+            } catch (ClosedChannelException e) {
+                // Segment was replaced by compaction while it was read
+                block = readBlock(blockNumber);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to Read Block: " + blockNumber, e);
+        }
+
+        synchronized (cache) {
+            cache.put(blockNumber, block);
+        }
+        return block;
+    }
+
+    /**
+     * Read stored Block from its segment
+     * - Reading the Block after the one read last continues from where that read stopped
+     * @param blockNumber
+     * @return newly decoded Block, not linked to its previous Block
+     * @throws IOException
+     */
+    public Block readBlock(int blockNumber) throws IOException {
+        Map.Entry<Integer,Segment> entry = segments.floorEntry(blockNumber);
+        if (entry == null || blockNumber > lastBlockNumber) {
+            throw new IllegalArgumentException("Block Is Not Stored: " + blockNumber);
+        }
+        Segment segment = entry.getValue();
+
+        long position;
+        RecordPosition hint = readHint;
+        if (hint != null && hint.segment == segment && hint.blockNumber == blockNumber) {
+            position = hint.offset;
+        } else {
+            int slot = (blockNumber - segment.firstBlockNumber) / INDEX_INTERVAL;
+            position = segment.index.getLong(slot * Long.BYTES);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (true) {
+            readFully(segment.channel, header.clear(), position);
+            int recordNumber = header.getInt(0);
+            if (recordNumber == blockNumber) {
+                break;
+            }
+            if (recordNumber > blockNumber || recordNumber < segment.firstBlockNumber) {
+                throw new IOException("Block Record Is Missing: " + blockNumber);
+            }
+            position += RECORD_HEADER_SIZE + header.getInt(4);
+        }
+
+        int storedLength = header.getInt(4);
+        ByteBuffer stored = ByteBuffer.allocate(storedLength);
+        readFully(segment.channel, stored, position + RECORD_HEADER_SIZE);
+        if (checksum(stored.array()) != header.getInt(12)) {
+            throw new IOException("Block Record Is Corrupt: " + blockNumber);
+        }
+        readHint = new RecordPosition(segment, blockNumber + 1, position + RECORD_HEADER_SIZE + storedLength);
+
+        byte[] raw = decompress(stored.array(), header.getInt(8), segment.compression);
+        Block block = BlockCodec.readBlock(new DataInputStream(new ByteArrayInputStream(raw)));
+        block.seal();
+        return block;
+    }
+
+    /**
+     * Compact short and differently compressed segments into full segments on the background thread
+     * - A failure is also kept for getCompactionFailure, since compactions started on open have no caller
+     * @return Future with the number of segments rewritten
+     */
+    public Future<Integer> compact() {
+        return compactor.submit(() -> {
+            try {
+                return compactSegments();
+            } catch (IOException e) {
+                compactionFailure = e;
+                throw e;
+            } catch (RuntimeException e) {
+                compactionFailure = new IOException("Compaction Failed: " + e, e);
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Get failure of the latest compaction that failed
+     * @return IOException or Null if no compaction has failed
+     */
+    public IOException getCompactionFailure() {
+        return compactionFailure;
+    }
+
+    /**
+     * Wait for background work, force the last segment to disk and close the segment files
+     * @throws IOException if forcing failed, or once the files are closed, if a compaction failed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdown();
+        background.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+            background.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (preparedSegment != null && preparedSegment.isDone()) {
+            try {
+                discard(preparedSegment.get());
+            } catch (ExecutionException | InterruptedException e) {
+                // Nothing was prepared, so there is nothing to remove
+            }
+        }
+        if (activeSegment != null) {
+            activeSegment.channel.force(true);
+            activeSegment.index.force();
+        }
+        for (Segment segment : segments.values()) {
+            segment.channel.close();
+        }
+        deflater.end();
+        IOException failure = compactionFailure;
+        if (failure != null) {
+            throw new IOException("Compaction Failed: " + failure.getMessage(), failure);
+        }
+    }
+
+    /**
+     * Helper method making segment the one appended to and preparing its successor in the background
+     * @param segment
+     */
+    private void activate(Segment segment) {
+        activeSegment = segment;
+        segments.put(segment.firstBlockNumber, segment);
+        int nextFirstBlockNumber = segment.firstBlockNumber + segmentBlocks;
+        preparedSegment = background.submit(() -> createSegment(nextFirstBlockNumber, compression));
+    }
+
+    /**
+     * Helper method switching to the prepared segment and forcing the full one in the background
+     * @throws IOException
+     */
+    private void rollover() throws IOException {
+        Segment full = activeSegment;
+        Segment next = null;
+        try {
+            next = preparedSegment.get();
+        } catch (ExecutionException e) {
+            // Preparing failed in the background, the segment is created here instead
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (next == null || next.firstBlockNumber != lastBlockNumber + 1) {
+            discard(next);
+            next = createSegment(lastBlockNumber + 1, compression);
+        }
+
+        background.execute(() -> seal(full));
+        activate(next);
+    }
+
+    /**
+     * Helper method forcing a full segment to disk, after which it may be compacted
+     * @param segment
+     */
+    private void seal(Segment segment) {
+        try {
+            segment.channel.force(true);
+            segment.index.force();
+            segment.sealed = true;
+        } catch (IOException e) {
+            // Left unsealed, so it is never compacted, and forced again on close
+        }
+    }
+
+    /**
+     * Helper method merging runs of consecutive sealed segments that are short or compressed differently
+     * @return number of segments rewritten
+     * @throws IOException
+     */
+    private int compactSegments() throws IOException {
+        int rewritten = 0;
+        List<Segment> run = new ArrayList<>();
+        int runBlocks = 0;
+        for (Segment segment : segments.values()) {
+            boolean candidate = segment.sealed
+                    && (segment.blockCount < segmentBlocks || segment.compression != compression);
+            if (!candidate || (!run.isEmpty() && runBlocks + segment.blockCount > segmentBlocks)) {
+                rewritten += merge(run);
+                run = new ArrayList<>();
+                runBlocks = 0;
+            }
+            if (candidate) {
+                run.add(segment);
+                runBlocks += segment.blockCount;
+            }
+        }
+        return rewritten + merge(run);
+    }
+
+    /**
+     * Helper method rewriting consecutive segments as one segment in the store's compression
+     * - Merged segment is written under a temporary name and replaces the run once complete
+     * @param run
+     * @return number of segments rewritten
+     * @throws IOException
+     */
+    private int merge(List<Segment> run) throws IOException {
+        if (run.isEmpty() || (run.size() == 1 && run.get(0).compression == compression)) {
+            return 0;
+        }
+
+        int firstBlockNumber = run.get(0).firstBlockNumber;
+        int blockCount = 0;
+        for (Segment segment : run) {
+            blockCount += segment.blockCount;
+        }
+        // Segment written with a larger rollover size can hold more Blocks than segmentBlocks
+        Segment merged = createSegment(firstBlockNumber, compression, ".compact", blockCount);
+        Deflater compactDeflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+            for (Segment segment : run) {
+                long position = SEGMENT_HEADER_SIZE;
+                for (int i = 0; i < segment.blockCount; i++) {
+                    readFully(segment.channel, header.clear(), position);
+                    ByteBuffer stored = ByteBuffer.allocate(header.getInt(4));
+                    readFully(segment.channel, stored, position + RECORD_HEADER_SIZE);
+                    byte[] raw = decompress(stored.array(), header.getInt(8), segment.compression);
+                    appendRecord(merged, header.getInt(0), raw, compress(compactDeflater, raw, compression));
+                    position += RECORD_HEADER_SIZE + stored.capacity();
+                }
+            }
+            merged.channel.force(true);
+            merged.index.force();
+        } catch (IOException | RuntimeException e) {
+            // Run is left as it was, only the partly written segment is removed
+            discard(merged);
+            throw e;
+        } finally {
+            compactDeflater.end();
+        }
+        merged.sealed = true;
+
+        Path dataPath = segmentPath(firstBlockNumber, DATA_SUFFIX);
+        Path indexPath = segmentPath(firstBlockNumber, INDEX_SUFFIX);
+        Files.move(merged.dataPath, dataPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(merged.indexPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // Open channel and mapping follow the files, the segment is named by where they are now
+        Segment installed = merged.movedTo(dataPath, indexPath);
+
+        // Merged segment covers the whole run before the rest of the run is removed
+        segments.put(firstBlockNumber, installed);
+        for (Segment segment : run) {
+            if (segment.firstBlockNumber != firstBlockNumber) {
+                segments.remove(segment.firstBlockNumber);
+                Files.deleteIfExists(segment.dataPath);
+                Files.deleteIfExists(segment.indexPath);
+            }
+            segment.channel.close();
+        }
+        readHint = null;
+        return run.size();
+    }
+
+    /**
+     * Helper method opening the segments in the directory and rebuilding their indexes
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        // Compaction interrupted before its segment was moved into place left nothing else behind
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*.compact")) {
+            for (Path path : stream) {
+                Files.delete(path);
+            }
+        }
+
+        List<Path> dataPaths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "segment-*" + DATA_SUFFIX)) {
+            stream.forEach(dataPaths::add);
+        }
+        dataPaths.sort(null);
+
+        // Segments prepared but never appended to may follow the one that was appended to last
+        int lastWritten = dataPaths.size() - 1;
+        while (lastWritten > 0 && Files.size(dataPaths.get(lastWritten)) <= SEGMENT_HEADER_SIZE) {
+            lastWritten--;
+        }
+
+        for (int i = 0; i < dataPaths.size(); i++) {
+            Segment segment = openSegment(dataPaths.get(i), i >= lastWritten);
+            // Segments merged by an interrupted compaction are covered by the merged segment before them
+            if (segment.blockCount == 0 || (lastBlockNumber != 0
+                    && segment.firstBlockNumber + segment.blockCount - 1 <= lastBlockNumber)) {
+                discard(segment);
+                continue;
+            }
+            if (lastBlockNumber != 0 && segment.firstBlockNumber != lastBlockNumber + 1) {
+                throw new IOException("Segments Are Not Consecutive: " + segment.dataPath);
+            }
+            segments.put(segment.firstBlockNumber, segment);
+            lastBlockNumber = segment.firstBlockNumber + segment.blockCount - 1;
+        }
+
+        // Last segment keeps being appended to until it is full
+        if (!segments.isEmpty()) {
+            Segment last = segments.lastEntry().getValue();
+            if (last.blockCount < segmentBlocks && last.compression == compression) {
+                last.sealed = false;
+                activate(last);
+            } else {
+                activate(createSegment(lastBlockNumber + 1, compression));
+            }
+        }
+        if (segments.values().stream().anyMatch(segment -> segment.sealed
+                && (segment.blockCount < segmentBlocks || segment.compression != compression))) {
+            compact();
+        }
+    }
+
+    /**
+     * Helper method opening a segment written earlier, walking its records to rebuild the index
+     * - Records of the last segment are checked, and the file is truncated at the first torn one
+     * @param dataPath
+     * @param last whether the segment was the one appended to
+     * @return Segment
+     * @throws IOException
+     */
+    private Segment openSegment(Path dataPath, boolean last) throws IOException {
+        String name = dataPath.getFileName().toString();
+        int firstBlockNumber = Integer.parseInt(name.substring("segment-".length(), name.length() - DATA_SUFFIX.length()));
+        FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        ByteBuffer segmentHeader = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        long size = channel.size();
+        if (size < SEGMENT_HEADER_SIZE) {
+            return new Segment(firstBlockNumber, dataPath, segmentPath(firstBlockNumber, INDEX_SUFFIX),
+                    channel, mapIndex(segmentPath(firstBlockNumber, INDEX_SUFFIX), 1), compression);
+        }
+        readFully(channel, segmentHeader, 0);
+        if (segmentHeader.getInt(0) != SEGMENT_MAGIC) {
+            channel.close();
+            throw new IOException("File Is Not a Block Segment: " + dataPath);
+        }
+        Compression segmentCompression = Compression.values()[segmentHeader.getInt(4)];
+
+        List<Long> offsets = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        long position = SEGMENT_HEADER_SIZE;
+        int blockCount = 0;
+        while (position + RECORD_HEADER_SIZE <= size) {
+            readFully(channel, header.clear(), position);
+            int storedLength = header.getInt(4);
+            if (header.getInt(0) != firstBlockNumber + blockCount || storedLength < 0
+                    || position + RECORD_HEADER_SIZE + storedLength > size) {
+                break;
+            }
+            if (last) {
+                ByteBuffer stored = ByteBuffer.allocate(storedLength);
+                readFully(channel, stored, position + RECORD_HEADER_SIZE);
+                if (checksum(stored.array()) != header.getInt(12)) {
+                    break;
+                }
+            }
+            if (blockCount % INDEX_INTERVAL == 0) {
+                offsets.add(position);
+            }
+            position += RECORD_HEADER_SIZE + storedLength;
+            blockCount++;
+        }
+        if (position < size) {
+            if (!last) {
+                channel.close();
+                throw new IOException("Segment Is Corrupt: " + dataPath);
+            }
+            channel.truncate(position);
+        }
+
+        Path indexPath = segmentPath(firstBlockNumber, INDEX_SUFFIX);
+        int slots = Math.max(offsets.size(), (segmentBlocks + INDEX_INTERVAL - 1) / INDEX_INTERVAL);
+        MappedByteBuffer index = mapIndex(indexPath, slots);
+        for (int i = 0; i < offsets.size(); i++) {
+            index.putLong(i * Long.BYTES, offsets.get(i));
+        }
+
+        Segment segment = new Segment(firstBlockNumber, dataPath, indexPath, channel, index, segmentCompression);
+        segment.blockCount = blockCount;
+        segment.size = position;
+        segment.sealed = true;
+        return segment;
+    }
+
+    /**
+     * Helper method creating an empty segment under its final name
+     */
+    private Segment createSegment(int firstBlockNumber, Compression segmentCompression) throws IOException {
+        return createSegment(firstBlockNumber, segmentCompression, "", segmentBlocks);
+    }
+
+    /**
+     * Helper method creating an empty segment with its header written and its index mapped
+     * @param firstBlockNumber
+     * @param segmentCompression
+     * @param suffix appended to the file names, such as for segments being compacted
+     * @param capacity number of Blocks the index has room for
+     * @return Segment
+     * @throws IOException
+     */
+    private Segment createSegment(int firstBlockNumber, Compression segmentCompression, String suffix, int capacity)
+            throws IOException {
+        Path dataPath = Path.of(segmentPath(firstBlockNumber, DATA_SUFFIX) + suffix);
+        Path indexPath = Path.of(segmentPath(firstBlockNumber, INDEX_SUFFIX) + suffix);
+        FileChannel channel = FileChannel.open(dataPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+                .putInt(SEGMENT_MAGIC).putInt(segmentCompression.ordinal()).flip();
+        writeFully(channel, header, 0);
+
+        int slots = (Math.max(capacity, segmentBlocks) + INDEX_INTERVAL - 1) / INDEX_INTERVAL;
+        Segment segment = new Segment(firstBlockNumber, dataPath, indexPath, channel,
+                mapIndex(indexPath, slots), segmentCompression);
+        segment.size = SEGMENT_HEADER_SIZE;
+        return segment;
+    }
+
+    /**
+     * Helper method closing and removing a segment that holds no Blocks
+     * @param segment Segment or Null
+     * @throws IOException
+     */
+    private void discard(Segment segment) throws IOException {
+        if (segment == null) {
+            return;
+        }
+        segment.channel.close();
+        Files.deleteIfExists(segment.dataPath);
+        Files.deleteIfExists(segment.indexPath);
+    }
+
+    /**
+     * Helper method writing one record at the end of the segment and indexing it when due
+     * - Index slot is only used by readers once the record is written, as they never read past the last Block
+     * @param segment
+     * @param blockNumber
+     * @param raw encoded Block
+     * @param stored encoded Block as written to the segment
+     * @throws IOException
+     */
+    private static void appendRecord(Segment segment, int blockNumber, byte[] raw, byte[] stored) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + stored.length)
+                .putInt(blockNumber).putInt(stored.length).putInt(raw.length).putInt(checksum(stored))
+                .put(stored).flip();
+        writeFully(segment.channel, record, segment.size);
+        if (segment.blockCount % INDEX_INTERVAL == 0) {
+            segment.index.putLong((segment.blockCount / INDEX_INTERVAL) * Long.BYTES, segment.size);
+        }
+        segment.size += record.capacity();
+        segment.blockCount++;
+    }
+
+    /**
+     * Helper method mapping a segment index, sized for the given number of slots
+     */
+    private static MappedByteBuffer mapIndex(Path indexPath, int slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) slots * Long.BYTES);
+        }
+    }
+
+    private static ExecutorService newDaemonExecutor(String name) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private Path segmentPath(int firstBlockNumber, String suffix) {
+        return directory.resolve(String.format("segment-%010d%s", firstBlockNumber, suffix));
+    }
+
+    private static byte[] encode(Block block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        BlockCodec.writeBlock(new DataOutputStream(bytes), block);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] compress(Deflater deflater, byte[] raw, Compression segmentCompression) {
+        if (segmentCompression == Compression.NONE) {
+            return raw;
+        }
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(raw.length / 2 + 64);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            bytes.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] stored, int rawLength, Compression segmentCompression) throws IOException {
+        if (segmentCompression == Compression.NONE) {
+            return stored;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Block Record Is Truncated");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Block Record Is Corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected End of Segment");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Segment file with its mapped sparse index
+     */
+    private static final class Segment {
+        private final int firstBlockNumber;
+        private final Path dataPath;
+        private final Path indexPath;
+        private final FileChannel channel;
+        private final MappedByteBuffer index;
+        private final Compression compression;
+        private volatile int blockCount;
+        private long size;
+        private volatile boolean sealed;
+
+        private Segment(int firstBlockNumber, Path dataPath, Path indexPath, FileChannel channel,
+                        MappedByteBuffer index, Compression compression) {
+            this.firstBlockNumber = firstBlockNumber;
+            this.dataPath = dataPath;
+            this.indexPath = indexPath;
+            this.channel = channel;
+            this.index = index;
+            this.compression = compression;
+        }
+
+        /**
+         * Same segment after its files were renamed, such as a merged segment moved into place
+         * @param movedDataPath
+         * @param movedIndexPath
+         * @return
+         */
+        private Segment movedTo(Path movedDataPath, Path movedIndexPath) {
+            Segment moved = new Segment(firstBlockNumber, movedDataPath, movedIndexPath, channel, index, compression);
+            moved.blockCount = blockCount;
+            moved.size = size;
+            moved.sealed = sealed;
+            return moved;
+        }
+    }
+
+    /**
+     * Where the record of the given Block starts, left behind by the previous read
+     */
+    private static final class RecordPosition {
+        private final Segment segment;
+        private final int blockNumber;
+        private final long offset;
+
+        private RecordPosition(Segment segment, int blockNumber, long offset) {
+            this.segment = segment;
+            this.blockNumber = blockNumber;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.se310.ledger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * BloomFilter class implementation answering whether a key may have been added before.
+ * A negative answer is exact while a positive answer may be false at the configured rate.
+ * Bits are set atomically, so the filter can be read by any thread while it is being written
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numberOfBits;
+    private final int numberOfHashes;
+
+    /**
+     * BloomFilter Constructor
+     * @param expectedInsertions number of keys the filter is sized for
+     * @param falsePositiveRate acceptable rate of false positives at that size
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom Filter Size");
+        }
+        long optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2)));
+        this.numberOfBits = Math.max(64, ((optimalBits + 63) / 64) * 64);
+        this.numberOfHashes = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * Math.log(2)));
+        this.bits = new AtomicLongArray((int) (numberOfBits / 64));
+    }
+
+    /**
+     * Add key to the filter
+     * @param key
+     */
+    public void add(String key) {
+        //Second hash is derived from the first and kept odd, so the probes of small filters do not repeat
+        long first = hash64(key);
+        long second = mix64(first) | 1;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Math.floorMod(first + i * second, numberOfBits);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    /**
+     * Check whether key may have been added
+     * @param key
+     * @return false if the key has definitely not been added
+     */
+    public boolean mightContain(String key) {
+        long first = hash64(key);
+        long second = mix64(first) | 1;
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = Math.floorMod(first + i * second, numberOfBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get memory used by the bit array
+     * @return long representing number of bytes
+     */
+    public long getMemoryBytes() {
+        return numberOfBits / 8;
+    }
+
+    /**
+     * Helper method computing 64 bit FNV-1a hash with a final mix
+     * @param key
+     * @return long
+     */
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix64(hash);
+    }
+
+    /**
+     * Helper method applying the MurmurHash3 finalizer to a 64 bit value
+     * @param value
+     * @return long
+     */
+    private static long mix64(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,244 @@
+package com.se310.ledger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ChainExporter class implementation streaming committed Blocks, their Transactions and the Account
+ * balances sealed with each Block to JSON lines or CSV for analytics, or to a binary dump of
+ * BlockCodec records that BlockImporter loads back.
+ * The first exported Block carries every balance, each later one only the balances its Transactions
+ * changed, so the output grows with the Transactions rather than with Blocks times Accounts.
+ * Export reads one LedgerSnapshot, so it runs alongside ingest and sees a consistent chain, and
+ * writes one record at a time through a buffer, so memory does not grow with the length of the chain
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class ChainExporter {
+
+    /**
+     * Output formats supported by the exporter
+     */
+    public enum Format { JSON, CSV, BINARY }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER =
+            "record,block_number,hash,previous_hash,transaction_id,amount,fee,note,payer,receiver,address,balance";
+
+    private final Format format;
+    private final boolean gzip;
+
+    /**
+     * ChainExporter Constructor
+     * @param format
+     * @param gzip compress the output with gzip
+     */
+    public ChainExporter(Format format, boolean gzip) {
+        this.format = format;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Export a range of committed Blocks to a file
+     * - Range is clipped to the Blocks committed when the export starts
+     * @param ledger
+     * @param fromBlockNumber first block number, inclusive
+     * @param toBlockNumber last block number, inclusive
+     * @param path file to write, replaced if it exists
+     * @return number of Blocks exported
+     * @throws LedgerException
+     */
+    public int export(Ledger ledger, int fromBlockNumber, int toBlockNumber, Path path) throws LedgerException {
+        if (fromBlockNumber < 1 || toBlockNumber < fromBlockNumber) {
+            throw new LedgerException("Export", "Invalid Block Range");
+        }
+
+        LedgerSnapshot snapshot = ledger.getSnapshot();
+        int lastBlockNumber = Math.min(toBlockNumber, snapshot.getBlockNumber());
+        Iterable<Block> blocks = fromBlockNumber <= lastBlockNumber
+                ? snapshot.getBlocks().subMap(fromBlockNumber, true, lastBlockNumber, true).values()
+                : List.of();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = newOutputStream(channel)) {
+
+            int count = 0;
+            Map<String,Account> previousAccounts = Map.of();
+            if (format == Format.BINARY) {
+                DataOutputStream dataOut = new DataOutputStream(out);
+                dataOut.writeInt(BlockCodec.DUMP_MAGIC);
+                for (Block block : blocks) {
+                    dataOut.writeBoolean(true);
+                    BlockCodec.writeBlock(dataOut, block, previousAccounts);
+                    previousAccounts = block.getAccountBalanceMap();
+                    count++;
+                }
+                dataOut.writeBoolean(false);
+                dataOut.flush();
+                return count;
+            }
+
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+            if (format == Format.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+            for (Block block : blocks) {
+                writeBlock(writer, block, previousAccounts);
+                previousAccounts = block.getAccountBalanceMap();
+                count++;
+            }
+            writer.flush();
+            return count;
+        } catch (IOException e) {
+            throw new LedgerException("Export", "Unable to Write File: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method layering buffering and optional compression over the file channel
+     * @param channel
+     * @return OutputStream
+     * @throws IOException
+     */
+    private OutputStream newOutputStream(FileChannel channel) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    /**
+     * Helper method writing the Block record followed by its Transactions and changed balances
+     * @param writer
+     * @param block
+     * @param previousAccounts accounts of the previous Block exported, empty for the first one
+     * @throws IOException
+     */
+    private void writeBlock(Writer writer, Block block, Map<String,Account> previousAccounts) throws IOException {
+        int blockNumber = block.getBlockNumber();
+        if (format == Format.JSON) {
+            writer.write("{\"record\":\"block\",\"block_number\":" + blockNumber
+                    + ",\"hash\":" + jsonString(block.getHash())
+                    + ",\"previous_hash\":" + jsonString(block.getPreviousHash())
+                    + ",\"transaction_count\":" + block.getTransactionList().size() + "}\n");
+        } else {
+            writeCsv(writer, "block", blockNumber, block.getHash(), block.getPreviousHash(),
+                    "", "", "", "", "", "", "", "");
+        }
+
+        for (Transaction transaction : block.getTransactionList()) {
+            if (format == Format.JSON) {
+                writer.write("{\"record\":\"transaction\",\"block_number\":" + blockNumber
+                        + ",\"transaction_id\":" + jsonString(transaction.getTransactionId())
+                        + ",\"amount\":" + transaction.getAmount()
+                        + ",\"fee\":" + transaction.getFee()
+                        + ",\"note\":" + jsonString(transaction.getNote())
+                        + ",\"payer\":" + jsonString(transaction.getPayer().getAddress())
+                        + ",\"receiver\":" + jsonString(transaction.getReceiver().getAddress()) + "}\n");
+            } else {
+                writeCsv(writer, "transaction", blockNumber, "", "", transaction.getTransactionId(),
+                        String.valueOf(transaction.getAmount()), String.valueOf(transaction.getFee()),
+                        transaction.getNote(), transaction.getPayer().getAddress(),
+                        transaction.getReceiver().getAddress(), "", "");
+            }
+        }
+
+        for (Map.Entry<String,Account> entry : block.getAccountBalanceMap().entrySet()) {
+            if (!BlockCodec.isBalanceChanged(entry.getValue(), previousAccounts)) {
+                continue;
+            }
+            int balance = entry.getValue().getBalance();
+            if (format == Format.JSON) {
+                writer.write("{\"record\":\"balance\",\"block_number\":" + blockNumber
+                        + ",\"address\":" + jsonString(entry.getKey())
+                        + ",\"balance\":" + balance + "}\n");
+            } else {
+                writeCsv(writer, "balance", blockNumber, "", "", "", "", "", "", "", "",
+                        entry.getKey(), String.valueOf(balance));
+            }
+        }
+    }
+
+    /**
+     * Helper method writing one CSV row, quoting fields where needed
+     * @param writer
+     * @param record
+     * @param blockNumber
+     * @param fields remaining columns in header order
+     * @throws IOException
+     */
+    private static void writeCsv(Writer writer, String record, int blockNumber, String... fields) throws IOException {
+        writer.write(record);
+        writer.write(',');
+        writer.write(String.valueOf(blockNumber));
+        for (String field : fields) {
+            writer.write(',');
+            writer.write(csvField(field));
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Helper method quoting CSV field containing separators, quotes or line breaks
+     * @param value
+     * @return
+     */
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Helper method encoding JSON string literal
+     * @param value
+     * @return
+     */
+    static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -1,86 +1,316 @@
 package com.se310.ledger;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.se310.ledger.LedgerProfiling.CommandParseEvent;
+
+import jdk.jfr.Recording;
+
 /**
  * CommandProcessor class implementation designed to process individual Blockchain commands
  *
  * @author  Sergey L. Sundukovskiy -> Joshua Vaysman
- * @version 1.2 
+ * @version 1.8
  */
 public class CommandProcessor {
 
-    private static Ledger ledger = null;
-    private static FinancialOps finOps = new FinancialOps();
+    // Token between spaces or a quoted string, compiled once instead of for every command
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("([^\"]\\S*|\".+?\")\\s*");
+
+    private final LedgerRegistry ledgerRegistry;
+    private final FinancialOps finOps = new FinancialOps();
+    private Ledger ledger = null;
+    private ReplicationLeader replicationLeader = null;
+    private ReplicationFollower replicationFollower = null;
+    private Recording recording = null;
+    private PrintStream out = System.out;
+    private PrintStream failureOut = System.out;
+    private int blockSize = Ledger.DEFAULT_BLOCK_SIZE;
+    private long commandCount;
+    private long failureCount;
+
+    /**
+     * CommandProcessor Constructor with its own LedgerRegistry
+     */
+    public CommandProcessor() {
+        this(new LedgerRegistry());
+    }
+
+    /**
+     * CommandProcessor Constructor sharing Ledgers with other processors
+     * @param ledgerRegistry
+     */
+    public CommandProcessor(LedgerRegistry ledgerRegistry) {
+        this.ledgerRegistry = ledgerRegistry;
+    }
+
+    /**
+     * Getter method for the Ledger commands are currently applied to
+     * @return
+     */
+    public Ledger getLedger() {
+        return ledger;
+    }
+
+    /**
+     * Setter method for the stream command output is printed to
+     * @param out
+     */
+    public void setOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Getter method for the stream command output is printed to
+     * @return
+     */
+    public PrintStream getOutput() {
+        return out;
+    }
+
+    /**
+     * Setter method for the stream failures are printed to, command output by default
+     * @param failureOut
+     */
+    public void setFailureOutput(PrintStream failureOut) {
+        this.failureOut = failureOut;
+    }
+
+    /**
+     * Setter method for the number of Transactions per Block of Ledgers created from now on
+     * @param blockSize
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block Size Must Be Positive");
+        }
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Get number of commands processed
+     * @return
+     */
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * Get number of commands and transactions that failed
+     * @return
+     */
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * Close the BlockStores of every Ledger in the registry once their committed Blocks are written
+     * - Called when processing is done, such as when LedgerCli exits
+     */
+    public void closeBlockStores() {
+        for (String name : ledgerRegistry.getLedgerNames()) {
+            try {
+                ledgerRegistry.getLedger(name).closeBlockStore();
+            } catch (LedgerException e) {
+                reportFailure(e.getReason());
+            }
+        }
+    }
+
+    /**
+     * Close the journals of every Ledger in the registry once their buffered Transactions are synced
+     * - Called when processing is done, such as when LedgerCli exits
+     */
+    public void closeJournals() {
+        for (String name : ledgerRegistry.getLedgerNames()) {
+            try {
+                closeJournal(ledgerRegistry.getLedger(name));
+            } catch (LedgerException e) {
+                reportFailure(e.getReason());
+            }
+        }
+    }
+
+    /**
+     * Helper method printing failure and counting it
+     * @param reason
+     */
+    protected void reportFailure(String reason) {
+        failureCount++;
+        failureOut.println("Failed due to: " + reason);
+    }
+
+    /**
+     * Helper method detaching the Ledger's journal once its buffered Transactions are synced
+     * @param ledger
+     */
+    private void closeJournal(Ledger ledger) {
+        TransactionJournal journal = ledger.getTransactionJournal();
+        if (journal == null) {
+            return;
+        }
+        ledger.setTransactionJournal(null);
+        try {
+            journal.close();
+        } catch (IOException e) {
+            reportFailure("Unable to Close Journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method closing a BlockStore the Ledger did not take
+     * @param blockStore BlockStore or Null if it was never opened
+     */
+    private void closeRejectedStore(BlockStore blockStore) {
+        if (blockStore == null) {
+            return;
+        }
+        try {
+            blockStore.close();
+        } catch (IOException e) {
+            reportFailure("Unable to Close Block Store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method stopping the profiling recording, which writes it to its file
+     */
+    private void stopProfiling() {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+        } catch (IllegalStateException e) {
+            reportFailure("Unable to Stop Profiling: " + e.getMessage());
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    /**
+     * Helper method pulling pending Transactions into the current Ledger's Block
+     * @throws LedgerException
+     */
+    private void produceBlock() throws LedgerException {
+        out.println("Producing Block: " + ledger.getUncommittedBlock().getBlockNumber()
+                + " Pending: " + ledger.getMempool().size());
 
-    public static void processCommand(String command) throws CommandProcessorException {
+        Map<String,String> rejected = finOps.produceBlock(ledger);
+        for (Map.Entry<String,String> entry : rejected.entrySet()) {
+            reportFailure(entry.getValue() + " for Transaction: " + entry.getKey());
+        }
+    }
 
+    public void processCommand(String command) throws CommandProcessorException {
+
+        commandCount++;
+        CommandParseEvent parseEvent = LedgerProfiling.beginCommandParse();
         List<String> tokens = new ArrayList<>();
         //Split the line into tokens between spaces and quotes
-        Matcher matcher = Pattern.compile("([^\"]\\S*|\".+?\")\\s*").matcher(command);
+        Matcher matcher = TOKEN_PATTERN.matcher(command);
         while (matcher.find())
             tokens.add(matcher.group(1).replace("\"", ""));
+        if (LedgerProfiling.end(parseEvent)) {
+            parseEvent.command = tokens.isEmpty() ? "" : tokens.get(0);
+            parseEvent.tokenCount = tokens.size();
+            parseEvent.lineLength = command.length();
+            parseEvent.commit();
+        }
 
+        if(ledger == null && !tokens.get(0).equals("create-ledger") && !tokens.get(0).equals("use-ledger")
+                && !tokens.get(0).equals("profile"))
+            throw new CommandProcessorException(tokens.get(0), "No Ledger Selected");
         switch (tokens.get(0)) {
             case "create-ledger" -> {
                 if(tokens.size() != 6)
                     throw new CommandProcessorException("create-ledger", "Missing Arguments");
 
-                System.out.println("Creating Ledger: " + tokens.get(1) + " " + tokens.get(3) + " " + tokens.get(5));
-                ledger = Ledger.getInstance(tokens.get(1), tokens.get(3), tokens.get(5));
+                out.println("Creating Ledger: " + tokens.get(1) + " " + tokens.get(3) + " " + tokens.get(5));
+                try {
+                    ledger = ledgerRegistry.createLedger(tokens.get(1), tokens.get(3), tokens.get(5));
+                    ledger.setBlockSize(blockSize);
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
+            case "use-ledger" -> {
+                if(tokens.size() != 2)
+                    throw new CommandProcessorException("use-ledger", "Missing Arguments");
+
+                out.println("Using Ledger: " + tokens.get(1));
+                try {
+                    ledger = ledgerRegistry.getLedger(tokens.get(1));
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
             }
             case "create-account" -> {
                 if(tokens.size() != 2)
                     throw new CommandProcessorException("create-account", "Missing Arguments");
 
-                System.out.println("Creating Account: " + tokens.get(1));
+                out.println("Creating Account: " + tokens.get(1));
                 try {
                     // Refactored for SRP
                     Account newAcc = new Account(tokens.get(1), 0);
                     ledger.addToLedger(newAcc);
                     // ledger.createAccount(tokens.get(1));
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
                 }
             }
             case "get-account-balance" -> {
+                if(tokens.size() == 4 && tokens.get(2).equals("at-block")){
+                    out.println("Getting Balance for: " + tokens.get(1) + " at Block: " + tokens.get(3));
+                    try {
+                        out.println("Account Balance for: " + tokens.get(1) + " at Block: " + tokens.get(3)
+                                + " is " + ledger.getAccountBalance(tokens.get(1), Integer.parseInt(tokens.get(3))));
+                    } catch (LedgerException e) {
+                        reportFailure(e.getReason());
+                    }
+                    break;
+                }
                 if(tokens.size() != 2)
                     throw new CommandProcessorException("create-account", "Missing Arguments");
 
-                System.out.println("Getting Balance for: " + tokens.get(1));
+                out.println("Getting Balance for: " + tokens.get(1));
                 try {
-                    System.out.println("Account Balance for: " + tokens.get(1) + " is "
-                    // Refactored to make use of Account method getBalance()
-                            +  ledger.getLatestBlock().getAccount(tokens.get(1)).getBalance());
-                            // + ledger.getAccountBalance(tokens.get(1)));
+                    // Served from the latest snapshot so reads never see a block being filled
+                    out.println("Account Balance for: " + tokens.get(1) + " is "
+                            + ledger.getAccountBalance(tokens.get(1)));
 
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
                 }
             }
             case "get-account-balances" -> {
-                System.out.println("Getting All Balances");
+                out.println("Getting All Balances");
                 try {
                     Map<String,Integer> map = finOps.getAccountBalances(ledger);
 
                     if(map == null){
-                        System.out.println("No Account Has Been Committed");
+                        out.println("No Account Has Been Committed");
                         break;
                     }
 
                     Set<String> keys = new HashSet<>(map.keySet());
 
                     for (String key : keys) {
-                        System.out.println("Account Balance for: " + key + " is " + map.get(key));
+                        out.println("Account Balance for: " + key + " is " + map.get(key));
                     }
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
                 }
             }
             case "process-transaction" -> {
@@ -88,7 +318,7 @@ public class CommandProcessor {
                 if(tokens.size() != 12)
                     throw new CommandProcessorException("process-transaction", "Missing Arguments");
 
-                System.out.println("Processing Transaction: " + tokens.get(1) + " "
+                out.println("Processing Transaction: " + tokens.get(1) + " "
                         + tokens.get(3) + " " + tokens.get(5) + " " + tokens.get(7) + " "
                         + tokens.get(9) + " " + tokens.get(11) + " ");
 
@@ -106,7 +336,44 @@ public class CommandProcessor {
                 try {
                     finOps.processTransaction(ledger, tempTransaction);
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
+                }
+            }
+            case "submit-transaction" -> {
+
+                if(tokens.size() != 12)
+                    throw new CommandProcessorException("submit-transaction", "Missing Arguments");
+
+                out.println("Submitting Transaction: " + tokens.get(1) + " "
+                        + tokens.get(3) + " " + tokens.get(5) + " " + tokens.get(7) + " "
+                        + tokens.get(9) + " " + tokens.get(11) + " ");
+
+                Block block = ledger.getUncommittedBlock();
+
+                Account payer = block.getAccount(tokens.get(9));
+                Account receiver = block.getAccount(tokens.get(11));
+
+                if(payer == null || receiver == null){
+                    throw new CommandProcessorException("submit-transaction", "Account Does Not Exist") ;
+                }
+
+                Transaction tempTransaction = new Transaction(tokens.get(1), Integer.parseInt(tokens.get(3)),
+                        Integer.parseInt(tokens.get(5)), tokens.get(7), payer, receiver);
+                try {
+                    finOps.submitTransaction(ledger, tempTransaction);
+
+                    //Enough pending to fill a block, pull the highest fees in
+                    if(ledger.getMempool().size() >= ledger.getBlockSize())
+                        produceBlock();
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
+            case "produce-block" -> {
+                try {
+                    produceBlock();
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
                 }
             }
             case "get-block" -> {
@@ -114,49 +381,276 @@ public class CommandProcessor {
                 if(tokens.size() != 2)
                     throw new CommandProcessorException("get-block", "Missing Arguments");
 
-                System.out.println("Get Block: " + tokens.get(1));
+                out.println("Get Block: " + tokens.get(1));
                 Block block = null;
                 try {
                     block = ledger.getBlock(Integer.parseInt(tokens.get(1)));
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
                     break;
                 }
 
-                System.out.println("Block Number: " + block.getBlockNumber() + " "
+                out.println("Block Number: " + block.getBlockNumber() + " "
                         + "Hash: " + block.getHash() + " " + "Previous Hash: " + block.getPreviousHash()
                 );
 
                 for(Transaction transaction: block.getTransactionList()){
-                    System.out.println(transaction.toString());
+                    out.println(transaction.toString());
                 }
 
             }
+            case "get-blocks" -> {
+
+                if(tokens.size() != 3)
+                    throw new CommandProcessorException("get-blocks", "Missing Arguments");
+
+                out.println("Get Blocks: " + tokens.get(1) + " " + tokens.get(2));
+                try {
+                    Iterator<Block> blocks = ledger.getBlockIterator(Integer.parseInt(tokens.get(1)),
+                            Integer.parseInt(tokens.get(2)));
+
+                    while (blocks.hasNext()) {
+                        Block block = blocks.next();
+                        out.println("Block Number: " + block.getBlockNumber() + " "
+                                + "Hash: " + block.getHash() + " " + "Previous Hash: " + block.getPreviousHash()
+                                + " " + "Transactions: " + block.getTransactionList().size()
+                        );
+                    }
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
+            case "export" -> {
+                //export <from> <to> file <path> [format json|csv|binary] [gzip]
+                if(tokens.size() < 5 || !tokens.get(3).equals("file"))
+                    throw new CommandProcessorException("export", "Missing Arguments");
+
+                ChainExporter.Format format = ChainExporter.Format.JSON;
+                boolean gzip = false;
+                for (int i = 5; i < tokens.size(); i++) {
+                    if (tokens.get(i).equals("format") && i + 1 < tokens.size()) {
+                        try {
+                            format = ChainExporter.Format.valueOf(tokens.get(++i).toUpperCase());
+                        } catch (IllegalArgumentException e) {
+                            throw new CommandProcessorException("export", "Unknown Format");
+                        }
+                    } else if (tokens.get(i).equals("gzip")) {
+                        gzip = true;
+                    } else {
+                        throw new CommandProcessorException("export", "Unknown Argument: " + tokens.get(i));
+                    }
+                }
+
+                out.println("Export: " + tokens.get(1) + " " + tokens.get(2) + " " + tokens.get(4));
+                try {
+                    int count = new ChainExporter(format, gzip).export(ledger, Integer.parseInt(tokens.get(1)),
+                            Integer.parseInt(tokens.get(2)), Path.of(tokens.get(4)));
+                    out.println("Exported Blocks: " + count);
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
+            case "import-blocks" -> {
+                if(tokens.size() != 3 || !tokens.get(1).equals("file"))
+                    throw new CommandProcessorException("import-blocks", "Missing Arguments");
+
+                out.println("Import Blocks: " + tokens.get(2));
+                try {
+                    int count = new BlockImporter(BlockImporter.DEFAULT_BATCH_SIZE)
+                            .importBlocks(ledger, Path.of(tokens.get(2)));
+                    out.println("Imported Blocks: " + count);
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
             case "get-transaction" -> {
                 if(tokens.size() != 2)
                     throw new CommandProcessorException("get-transaction", "Missing Arguments");
 
-                System.out.println("Get Transaction: " + tokens.get(1));
+                out.println("Get Transaction: " + tokens.get(1));
                 try {
                     Transaction transaction = finOps.getTransaction(ledger, (tokens.get(1)));
+                    if (transaction == null) {
+                        throw new LedgerException("Get Transaction", "Transaction Does Not Exist");
+                    }
 
-                    System.out.println("Transaction ID: " + transaction.getTransactionId() + " "
+                    out.println("Transaction ID: " + transaction.getTransactionId() + " "
                             + "Amount: " + transaction.getAmount() + " " + "Fee: "
                             + transaction.getFee() + " " + "Note: " + transaction.getNote() + " " + "Payer: "
                             + transaction.getPayer().getAddress() + " " + "Receiver: "
                             + transaction.getReceiver().getAddress()
                     );
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
+                }
+            }
+            case "get-transaction-proof" -> {
+                if(tokens.size() != 2)
+                    throw new CommandProcessorException("get-transaction-proof", "Missing Arguments");
+
+                out.println("Get Transaction Proof: " + tokens.get(1));
+                try {
+                    MerkleProof proof = finOps.getTransactionProof(ledger, tokens.get(1));
+
+                    out.println("Merkle Root: " + proof.getRoot());
+                    for (int i = 0; i < proof.size(); i++) {
+                        out.println("Proof Step: " + (i + 1) + " "
+                                + "Position: " + (proof.getSiblingOnLeft().get(i) ? "left" : "right") + " "
+                                + "Sibling: " + proof.getSiblings().get(i)
+                        );
+                    }
+                    out.println("Proof Verified: "
+                            + MerkleTrees.verifyProof(proof.getLeaf(), proof, proof.getRoot()));
+                } catch (LedgerException e) {
+                    reportFailure(e.getReason());
+                }
+            }
+            case "start-replication" -> {
+                if(tokens.size() != 2)
+                    throw new CommandProcessorException("start-replication", "Missing Arguments");
+
+                out.println("Starting Replication: " + ledger.getName() + " Port: " + tokens.get(1));
+                try {
+                    replicationLeader = new ReplicationLeader(ledger, Integer.parseInt(tokens.get(1)));
+                    replicationLeader.start();
+                } catch (IOException e) {
+                    reportFailure(e.getMessage());
+                }
+            }
+            case "follow-replication" -> {
+                if(tokens.size() != 2)
+                    throw new CommandProcessorException("follow-replication", "Missing Arguments");
+
+                out.println("Following Replication: " + ledger.getName() + " Port: " + tokens.get(1));
+                replicationFollower = new ReplicationFollower(ledger, Integer.parseInt(tokens.get(1)));
+                replicationFollower.start();
+            }
+            case "stop-replication" -> {
+                out.println("Stopping Replication");
+                if(replicationLeader != null)
+                    replicationLeader.stop();
+                if(replicationFollower != null)
+                    replicationFollower.stop();
+                replicationLeader = null;
+                replicationFollower = null;
+            }
+            case "set-rate-limit" -> {
+                //set-rate-limit <permits-per-second> burst <n> | set-rate-limit off
+                if(tokens.size() == 2 && tokens.get(1).equals("off")) {
+                    out.println("Set Rate Limit: off");
+                    ledger.setRateLimiter(null);
+                    break;
+                }
+                if(tokens.size() != 4 || !tokens.get(2).equals("burst"))
+                    throw new CommandProcessorException("set-rate-limit", "Missing Arguments");
+
+                out.println("Set Rate Limit: " + tokens.get(1) + " " + tokens.get(3));
+                try {
+                    ledger.setRateLimiter(new RateLimiter(Double.parseDouble(tokens.get(1)),
+                            Integer.parseInt(tokens.get(3))));
+                } catch (IllegalArgumentException e) {
+                    throw new CommandProcessorException("set-rate-limit", e.getMessage());
+                }
+            }
+            case "set-retention" -> {
+                //set-retention <blocks> archive <directory> [segment <blocks>] [compression none|deflate]
+                if(tokens.size() < 4 || tokens.size() % 2 != 0 || !tokens.get(2).equals("archive"))
+                    throw new CommandProcessorException("set-retention", "Missing Arguments");
+
+                int segmentBlocks = BlockStore.DEFAULT_SEGMENT_BLOCKS;
+                BlockStore.Compression compression = BlockStore.Compression.DEFLATE;
+                try {
+                    for (int i = 4; i < tokens.size(); i += 2) {
+                        switch (tokens.get(i)) {
+                            case "segment" -> segmentBlocks = Integer.parseInt(tokens.get(i + 1));
+                            case "compression" -> compression = BlockStore.Compression.valueOf(
+                                    tokens.get(i + 1).toUpperCase());
+                            default -> throw new CommandProcessorException("set-retention", "Missing Arguments");
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new CommandProcessorException("set-retention", e.getMessage());
+                }
+
+                out.println("Set Retention: " + tokens.get(1) + " " + tokens.get(3));
+                BlockStore blockStore = null;
+                try {
+                    int retainedBlocks = Integer.parseInt(tokens.get(1));
+                    blockStore = BlockStore.open(Path.of(tokens.get(3)), segmentBlocks, compression);
+                    ledger.setRetention(retainedBlocks, blockStore);
+                } catch (IOException e) {
+                    reportFailure("Unable to Open Block Store: " + e.getMessage());
+                } catch (LedgerException e) {
+                    //Rejected store is not attached, so its files and threads are released here
+                    closeRejectedStore(blockStore);
+                    reportFailure(e.getReason());
+                } catch (IllegalArgumentException e) {
+                    closeRejectedStore(blockStore);
+                    throw new CommandProcessorException("set-retention", e.getMessage());
+                }
+            }
+            case "set-journal" -> {
+                //set-journal file <path> [delay <micros>] [batch <bytes>] | set-journal off
+                if(tokens.size() == 2 && tokens.get(1).equals("off")) {
+                    out.println("Set Journal: off");
+                    closeJournal(ledger);
+                    break;
+                }
+                if(tokens.size() < 3 || tokens.size() % 2 != 1 || !tokens.get(1).equals("file"))
+                    throw new CommandProcessorException("set-journal", "Missing Arguments");
+
+                long maxDelayMicros = TransactionJournal.DEFAULT_MAX_DELAY_MICROS;
+                int maxBatchBytes = TransactionJournal.DEFAULT_MAX_BATCH_BYTES;
+                try {
+                    for (int i = 3; i < tokens.size(); i += 2) {
+                        switch (tokens.get(i)) {
+                            case "delay" -> maxDelayMicros = Long.parseLong(tokens.get(i + 1));
+                            case "batch" -> maxBatchBytes = Integer.parseInt(tokens.get(i + 1));
+                            default -> throw new CommandProcessorException("set-journal", "Missing Arguments");
+                        }
+                    }
+
+                    out.println("Set Journal: " + tokens.get(2));
+                    closeJournal(ledger);
+                    ledger.setTransactionJournal(
+                            TransactionJournal.open(Path.of(tokens.get(2)), maxDelayMicros, maxBatchBytes));
+                } catch (IOException e) {
+                    reportFailure("Unable to Open Journal: " + e.getMessage());
+                } catch (IllegalArgumentException e) {
+                    throw new CommandProcessorException("set-journal", e.getMessage());
+                }
+            }
+            case "profile" -> {
+                //profile start file <path> | profile stop
+                if(tokens.size() == 2 && tokens.get(1).equals("stop")) {
+                    out.println("Profile: stop");
+                    stopProfiling();
+                    break;
+                }
+                if(tokens.size() != 4 || !tokens.get(1).equals("start") || !tokens.get(2).equals("file"))
+                    throw new CommandProcessorException("profile", "Missing Arguments");
+
+                out.println("Profile: start " + tokens.get(3));
+                stopProfiling();
+                try {
+                    recording = LedgerProfiling.startRecording(Path.of(tokens.get(3)));
+                } catch (IOException e) {
+                    reportFailure("Unable to Start Profiling: " + e.getMessage());
+                }
+            }
+            case "get-metrics" -> {
+                out.println("Getting Metrics: " + ledger.getName());
+                for (Map.Entry<String,Number> metric : ledger.getMetrics().entrySet()) {
+                    out.println("Metric: " + metric.getKey() + " is " + metric.getValue());
                 }
             }
             case "validate" -> {
-                System.out.print("Validate: ");
+                out.print("Validate: ");
                 try {
                     ledger.validate();
-                    System.out.println("Valid");
+                    out.println("Valid");
                 } catch (LedgerException e) {
-                    System.out.println("Failed due to: " + e.getReason());
+                    reportFailure(e.getReason());
                 }
 
             }
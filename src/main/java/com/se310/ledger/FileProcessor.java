@@ -1,50 +1,73 @@
 package com.se310.ledger;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-// import java.util.ArrayList;
-// import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 /**
  * FileProcessor class to handle commands from a file
  *
  * @author  Joshua Vaysman
- * @version 1.0
+ * @version 1.2
  */
 
 public class FileProcessor extends CommandProcessor {
+
     /**
-     * Process File from the command line
+     * FileProcessor Constructor with its own LedgerRegistry
      */
-    public void processCommandFile(String fileName){
+    public FileProcessor() {
+        super();
+    }
 
-        // Does this do anything??
-        //List<String> tokens = new ArrayList<>();
+    /**
+     * FileProcessor Constructor sharing Ledgers with other processors
+     * @param ledgerRegistry
+     */
+    public FileProcessor(LedgerRegistry ledgerRegistry) {
+        super(ledgerRegistry);
+    }
 
-        AtomicInteger atomicInteger = new AtomicInteger(0);
+    /**
+     * Process File from the command line
+     */
+    public void processCommandFile(String fileName){
 
         //Process all the lines in the file
-        try (Stream<String> stream = Files.lines(Paths.get(fileName))) {
-            stream
-                    .forEach(line -> {
-                        try {
-                            atomicInteger.getAndIncrement();
-                            if(!line.trim().startsWith("#") && !line.trim().isEmpty()) {
-                                processCommand(line);
-                            }
-                        } catch (CommandProcessorException e) {
-                            e.setLineNumber(atomicInteger.get());
-                            System.out.println("Failed due to: " + e.getReason() + " for Command: " + e.getCommand()
-                                    + " On Line Number: " + e.getLineNumber());
-                        }
-                    });
-
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName))) {
+            processCommands(reader);
         } catch (IOException e) {
             e.printStackTrace();
         }
 
     }
+
+    /**
+     * Process commands line by line as they are read, such as from a pipe
+     * - Blank lines and lines starting with # are skipped but still counted for line numbers
+     * - A line failing with an unexpected RuntimeException, such as a malformed number, is reported
+     *   like any other failed command and processing goes on with the next line
+     * @param reader
+     * @throws IOException
+     */
+    public void processCommands(BufferedReader reader) throws IOException {
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            try {
+                if(!line.trim().startsWith("#") && !line.trim().isEmpty()) {
+                    processCommand(line);
+                }
+            } catch (CommandProcessorException e) {
+                e.setLineNumber(lineNumber);
+                reportFailure(e.getReason() + " for Command: " + e.getCommand()
+                        + " On Line Number: " + e.getLineNumber());
+            } catch (RuntimeException e) {
+                reportFailure("Unexpected Error " + e + " for Command: " + line.trim().split("\\s+")[0]
+                        + " On Line Number: " + lineNumber);
+            }
+        }
+    }
 }
@@ -1,121 +1,498 @@
 package com.se310.ledger;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.se310.ledger.LedgerProfiling.BlockSealEvent;
+import com.se310.ledger.LedgerProfiling.LockWaitEvent;
+import com.se310.ledger.LedgerProfiling.TransactionApplyEvent;
 
 /**
  * CommandProcessorException class implementation designed display errors to the user while
  * processing commands
  *
  * @author  Joshua Vaysman
- * @version 1.0
+ * @version 1.12
  */
 
 public class FinancialOps{
+
+    private final TransactionValidator validator = new TransactionValidator();
+
      /**
      * Method implementing core functionality of the Blockchain by handling given transaction
+     * - With a TransactionJournal set, returns once the Transaction is on disk
+     * - Failing with "Transaction Journal Failed" means the journal refused it and nothing was applied
+     * - Failing with "Transaction Is Not Durable" means it is applied to the Ledger and its id is taken,
+     *   but it may not be on disk, and the journal refuses every later Transaction
+     * @param ledger
      * @param transaction
      * @return String representing transaction id
      * @throws LedgerException
      */
-    public synchronized String processTransaction(Ledger ledger, Transaction transaction) throws LedgerException {
-        // BLOCK ISSUE HERE
-        //Block uncommittedBlock = ledger.getUncommittedBlock();
-        String seed = ledger.getSeed();
+    public String processTransaction(Ledger ledger, Transaction transaction) throws LedgerException {
+        //Check for transaction specification conditions and committed duplicates without the lock
+        validator.preValidate(ledger, transaction);
+        TransactionJournal journal = ledger.getTransactionJournal();
+        long sequence = applyValidated(ledger, transaction, journal);
+        //Waiting happens outside the lock, so other callers can join the same batch
+        awaitDurable(journal, sequence);
+        return transaction.getTransactionId();
+    }
 
-        //Check for transaction specification conditions
-        if(transaction.getAmount() < 0 || transaction.getAmount() > Integer.MAX_VALUE ){
-            throw new LedgerException("Process Transaction", "Transaction Amount Is Out of Range");
-        } else if (transaction.getFee() < 10) {
-            throw new LedgerException("Process Transaction", "Transaction Fee Must Be Greater Than 10");
-        } else if (transaction.getNote().length() > 1024){
-            throw new LedgerException("Process Transaction", "Note Length Must Be Less Than 1024 Chars");
-        }
+    /**
+     * Apply Transaction that already passed TransactionValidator.preValidate, without waiting for the journal
+     * - For callers that hold the Ledger lock around the apply, so the checks not needing it run before
+     * @param ledger
+     * @param transaction
+     * @param journal TransactionJournal to append the Transaction to, or Null
+     * @return journal sequence number to pass to awaitDurable once the lock is released
+     * @throws LedgerException
+     */
+    long applyValidated(Ledger ledger, Transaction transaction, TransactionJournal journal) throws LedgerException {
+        checkRateLimit(ledger, transaction);
+        return applyTransaction(ledger, transaction, journal);
+    }
 
-        if(getTransaction(ledger, transaction.getTransactionId()) != null){
-            throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
-        }
+    /**
+     * Helper method applying validated Transaction under the Ledger lock and sealing the Block when full
+     * @param ledger
+     * @param transaction
+     * @param journal TransactionJournal to append the Transaction to, or Null
+     * @return journal sequence number of the Transaction, or 0 without a journal
+     * @throws LedgerException
+     */
+    private long applyTransaction(Ledger ledger, Transaction transaction, TransactionJournal journal)
+            throws LedgerException {
+        // Each Ledger has its own lock, so independent Ledgers never contend
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        TransactionApplyEvent applyEvent = LedgerProfiling.beginTransactionApply();
+        try {
+            // BLOCK ISSUE HERE
+            //Block uncommittedBlock = ledger.getUncommittedBlock();
+
+            //Exact check only runs when the filter says the id may have been accepted
+            if(getTransaction(ledger, transaction.getTransactionId()) != null
+                    || ledger.isPreparedTransactionId(transaction.getTransactionId())){
+                throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+            }
 
-        Account tempPayerAccount = transaction.getPayer();
-        Account tempReceiverAccount = transaction.getReceiver();
+            //Accounts still shared with the committed Block are copied before they change
+            Block uncommittedBlock = ledger.getUncommittedBlock();
+            Account tempPayerAccount = uncommittedBlock.getWritableAccount(transaction.getPayer());
+            Account tempReceiverAccount = uncommittedBlock.getWritableAccount(transaction.getReceiver());
 
-        updateAccounts(tempPayerAccount, tempReceiverAccount, transaction.getFee(), transaction.getAmount());
-        // if(transaction.getPayer().getBalance() < (transaction.getAmount() + transaction.getFee()))
-        //     throw new LedgerException("Process Transaction", "Payer Does Not Have Required Funds");
+            //Journaled before anything changes, so a Transaction the journal refuses leaves the Ledger untouched,
+            //the record is only written for Transactions that cannot fail once applied
+            checkFunds(tempPayerAccount, transaction.getFee(), transaction.getAmount());
+            long sequence = journal == null ? 0 : appendToJournal(journal, transaction);
 
-        // //Deduct balance of the payer
-        // tempPayerAccount.setBalance(tempPayerAccount.getBalance()
-        //         - transaction.getAmount() - transaction.getFee());
-        // //Increase balance of the receiver
-        // tempReceiverAccount.setBalance(tempReceiverAccount.getBalance() + transaction.getAmount());
+            updateAccounts(tempPayerAccount, tempReceiverAccount, transaction.getFee(), transaction.getAmount());
+            // if(transaction.getPayer().getBalance() < (transaction.getAmount() + transaction.getFee()))
+            //     throw new LedgerException("Process Transaction", "Payer Does Not Have Required Funds");
 
-        ledger.getUncommittedBlock().getTransactionList().add(transaction);
+            // //Deduct balance of the payer
+            // tempPayerAccount.setBalance(tempPayerAccount.getBalance()
+            //         - transaction.getAmount() - transaction.getFee());
+            // //Increase balance of the receiver
+            // tempReceiverAccount.setBalance(tempReceiverAccount.getBalance() + transaction.getAmount());
 
-        //Check to see if account blocked has reached max size
-        if (ledger.getUncommittedBlock().getTransactionList().size() == 10){
+            uncommittedBlock.addTransaction(transaction);
+            ledger.getTransactionIdFilter().add(transaction.getTransactionId());
+            ledger.notifyTransactionAccepted(transaction);
 
-            List<String> tempTxList = new ArrayList<>();
-            tempTxList.add(seed);
+            //Check to see if account blocked has reached max size
+            int transactionCount = uncommittedBlock.getTransactionList().size();
+            boolean sealedBlock = sealIfFull(ledger, uncommittedBlock);
 
-            //Loop through the list of transaction to get the hash
-            for( Transaction tempTx : ledger.getUncommittedBlock().getTransactionList()){
-                tempTxList.add(tempTx.toString());
+            if (LedgerProfiling.end(applyEvent)) {
+                applyEvent.ledger = ledger.getName();
+                applyEvent.transactionId = transaction.getTransactionId();
+                applyEvent.blockNumber = uncommittedBlock.getBlockNumber();
+                applyEvent.transactionCount = transactionCount;
+                applyEvent.sealedBlock = sealedBlock;
+                applyEvent.commit();
             }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            MerkleTrees merkleTrees = new MerkleTrees(tempTxList);
-            merkleTrees.merkle_tree();
-            ledger.getUncommittedBlock().setHash(merkleTrees.getRoot());
+    /**
+     * Prepare credit side of a cross shard transfer in the receiver's Ledger
+     * - Holds the transfer id in the receiver's Ledger until the credit is committed or aborted,
+     *   the credit itself is not applied yet
+     * @param ledger receiver's Ledger
+     * @param transactionId
+     * @param receiverAddress
+     * @return receiver Account as of now, the credit is applied to the Account current at commit
+     * @throws LedgerException
+     */
+    Account prepareCredit(Ledger ledger, String transactionId, String receiverAddress) throws LedgerException {
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        try {
+            Account receiver = ledger.getUncommittedBlock().getAccount(receiverAddress);
+            if (receiver == null) {
+                throw new LedgerException("Process Transaction", "Account Does Not Exist");
+            }
+            if (getTransaction(ledger, transactionId) != null || !ledger.holdPreparedTransactionId(transactionId)) {
+                throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+            }
+            return receiver;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            //Commit uncommitted block
-            ledger.getBlockMap().put(ledger.getUncommittedBlock().getBlockNumber(), ledger.getUncommittedBlock());
+    /**
+     * Prepare debit side of a cross shard transfer in the payer's Ledger
+     * - Runs the rate limit, duplicate and funds checks processTransaction runs, then reserves amount
+     *   and fee on the payer, so they cannot be spent twice before the transfer commits
+     * - Holds the transfer id in the payer's Ledger, nothing is recorded or journaled yet
+     * @param ledger payer's Ledger
+     * @param transfer Transaction that passed TransactionValidator.preValidate, without accounts
+     * @param payerAddress
+     * @param receiver receiver Account returned by prepareCredit
+     * @return Transaction naming the payer and receiver, to pass to the commit and abort methods
+     * @throws LedgerException
+     */
+    Transaction prepareDebit(Ledger ledger, Transaction transfer, String payerAddress, Account receiver)
+            throws LedgerException {
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        try {
+            Block uncommittedBlock = ledger.getUncommittedBlock();
+            Account payer = uncommittedBlock.getWritableAccount(uncommittedBlock.getAccount(payerAddress));
+            if (payer == null) {
+                throw new LedgerException("Process Transaction", "Account Does Not Exist");
+            }
+            Transaction debit = new Transaction(transfer.getTransactionId(), transfer.getAmount(), transfer.getFee(),
+                    transfer.getNote(), payer, receiver);
+            checkRateLimit(ledger, debit);
+            if (getTransaction(ledger, debit.getTransactionId()) != null
+                    || ledger.isPreparedTransactionId(debit.getTransactionId())) {
+                throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+            }
+            checkFunds(payer, debit.getFee(), debit.getAmount());
+            payer.reserve(debit.getAmount() + debit.getFee());
+            ledger.holdPreparedTransactionId(debit.getTransactionId());
+            return debit;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            //Get committed block
-            Block committedBlock = ledger.getBlockMap().lastEntry().getValue();
-            Map<String,Account> accountMap = committedBlock.getAccountBalanceMap();
+    /**
+     * Commit debit side of a prepared cross shard transfer in the payer's Ledger
+     * - Journal append is the only step that can refuse the commit, it runs before anything changes,
+     *   the reservation is then turned into the debit and the Transaction is recorded with its fee
+     * - Does not wait for the journal, pass the sequence number to awaitDurable once no lock is held
+     * @param ledger payer's Ledger
+     * @param debit Transaction returned by prepareDebit
+     * @param journal TransactionJournal to append the Transaction to, or Null
+     * @return journal sequence number of the Transaction, or 0 without a journal
+     * @throws LedgerException if the journal refused the Transaction, the transfer is still prepared
+     */
+    long commitDebit(Ledger ledger, Transaction debit, TransactionJournal journal) throws LedgerException {
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        try {
+            long sequence = journal == null ? 0 : appendToJournal(journal, debit);
 
-            //Get all the accounts
-            List<Account> accountList = new ArrayList<Account>(accountMap.values());
+            //Blocks sealed since the transfer was prepared share the payer carrying the reservation,
+            //it is copied into the uncommitted Block before it changes
+            Block uncommittedBlock = ledger.getUncommittedBlock();
+            Account payer = uncommittedBlock.getWritableAccount(
+                    uncommittedBlock.getAccount(debit.getPayer().getAddress()));
+            int total = debit.getAmount() + debit.getFee();
+            payer.release(total);
+            payer.setBalance(payer.getBalance() - total);
+            Transaction recorded = payer == debit.getPayer() ? debit : new Transaction(debit.getTransactionId(),
+                    debit.getAmount(), debit.getFee(), debit.getNote(), payer, debit.getReceiver());
+            ledger.releasePreparedTransactionId(debit.getTransactionId());
 
-            //Create next block
-            Block uncommittedBlock = new Block(ledger.getUncommittedBlock().getBlockNumber() + 1,
-                    committedBlock.getHash());
+            uncommittedBlock.addTransaction(recorded);
+            ledger.getTransactionIdFilter().add(recorded.getTransactionId());
+            ledger.notifyTransactionAccepted(recorded);
+            sealIfFull(ledger, uncommittedBlock);
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            //Replicate accounts
-            for (Account account : accountList) {
-                Account tempAccount = (Account) account.clone();
-                uncommittedBlock.addAccount(tempAccount.getAddress(), tempAccount);
+    /**
+     * Abort debit side of a prepared cross shard transfer, releasing the reservation and the id
+     * @param ledger payer's Ledger
+     * @param debit Transaction returned by prepareDebit
+     */
+    void abortDebit(Ledger ledger, Transaction debit) {
+        ReentrantLock lock = ledger.getLock();
+        lock.lock();
+        try {
+            if (ledger.isPreparedTransactionId(debit.getTransactionId())) {
+                Block uncommittedBlock = ledger.getUncommittedBlock();
+                uncommittedBlock.getWritableAccount(uncommittedBlock.getAccount(debit.getPayer().getAddress()))
+                        .release(debit.getAmount() + debit.getFee());
+                ledger.releasePreparedTransactionId(debit.getTransactionId());
             }
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            //Link to previous block
-            uncommittedBlock.setPreviousBlock(committedBlock);
+    /**
+     * Commit credit side of a cross shard transfer whose debit has been committed
+     * - Credits the receiver and records a credit entry with the id of the transfer and no fee, so the
+     *   credit is part of the receiver's Blocks and their Merkle roots, the fee is recorded with the payer
+     * - Entry is recorded before the Block is sealed, so the credit stands even if sealing fails
+     * - Credit entries are not journaled
+     * @param ledger receiver's Ledger
+     * @param debit Transaction committed by commitDebit
+     * @throws LedgerException
+     */
+    void commitCredit(Ledger ledger, Transaction debit) throws LedgerException {
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        try {
+            Block uncommittedBlock = ledger.getUncommittedBlock();
+            Account receiver = uncommittedBlock.getWritableAccount(
+                    uncommittedBlock.getAccount(debit.getReceiver().getAddress()));
+            receiver.credit(debit.getAmount());
+            Transaction credit = new Transaction(debit.getTransactionId(), debit.getAmount(), 0, debit.getNote(),
+                    debit.getPayer(), receiver);
+            ledger.releasePreparedTransactionId(credit.getTransactionId());
+
+            uncommittedBlock.addTransaction(credit);
+            ledger.getTransactionIdFilter().add(credit.getTransactionId());
+            ledger.notifyTransactionAccepted(credit);
+            sealIfFull(ledger, uncommittedBlock);
+        } finally {
+            lock.unlock();
         }
+    }
 
-        return transaction.getTransactionId();
+    /**
+     * Abort credit side of a prepared cross shard transfer, releasing the id
+     * @param ledger receiver's Ledger
+     * @param transactionId
+     */
+    void abortCredit(Ledger ledger, String transactionId) {
+        ReentrantLock lock = ledger.getLock();
+        lock.lock();
+        try {
+            ledger.releasePreparedTransactionId(transactionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method sealing and committing the uncommitted Block once it holds a Block's worth of Transactions
+     * - Caller holds the Ledger lock
+     * @param ledger
+     * @param uncommittedBlock
+     * @return true if the Block was sealed
+     * @throws LedgerException
+     */
+    private boolean sealIfFull(Ledger ledger, Block uncommittedBlock) throws LedgerException {
+        if (uncommittedBlock.getTransactionList().size() < uncommittedBlock.getBlockSize()) {
+            return false;
+        }
+        BlockSealEvent sealEvent = LedgerProfiling.beginBlockSeal();
+        long merkleStart = sealEvent == null ? 0 : System.nanoTime();
+
+        //Leaves were hashed as they were added, only the right edge of the tree is left,
+        //the levels above the leaves are cached as packed digests so proofs do not hash again
+        IncrementalMerkleBuilder merkleBuilder = uncommittedBlock.getMerkleBuilder();
+        if (merkleBuilder != null) {
+            MerkleLevels levels = merkleBuilder.buildLevels();
+            uncommittedBlock.setHash(levels.getRoot());
+            ledger.cacheMerkleLevels(uncommittedBlock.getBlockNumber(), levels);
+        } else {
+            uncommittedBlock.setHash(ledger.buildMerkleTree(uncommittedBlock).getRoot());
+        }
+        uncommittedBlock.setMerkleBuilder(null);
+        if (sealEvent != null) {
+            sealEvent.merkleDuration = System.nanoTime() - merkleStart;
+        }
+
+        //Commit uncommitted block and start the next one
+        ledger.commitBlock(uncommittedBlock, sealEvent);
+        return true;
+    }
+
+    /**
+     * Helper method acquiring the Ledger lock, recording how long a contended acquisition waited
+     * - Uncontended acquisitions take the lock without creating an event
+     * @param ledger
+     * @param lock
+     */
+    private void lockLedger(Ledger ledger, ReentrantLock lock) {
+        if (lock.tryLock()) {
+            return;
+        }
+        LockWaitEvent waitEvent = LedgerProfiling.beginLockWait();
+        int queueLength = waitEvent != null && waitEvent.isEnabled() ? lock.getQueueLength() : 0;
+        lock.lock();
+        if (LedgerProfiling.end(waitEvent)) {
+            waitEvent.ledger = ledger.getName();
+            waitEvent.blockNumber = ledger.getUncommittedBlock().getBlockNumber();
+            waitEvent.queueLength = queueLength;
+            waitEvent.commit();
+        }
+    }
+
+    /**
+     * Helper method buffering accepted Transaction in the journal
+     * - Fails atomically with the journal's own check once a batch was lost or the journal is closed
+     * @param journal
+     * @param transaction
+     * @return journal sequence number of the Transaction
+     * @throws LedgerException
+     */
+    private long appendToJournal(TransactionJournal journal, Transaction transaction) throws LedgerException {
+        try {
+            return journal.append(transaction);
+        } catch (IOException e) {
+            throw new LedgerException("Process Transaction", "Transaction Journal Failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Wait until journaled Transactions are on disk
+     * @param journal TransactionJournal or Null
+     * @param sequence last journal sequence number to wait for, or 0 if nothing was journaled
+     * @throws LedgerException
+     */
+    void awaitDurable(TransactionJournal journal, long sequence) throws LedgerException {
+        if (journal == null || sequence == 0) {
+            return;
+        }
+        try {
+            journal.awaitDurable(sequence);
+        } catch (IOException e) {
+            throw new LedgerException("Process Transaction", "Transaction Is Not Durable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add Transaction to the Ledger's Mempool to be applied when the next Block is produced
+     * @param ledger
+     * @param transaction
+     * @throws LedgerException if the Transaction is invalid, already pending or applied, or the Mempool is full
+     */
+    public void submitTransaction(Ledger ledger, Transaction transaction) throws LedgerException {
+        validator.preValidate(ledger, transaction);
+        //Ids already applied to the uncommitted Block are rejected too, not only pending ones
+        if (getTransaction(ledger, transaction.getTransactionId()) != null) {
+            throw new LedgerException("Submit Transaction", "Transaction Id Must Be Unique");
+        }
+        checkRateLimit(ledger, transaction);
+        //Mempool accepts the Transaction only once it is admitted, so a rejected one stays editable
+        ledger.getMempool().submit(transaction);
+    }
+
+    /**
+     * Pull highest fee Transactions from the Mempool into the uncommitted Block
+     * - Pulls until the Block is full and sealed or the Mempool is empty, so rejected Transactions
+     *   do not leave the Block short
+     * - A Block that is already full is sealed before pulling
+     * - Accounts are resolved again, since Blocks may have been sealed since submission
+     * @param ledger
+     * @return Map of rejected transaction ids to the reason, in the order they were pulled
+     */
+    public Map<String,String> produceBlock(Ledger ledger) throws LedgerException {
+        Map<String,String> rejected = new LinkedHashMap<>();
+        TransactionJournal journal = ledger.getTransactionJournal();
+        long sequence = 0;
+
+        ReentrantLock lock = ledger.getLock();
+        lockLedger(ledger, lock);
+        try {
+            Block producedBlock = ledger.getUncommittedBlock();
+            if (sealIfFull(ledger, producedBlock)) {
+                producedBlock = ledger.getUncommittedBlock();
+            }
+            Mempool mempool = ledger.getMempool();
+            while (ledger.getUncommittedBlock() == producedBlock && mempool.size() > 0) {
+                int room = Math.max(0, producedBlock.getBlockSize() - producedBlock.getTransactionList().size());
+                for (Transaction pending : mempool.drain(room)) {
+                    Block block = ledger.getUncommittedBlock();
+                    Account payer = block.getAccount(pending.getPayer().getAddress());
+                    Account receiver = block.getAccount(pending.getReceiver().getAddress());
+                    try {
+                        if (payer == null || receiver == null) {
+                            throw new LedgerException("Produce Block", "Account Does Not Exist");
+                        }
+                        //Checked and rate limited when it was submitted
+                        sequence = Math.max(sequence, applyTransaction(ledger, new Transaction(
+                                pending.getTransactionId(), pending.getAmount(), pending.getFee(), pending.getNote(),
+                                payer, receiver), journal));
+                    } catch (LedgerException e) {
+                        rejected.put(pending.getTransactionId(), e.getReason());
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        awaitDurable(journal, sequence);
+        return rejected;
     }
 
      /**
      * Helper method for updating accounts when processing transaction
      * - Maintains SRP for process Transaction method
      * - The above should just handle transaction processing logic not the account updates
+     * - Caller must hold the lock of the Ledger the accounts belong to, hot receivers only need the payer's
      * @param payer
      * @param receiver
      * @param fee
      * @param amount
      * @throws LedgerException
      */
-    public synchronized void updateAccounts (Account payer, Account receiver, Integer fee, Integer amount) throws LedgerException {
-         if(payer.getBalance() < (amount + fee))
-            throw new LedgerException("Process Transaction", "Payer Does Not Have Required Funds");
+    public void updateAccounts (Account payer, Account receiver, int fee, int amount) throws LedgerException {
+        checkFunds(payer, fee, amount);
 
         //Deduct balance of the payer
         payer.setBalance(payer.getBalance()
                 - amount - fee);
-        //Increase balance of the receiver
-        receiver.setBalance(receiver.getBalance() + amount);
+        //Increase balance of the receiver, accumulated until the Block is sealed if the receiver is hot
+        receiver.credit(amount);
+    }
+
+    /**
+     * Helper method turning payer away when it cannot cover the amount and fee
+     * @param payer
+     * @param fee
+     * @param amount
+     * @throws LedgerException
+     */
+    private static void checkFunds(Account payer, int fee, int amount) throws LedgerException {
+        //Credits to a hot payer that are not merged yet count towards its funds
+        if(payer.getAvailableBalance() < (amount + fee))
+            throw new LedgerException("Process Transaction", "Payer Does Not Have Required Funds");
+    }
+
+    /**
+     * Helper method turning payer away when it has used up its rate limit
+     * - Permit is spent before the funds and duplicate checks, so rejected Transactions are charged too
+     * @param ledger
+     * @param transaction
+     * @throws LedgerException
+     */
+    private void checkRateLimit(Ledger ledger, Transaction transaction) throws LedgerException {
+        RateLimiter rateLimiter = ledger.getRateLimiter();
+        if (rateLimiter != null && !rateLimiter.tryAcquire(transaction.getPayer().getAddress())) {
+            throw new LedgerException("Process Transaction", "Payer Rate Limit Exceeded");
+        }
     }
 
     /**
@@ -126,22 +503,14 @@ public class FinancialOps{
         if (ledger == null){
             throw new LedgerException("Get Account Balances", "Ledger is Null");
         }
-        NavigableMap <Integer,Block> blockMap = ledger.getBlockMap();
-        
-        if(blockMap.isEmpty())
-            return null;
-
-        Block committedBlock = blockMap.lastEntry().getValue();
-        Map<String,Account> accountMap = committedBlock.getAccountBalanceMap();
 
-        Map<String, Integer> balances = new HashMap<>();
-        List<Account> accountList = new ArrayList<>(accountMap.values());
+        // Immutable view of the latest committed Block, safe to read while transactions are processed
+        LedgerSnapshot snapshot = ledger.getSnapshot();
 
-        for (Account account : accountList) {
-            balances.put(account.getAddress(), account.getBalance());
-        }
+        if(snapshot.getNumberOfBlocks() == 0)
+            return null;
 
-        return balances;
+        return snapshot.getBalances();
     }
 
      /**
@@ -154,22 +523,59 @@ public class FinancialOps{
             throw new LedgerException("Get Transaction", "Ledger is Null");
         }
 
-        for (Entry mapElement : ledger.getBlockMap().entrySet()) {
+        // Ids that were never accepted are answered without touching any Block
+        if (!ledger.getTransactionIdFilter().mightContain(transactionId)){
+            return null;
+        }
 
-            // Finding specific transactions in the committed blocks
-            Block tempBlock = (Block) mapElement.getValue();
-            for (Transaction transaction : tempBlock.getTransactionList()){
+        // Committed transactions are found through the id index of the latest snapshot
+        Transaction committed = ledger.getSnapshot().findTransaction(transactionId);
+        if (committed != null) {
+            return committed;
+        }
+        // Finding specific transactions in the uncommitted block, which is still being written
+        ReentrantLock lock = ledger.getLock();
+        lock.lock();
+        try {
+            for (Transaction transaction : ledger.getUncommittedBlock().getTransactionList()){
                 if(transaction.getTransactionId().equals(transactionId)){
                     return transaction;
                 }
             }
+        } finally {
+            lock.unlock();
         }
-        // Finding specific transactions in the uncommitted block
-        for (Transaction transaction : ledger.getUncommittedBlock().getTransactionList()){
-            if(transaction.getTransactionId().equals(transactionId)){
-                return transaction;
+        return null;
+    }
+
+    /**
+     * Get Merkle inclusion proof for a committed Transaction
+     * - Reads one sibling per level from the Block's cached levels, no hashing unless the Block
+     *   has left the cache, then its tree is hashed again once
+     * @param transactionId
+     * @return MerkleProof leading from the Transaction to its Block hash
+     * @throws LedgerException
+     */
+    public MerkleProof getTransactionProof(Ledger ledger, String transactionId) throws LedgerException {
+        if (ledger == null){
+            throw new LedgerException("Get Transaction Proof", "Ledger is Null");
+        }
+
+        Block block = ledger.getSnapshot().findBlock(transactionId);
+        if (block != null) {
+            List<Transaction> transactionList = block.getTransactionList();
+            for (int i = 0; i < transactionList.size(); i++) {
+                if (transactionList.get(i).getTransactionId().equals(transactionId)) {
+                    // Leaf zero is the seed and transactions follow in block order
+                    return ledger.getMerkleLevels(block).getProof(i + 1,
+                            leaf -> leaf == 0 ? ledger.getSeed() : transactionList.get(leaf - 1).toString());
+                }
             }
         }
-        return null;
+
+        if (getTransaction(ledger, transactionId) != null) {
+            throw new LedgerException("Get Transaction Proof", "Transaction Is Not Committed to a Block");
+        }
+        throw new LedgerException("Get Transaction Proof", "Transaction Does Not Exist");
     }
 }
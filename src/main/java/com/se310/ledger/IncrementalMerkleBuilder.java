@@ -0,0 +1,201 @@
+package com.se310.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * IncrementalMerkleBuilder class implementation hashing the MerkleTree as leaves arrive.
+ * Every time two nodes of a level are complete their parent is hashed right away, so when the
+ * block fills only the unpaired nodes on the right edge are left, one per level.
+ * Produces the same root as MerkleTrees, including hashing an unpaired node with an empty string.
+ * Trees expected to reach MerkleTrees.PARALLEL_THRESHOLD leaves keep their leaves unhashed instead, and
+ * each wide level is combined across cores when the tree is built, so the thread adding leaves does
+ * not hash them one at a time.
+ * The level buffers are cleared rather than dropped on reset, so one builder serves every Block
+ *
+ * @author  Joshua Vaysman
+ * @version 1.3
+ */
+public class IncrementalMerkleBuilder {
+
+    private final List<List<String>> levels = new ArrayList<>();
+    private MerkleTrees merkleTrees;
+    private boolean finished;
+    // Leaves are hashed level by level in parallel when the tree is built
+    private boolean deferred;
+
+    /**
+     * IncrementalMerkleBuilder Constructor
+     * @param seed first leaf of the tree
+     */
+    public IncrementalMerkleBuilder(String seed) {
+        addNode(0, seed);
+    }
+
+    /**
+     * IncrementalMerkleBuilder Constructor for a tree of known size
+     * @param seed first leaf of the tree
+     * @param expectedLeaves number of leaves the tree is expected to reach, seed included
+     */
+    public IncrementalMerkleBuilder(String seed, int expectedLeaves) {
+        deferred = isWide(expectedLeaves);
+        addNode(0, seed);
+    }
+
+    /**
+     * Start a new tree from the seed, keeping the capacity of the level buffers
+     * @param seed first leaf of the tree
+     */
+    public void reset(String seed) {
+        reset(seed, 0);
+    }
+
+    /**
+     * Start a new tree of known size from the seed, keeping the capacity of the level buffers
+     * @param seed first leaf of the tree
+     * @param expectedLeaves number of leaves the tree is expected to reach, seed included
+     */
+    public void reset(String seed, int expectedLeaves) {
+        for (List<String> nodes : levels) {
+            nodes.clear();
+        }
+        merkleTrees = null;
+        finished = false;
+        deferred = isWide(expectedLeaves);
+        addLeaf(seed);
+    }
+
+    /**
+     * Add next leaf, hashing any parents it completes
+     * @param leaf
+     */
+    public void addLeaf(String leaf) {
+        if (finished) {
+            throw new IllegalStateException("MerkleTree Has Already Been Built");
+        }
+        addNode(0, leaf);
+    }
+
+    /**
+     * Get number of leaves added so far
+     * @return
+     */
+    public int getLeafCount() {
+        return levels.get(0).size();
+    }
+
+    /**
+     * Finish the right edge of the tree and return its root
+     * - Costs one hash per level, everything else was hashed as leaves were added
+     * - Deferred trees hash every level here instead, wide levels across cores
+     * - Nothing is copied, so sealing a Block keeps no leaves or levels alive
+     * @return String representing Merkle Root
+     */
+    public String buildRoot() {
+        finish();
+        return levels.get(getHeight() - 1).get(0);
+    }
+
+    /**
+     * Finish the right edge of the tree and pack the levels above the leaves
+     * - Costs one hash per level like buildRoot, the packed digests are all that outlive the buffers
+     * @return MerkleLevels with the root, for serving proofs without hashing
+     */
+    MerkleLevels buildLevels() {
+        finish();
+        return MerkleLevels.pack(levels.subList(0, getHeight()));
+    }
+
+    /**
+     * Finish the right edge of the tree
+     * - Levels are copied into compact immutable lists so the buffers can be reset afterwards
+     * @return MerkleTrees with the root and all levels available for proofs
+     */
+    public MerkleTrees build() {
+        if (merkleTrees == null) {
+            finish();
+            List<List<String>> sealedLevels = new ArrayList<>(getHeight());
+            for (int level = 0; level < getHeight(); level++) {
+                sealedLevels.add(List.copyOf(levels.get(level)));
+            }
+            merkleTrees = MerkleTrees.fromLevels(sealedLevels);
+        }
+        return merkleTrees;
+    }
+
+    /**
+     * Helper method hashing each unpaired node on the right edge with an empty string, once per tree
+     */
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        if (deferred) {
+            combineLevels();
+            finished = true;
+            return;
+        }
+        for (int level = 0; level < getHeight(); level++) {
+            List<String> nodes = levels.get(level);
+            if (level > 0 && level == getHeight() - 1 && nodes.size() == 1) {
+                break;
+            }
+            if (nodes.size() % 2 == 1) {
+                addNode(level + 1, MerkleTrees.sha2Hex(nodes.get(nodes.size() - 1) + ""));
+            }
+        }
+        finished = true;
+    }
+
+    /**
+     * Helper method hashing every level above the leaves, a lone seed is still hashed with an empty string
+     */
+    private void combineLevels() {
+        List<String> nodes = levels.get(0);
+        for (int level = 1; level == 1 || nodes.size() > 1; level++) {
+            if (levels.size() == level) {
+                levels.add(new ArrayList<>());
+            }
+            List<String> parents = levels.get(level);
+            parents.addAll(MerkleTrees.combineLevel(nodes));
+            nodes = parents;
+        }
+    }
+
+    /**
+     * Helper method checking whether a tree is wide enough for its levels to be hashed in parallel
+     * @param expectedLeaves
+     * @return
+     */
+    private static boolean isWide(int expectedLeaves) {
+        return expectedLeaves >= MerkleTrees.PARALLEL_THRESHOLD;
+    }
+
+    /**
+     * Helper method counting levels in use, buffers left over from a taller tree stay empty after reset
+     * @return
+     */
+    private int getHeight() {
+        int height = 0;
+        while (height < levels.size() && !levels.get(height).isEmpty()) {
+            height++;
+        }
+        return height;
+    }
+
+    /**
+     * Helper method appending node to a level and hashing the parent when a pair completes
+     * @param level
+     * @param node
+     */
+    private void addNode(int level, String node) {
+        if (levels.size() == level) {
+            levels.add(new ArrayList<>());
+        }
+        List<String> nodes = levels.get(level);
+        nodes.add(node);
+        if (nodes.size() % 2 == 0 && !deferred) {
+            addNode(level + 1, MerkleTrees.sha2Hex(nodes.get(nodes.size() - 2) + nodes.get(nodes.size() - 1)));
+        }
+    }
+}
@@ -1,57 +1,99 @@
 package com.se310.ledger;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.se310.ledger.LedgerProfiling.BlockSealEvent;
+import com.se310.ledger.LedgerProfiling.ValidateEvent;
 
 /**
  * Ledger Class representing simple implementation of Blockchain
  *
  * @author  Sergey L. Sundukovskiy -> Joshua Vaysman
- * @version 1.3
+ * @version 1.20
  */
 public class Ledger {
+    public static final int DEFAULT_BLOCK_SIZE = 10;
+    // Hot account detection is off unless a share is set, see setHotAccountShare
+    public static final double DEFAULT_HOT_ACCOUNT_SHARE = Double.POSITIVE_INFINITY;
+    public static final int DEFAULT_PROOF_CACHE_BLOCKS = 64;
+
     private String name;
     private String description;
     private String seed;
-    private static NavigableMap <Integer,Block> blockMap;
-    private static Block uncommittedBlock;
-
-    private static Ledger ledger;
-
-    // Initialize genesis block and the account list
-    static {
-        blockMap = new TreeMap<>();
-        uncommittedBlock = new Block(1, "");
-        uncommittedBlock.addAccount("master", new Account("master", Integer.MAX_VALUE));
-    }
-
-    /**
-     * Create singleton of the Ledger
-     * @param name
-     * @param description
-     * @param seed
-     * @return
-     */
-    public static synchronized Ledger getInstance(String name, String description, String seed) {
-        if (ledger == null) {
-            ledger = new Ledger(name, description, seed);
+    private NavigableMap <Integer,Block> blockMap;
+    private volatile LedgerSnapshot snapshot;
+    private Block uncommittedBlock;
+    private IncrementalMerkleBuilder merkleBuilder;
+    private Map<String,BalanceHistory> balanceHistoryMap;
+    // Committed transaction ids to their Block number, so lookups and proofs never scan the chain
+    private Map<String,Integer> transactionBlockNumbers;
+    // Ids of cross shard transfers prepared in this Ledger and not committed or aborted yet
+    private Set<String> preparedTransactionIds;
+    private volatile int blockSize = DEFAULT_BLOCK_SIZE;
+    private Mempool mempool = new Mempool(Mempool.DEFAULT_CAPACITY);
+    private volatile ScalableBloomFilter transactionIdFilter;
+    private double transactionIdFalsePositiveRate = ScalableBloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+    private double hotAccountShare = DEFAULT_HOT_ACCOUNT_SHARE;
+    private Map<String,Account> hotAccounts;
+    private volatile RateLimiter rateLimiter;
+    private volatile TransactionJournal transactionJournal;
+    private volatile BlockStore blockStore;
+    private int retainedBlocks = Integer.MAX_VALUE;
+    // Updated under the lock, read by getMetrics without it
+    private volatile int storedBlockNumber;
+    private volatile int archivedBlockNumber;
+    private volatile long storeFailures;
+    private boolean storeScheduled;
+    // Replaced stores still holding archived Blocks, closed once the new store holds those Blocks too
+    private final List<BlockStore> retiredStores = new ArrayList<>();
+    // Appends to the BlockStore run on this thread, so commits never wait for the disk
+    private final ThreadPoolExecutor storeWriter = newStoreWriter();
+    // Interior Merkle levels of the most recently sealed or proven Blocks, so proofs do not hash,
+    // guarded by its own monitor since proofs are served without the Ledger lock
+    private final Map<Integer,MerkleLevels> merkleLevelCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer,MerkleLevels> eldest) {
+            return size() > DEFAULT_PROOF_CACHE_BLOCKS;
         }
-        return ledger;
-    }
+    };
+
+    // Guards the uncommitted block and the commit point of this Ledger only
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<LedgerListener> listeners = new CopyOnWriteArrayList<>();
 
     /**
-     * Private Ledger Constructor
+     * Ledger Constructor
+     * - Each Ledger owns its own blocks, accounts and lock, use LedgerRegistry to share them by name
      * @param name
      * @param description
      * @param seed
      */
-    private Ledger(String name, String description, String seed) {
+    public Ledger(String name, String description, String seed) {
         this.name = name;
         this.description = description;
         this.seed = seed;
+        initialize();
     }
 
     /**
@@ -86,6 +128,319 @@ public class Ledger {
         this.description = description;
     }
 
+    /**
+     * Getter Method for the number of Transactions sealed into each Block
+     * @return int
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Setter Method for the number of Transactions sealed into each Block
+     * - Takes effect for the Block currently being filled, unless it already holds that many
+     *   Transactions, which then keeps its size and the new one applies from the next Block
+     * @param blockSize
+     */
+    public void setBlockSize(int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("Block Size Must Be Positive");
+        }
+        lock.lock();
+        try {
+            this.blockSize = blockSize;
+            if (uncommittedBlock.getTransactionList().size() < blockSize) {
+                uncommittedBlock.setBlockSize(blockSize);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Getter Method for the pool of Transactions waiting to be pulled into a Block
+     * @return Mempool
+     */
+    public Mempool getMempool() {
+        return mempool;
+    }
+
+    /**
+     * Setter Method for the pool of Transactions waiting to be pulled into a Block
+     * @param mempool
+     */
+    public void setMempool(Mempool mempool) {
+        this.mempool = mempool;
+    }
+
+    /**
+     * Getter Method for the share of a Block's Transactions crediting one account that makes it hot
+     * @return
+     */
+    public double getHotAccountShare() {
+        return hotAccountShare;
+    }
+
+    /**
+     * Setter Method for the share of a Block's Transactions crediting one account that makes it hot
+     * - Credits to hot accounts are accumulated and merged when the Block is sealed
+     * - Off by default: Transactions and cross shard credits are applied under the receiver's Ledger lock,
+     *   so accumulating only shortens anything for callers crediting a hot account without that lock
+     * - Share above 1 turns hot account detection off, accounts already hot stay hot
+     * @param hotAccountShare
+     */
+    public void setHotAccountShare(double hotAccountShare) {
+        if (hotAccountShare <= 0) {
+            throw new IllegalArgumentException("Hot Account Share Must Be Positive");
+        }
+        this.hotAccountShare = hotAccountShare;
+    }
+
+    /**
+     * Get hot account by address
+     * - Safe without the lock, credits to the returned Account reach every later copy of it
+     * @param address
+     * @return Account or Null if the account is not hot
+     */
+    public Account getHotAccount(String address) {
+        return hotAccounts.get(address);
+    }
+
+    /**
+     * Getter Method for the limiter applied to payers before their Transactions are processed
+     * @return RateLimiter or Null if payers are not limited
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * Setter Method for the limiter applied to payers before their Transactions are processed
+     * @param rateLimiter RateLimiter or Null to stop limiting payers
+     */
+    public void setRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Getter Method for the journal accepted Transactions are made durable in
+     * @return TransactionJournal or Null if Transactions are only kept in memory
+     */
+    public TransactionJournal getTransactionJournal() {
+        return transactionJournal;
+    }
+
+    /**
+     * Setter Method for the journal accepted Transactions are made durable in
+     * - processTransaction returns once the Transaction is on disk, syncs are shared by concurrent callers
+     * @param transactionJournal TransactionJournal or Null to stop journaling
+     */
+    public void setTransactionJournal(TransactionJournal transactionJournal) {
+        this.transactionJournal = transactionJournal;
+    }
+
+    /**
+     * Getter Method for the store committed Blocks are persisted to
+     * @return BlockStore or Null if Blocks are only kept in memory
+     */
+    public BlockStore getBlockStore() {
+        return blockStore;
+    }
+
+    /**
+     * Getter Method for the number of latest Blocks kept in memory when a BlockStore is set
+     * @return
+     */
+    public int getRetainedBlocks() {
+        return retainedBlocks;
+    }
+
+    /**
+     * Persist committed Blocks to the store and archive those older than the latest retained ones
+     * - Blocks stored by an earlier run beyond the latest Block are installed, restoring the chain
+     * - Blocks not stored yet are appended, and every Block committed from now on is appended as well,
+     *   both by the store writer thread after the commit, see awaitBlockStore
+     * - Archived Blocks keep their headers in memory and load their bodies from the store on access
+     * - A store that does not match the Ledger is rejected, leaving the current store in place
+     * - A replaced store is closed once the new one holds its archived Blocks, without a new store
+     *   archived Blocks are loaded back into memory and the store is closed
+     * @param retainedBlocks number of latest Blocks kept in memory
+     * @param blockStore store to persist Blocks to, or Null to stop persisting
+     * @throws LedgerException
+     */
+    public void setRetention(int retainedBlocks, BlockStore blockStore) throws LedgerException {
+        if (retainedBlocks < 1) {
+            throw new IllegalArgumentException("Retained Blocks Must Be Positive");
+        }
+        lock.lock();
+        try {
+            int latest = snapshot.getBlockNumber();
+            int stored = blockStore == null ? 0 : blockStore.getLastBlockNumber();
+            if (stored > 0 && (blockStore.getFirstBlockNumber() != 1 || (stored <= latest
+                    && !blockStore.loadBlock(stored).getHash().equals(blockMap.get(stored).getHash())))) {
+                throw new LedgerException("Set Retention", "Block Store Does Not Match Ledger");
+            }
+            if (stored > latest && !uncommittedBlock.getTransactionList().isEmpty()) {
+                throw new LedgerException("Set Retention", "Ledger Has Uncommitted Transactions");
+            }
+
+            this.retainedBlocks = retainedBlocks;
+            BlockStore previous = this.blockStore;
+            if (previous != null && previous != blockStore) {
+                if (blockStore == null) {
+                    for (int blockNumber = 1; blockNumber <= archivedBlockNumber; blockNumber++) {
+                        blockMap.get(blockNumber).restore();
+                    }
+                    archivedBlockNumber = 0;
+                    retiredStores.add(previous);
+                    closeStores(new ArrayList<>(retiredStores));
+                    retiredStores.clear();
+                } else {
+                    retiredStores.add(previous);
+                }
+            }
+            this.blockStore = blockStore;
+            if (blockStore == null) {
+                return;
+            }
+
+            storedBlockNumber = Math.min(stored, latest);
+            if (stored > latest) {
+                storedBlockNumber = stored;
+                for (int blockNumber = latest + 1; blockNumber <= stored; blockNumber++) {
+                    try {
+                        installBlock(blockStore.readBlock(blockNumber));
+                    } catch (IOException e) {
+                        throw new LedgerException("Set Retention", "Unable to Read Block Store: " + e.getMessage());
+                    }
+                }
+            }
+            moveArchivedBlocks(blockStore);
+            storeBlocks();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Detach the BlockStore once the Blocks committed so far are written, and close it
+     * - Meant for shutdown, archived Blocks are not loaded back, so their bodies can no longer be read
+     * @throws LedgerException if the store could not be closed
+     */
+    public void closeBlockStore() throws LedgerException {
+        awaitBlockStore();
+        List<BlockStore> stores;
+        lock.lock();
+        try {
+            stores = new ArrayList<>(retiredStores);
+            if (blockStore != null) {
+                stores.add(blockStore);
+            }
+            retiredStores.clear();
+            blockStore = null;
+        } finally {
+            lock.unlock();
+        }
+        // Write that started before the store was detached finishes before it is closed
+        awaitBlockStore();
+
+        IOException failure = null;
+        for (BlockStore store : stores) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw new LedgerException("Close Block Store", failure.getMessage());
+        }
+    }
+
+    /**
+     * Getter Method for the filter of transaction ids accepted by this Ledger
+     * - Used to skip the exact duplicate check for ids that were never seen
+     * @return ScalableBloomFilter
+     */
+    public ScalableBloomFilter getTransactionIdFilter() {
+        return transactionIdFilter;
+    }
+
+    /**
+     * Setter Method for the false positive rate of the transaction id filter
+     * - Filter is rebuilt from the Blocks at the new rate
+     * @param falsePositiveRate
+     */
+    public void setTransactionIdFalsePositiveRate(double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("False Positive Rate Must Be Between 0 and 1");
+        }
+        lock.lock();
+        try {
+            this.transactionIdFalsePositiveRate = falsePositiveRate;
+            rebuildTransactionIdFilter();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuild the transaction id filter from the committed and uncommitted Blocks
+     * - Used after Blocks are loaded into the Ledger outside of processTransaction
+     */
+    public void rebuildTransactionIdFilter() {
+        lock.lock();
+        try {
+            long expected = (long) snapshot.getNumberOfBlocks() * blockSize + blockSize;
+            ScalableBloomFilter filter = new ScalableBloomFilter(
+                    Math.max(ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY, expected), transactionIdFalsePositiveRate);
+            for (Block block : snapshot.getBlocks().values()) {
+                for (Transaction transaction : block.getTransactionList()) {
+                    filter.add(transaction.getTransactionId());
+                }
+            }
+            for (Transaction transaction : uncommittedBlock.getTransactionList()) {
+                filter.add(transaction.getTransactionId());
+            }
+            transactionIdFilter = filter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get operational metrics of the Ledger
+     * @return Map of metric names to values, in a stable order
+     */
+    public Map<String,Number> getMetrics() {
+        LedgerSnapshot current = snapshot;
+        ScalableBloomFilter filter = transactionIdFilter;
+
+        Map<String,Number> metrics = new LinkedHashMap<>();
+        metrics.put("blocks", current.getNumberOfBlocks());
+        metrics.put("accounts", current.getBalances().size());
+        metrics.put("mempool.pending", mempool.size());
+        metrics.put("hot.accounts", hotAccounts.size());
+        TransactionJournal journal = transactionJournal;
+        metrics.put("journal.syncs", journal == null ? 0 : journal.getSyncCount());
+        metrics.put("stored.blocks", storedBlockNumber);
+        metrics.put("archived.blocks", archivedBlockNumber);
+        metrics.put("store.failures", storeFailures);
+        synchronized (merkleLevelCache) {
+            long proofCacheBytes = 0;
+            for (MerkleLevels levels : merkleLevelCache.values()) {
+                proofCacheBytes += levels.getSizeInBytes();
+            }
+            metrics.put("proof.cache.blocks", merkleLevelCache.size());
+            metrics.put("proof.cache.bytes", proofCacheBytes);
+        }
+        metrics.put("txid.filter.entries", filter.getCount());
+        metrics.put("txid.filter.stages", filter.getStageCount());
+        metrics.put("txid.filter.memory.bytes", filter.getMemoryBytes());
+        metrics.put("txid.filter.false.positive.rate", filter.getFalsePositiveRate());
+        return metrics;
+    }
+
     /**
      * Getter Method for the seed
      * @return String
@@ -126,34 +481,38 @@ public class Ledger {
      */
     public void addToLedger(Account account) throws LedgerException {
 
-        if(uncommittedBlock.getAccount(account.getAddress()) != null){
-            throw new LedgerException("Add To Ledger", "Account Already Exists");
-        }
+        lock.lock();
+        try {
+            if(uncommittedBlock.getAccount(account.getAddress()) != null){
+                throw new LedgerException("Add To Ledger", "Account Already Exists");
+            }
 
-        uncommittedBlock.addAccount(account.getAddress(), account);
+            uncommittedBlock.addAccount(account.getAddress(), account);
+        } finally {
+            lock.unlock();
+        }
     }
 
-    // Already implement by Account.getBalance()
-    // /**
-    //  * Get Account balance by address
-    //  * @param address
-    //  * @return Integer representing balance of the Account
-    //  * @throws LedgerException
-    //  */
-    // public Integer getAccountBalance(String address) throws LedgerException {
-
-    //     if(blockMap.isEmpty()){
-    //         throw new LedgerException("Get Account Balance", "Account Is Not Committed to a Block");
-    //     }
+    /**
+     * Get Account balance by address as of the latest committed Block
+     * - Served from the current snapshot without locking
+     * @param address
+     * @return Integer representing balance of the Account
+     * @throws LedgerException
+     */
+    public Integer getAccountBalance(String address) throws LedgerException {
 
-    //     Block block = blockMap.lastEntry().getValue();
-    //     Account account = block.getAccount(address);
+        LedgerSnapshot current = snapshot;
+        if(current.getNumberOfBlocks() == 0){
+            throw new LedgerException("Get Account Balance", "Account Is Not Committed to a Block");
+        }
 
-    //     if (account == null)
-    //         throw new LedgerException("Get Account Balance", "Account Does Not Exist");
-    //     else
-    //         return account.getBalance();
-    // }
+        Integer balance = current.getBalance(address);
+        if (balance == null)
+            throw new LedgerException("Get Account Balance", "Account Does Not Exist");
+        else
+            return balance;
+    }
 
     /**
      * Get Block by id
@@ -161,23 +520,585 @@ public class Ledger {
      * @return Block or Null
      */
     public Block getBlock (Integer blockNumber) throws LedgerException {
-        Block block = blockMap.get(blockNumber);
+        Block block = lookupBlock(blockNumber);
         if(block == null){
             throw new LedgerException("Get Block", "Block Does Not Exist");
         }
         return block;
     }
 
+    /**
+     * Get iterator over a range of committed Blocks
+     * - Blocks are looked up one at a time as the iterator advances
+     * @param fromBlockNumber first block number, inclusive
+     * @param toBlockNumber last block number, inclusive
+     * @return Iterator over the Blocks in the range
+     * @throws LedgerException
+     */
+    public Iterator<Block> getBlockIterator(Integer fromBlockNumber, Integer toBlockNumber) throws LedgerException {
+        if(fromBlockNumber < 1 || toBlockNumber < fromBlockNumber){
+            throw new LedgerException("Get Blocks", "Invalid Block Range");
+        }
+        return new BlockRangeIterator(this::lookupBlock, fromBlockNumber, toBlockNumber);
+    }
+
+    /**
+     * Get lazily populated stream over a range of committed Blocks
+     * - Supports early termination through limit, takeWhile or findFirst
+     * @param fromBlockNumber first block number, inclusive
+     * @param toBlockNumber last block number, inclusive
+     * @return Stream of the Blocks in the range
+     * @throws LedgerException
+     */
+    public Stream<Block> getBlocks(Integer fromBlockNumber, Integer toBlockNumber) throws LedgerException {
+        Iterator<Block> iterator = getBlockIterator(fromBlockNumber, toBlockNumber);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.DISTINCT), false);
+    }
+
+    /**
+     * Helper method for looking up committed Block without failing
+     * @param blockNumber
+     * @return Block or Null
+     */
+    protected Block lookupBlock(int blockNumber) {
+        // Blocks newer than the published snapshot are not visible yet
+        if (blockNumber > snapshot.getBlockNumber()) {
+            return null;
+        }
+        return blockMap.get(blockNumber);
+    }
+
+    /**
+     * Get Account balance as of the given committed Block
+     * - Served from the balance history, so older blocks do not need their account copies
+     * @param address
+     * @param blockNumber
+     * @return Integer representing balance of the Account at that Block
+     * @throws LedgerException
+     */
+    public Integer getAccountBalance(String address, Integer blockNumber) throws LedgerException {
+
+        if(lookupBlock(blockNumber) == null){
+            throw new LedgerException("Get Account Balance", "Block Does Not Exist");
+        }
+
+        BalanceHistory history = balanceHistoryMap.get(address);
+        Integer balance = (history == null) ? null : history.getBalanceAt(blockNumber);
+
+        if(balance == null){
+            throw new LedgerException("Get Account Balance", "Account Is Not Committed to a Block");
+        }
+        return balance;
+    }
+
+    /**
+     * Record balances of the committed Block into the balance history
+     * - Only balances that changed since the previous Block are stored
+     * @param committedBlock
+     */
+    public void updateBalanceHistory(Block committedBlock) {
+        for (Account account : committedBlock.getAccountBalanceMap().values()) {
+            balanceHistoryMap.computeIfAbsent(account.getAddress(), address -> new BalanceHistory())
+                    .record(committedBlock.getBlockNumber(), account.getBalance());
+        }
+    }
+
+    /**
+     * Add sealed Block to the Blockchain and start the next uncommitted Block from its accounts
+     * - Listeners are notified once the Block is fully committed
+     * @param block
+     */
+    public void commitBlock(Block block) {
+        commitBlock(block, LedgerProfiling.beginBlockSeal());
+    }
+
+    /**
+     * Commit sealed Block, recording the seal event begun by the caller once the Block is stored
+     * @param block
+     * @param sealEvent BlockSealEvent with the Merkle duration already set, or Null when not profiling
+     */
+    void commitBlock(Block block, BlockSealEvent sealEvent) {
+        lock.lock();
+        try {
+            block.seal();
+            blockMap.put(block.getBlockNumber(), block);
+
+            long cloneStart = sealEvent == null ? 0 : System.nanoTime();
+            Map<String,Integer> balances = startNextBlock(block);
+            long cloneDuration = sealEvent == null ? 0 : System.nanoTime() - cloneStart;
+
+            recordCommittedBlock(block);
+            publishSnapshot(block, 1, balances);
+
+            for (LedgerListener listener : listeners) {
+                listener.blockSealed(this, block);
+            }
+
+            storeBlocks();
+
+            if (LedgerProfiling.end(sealEvent)) {
+                sealEvent.ledger = name;
+                sealEvent.blockNumber = block.getBlockNumber();
+                sealEvent.transactionCount = block.getTransactionCount();
+                sealEvent.accountCount = balances.size();
+                sealEvent.cloneDuration = cloneDuration;
+                sealEvent.commit();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method starting the next uncommitted Block from the accounts of the committed one
+     * - Accounts are shared with the next Block rather than cloned, it copies only the ones it changes,
+     *   so sealing allocates nothing per unchanged account beyond its map entry
+     * - Caller must hold the lock of this Ledger
+     * @param block committed Block
+     * @return Map of account balances as of the committed Block, read from its accounts
+     */
+    private Map<String,Integer> startNextBlock(Block block) {
+        markHotAccounts(block);
+
+        //Only hot accounts hold credits to merge, before the accounts are shared
+        Map<String,Account> accounts = block.getAccountBalanceMap();
+        for (String address : hotAccounts.keySet()) {
+            Account account = accounts.get(address);
+            if (account != null) {
+                account.mergePendingCredits();
+            }
+        }
+
+        //Create next block sharing the accounts
+        Block nextBlock = newUncommittedBlock(block.getBlockNumber() + 1, block.getHash(), accounts.size());
+        nextBlock.inheritAccounts(accounts);
+
+        //Link to previous block
+        nextBlock.setPreviousBlock(block);
+        uncommittedBlock = nextBlock;
+        return new AccountBalances(accounts);
+    }
+
+    /**
+     * Helper method indexing balances and transaction ids of a committed Block
+     * - Caller must hold the lock of this Ledger, after pending credits of the Block are merged
+     * @param block
+     */
+    private void recordCommittedBlock(Block block) {
+        //Keep point in time balances without relying on account copies
+        updateBalanceHistory(block);
+
+        //Block number object is shared by every entry of the Block
+        Integer blockNumber = block.getBlockNumber();
+        for (Transaction transaction : block.getTransactionList()) {
+            transactionBlockNumbers.put(transaction.getTransactionId(), blockNumber);
+        }
+    }
+
+    /**
+     * Helper method publishing read view of the latest committed Block in one step
+     * - Caller must hold the lock of this Ledger
+     * @param latestBlock
+     * @param committedBlocks number of Blocks committed since the previous snapshot
+     * @param balances account balances as of the latest Block
+     */
+    private void publishSnapshot(Block latestBlock, int committedBlocks, Map<String,Integer> balances) {
+        snapshot = new LedgerSnapshot(snapshot.getNumberOfBlocks() + committedBlocks, latestBlock,
+                Collections.unmodifiableMap(balances),
+                Collections.unmodifiableNavigableMap(blockMap.headMap(latestBlock.getBlockNumber(), true)),
+                transactionBlockNumbers);
+    }
+
+    /**
+     * Helper method handing committed Blocks not stored yet to the store writer
+     * - Caller must hold the lock of this Ledger
+     * - Only one write is queued at a time, it picks up every Block committed until it runs
+     */
+    private void storeBlocks() {
+        if (blockStore == null || storeScheduled) {
+            return;
+        }
+        storeScheduled = true;
+        storeWriter.execute(this::writeBlocks);
+    }
+
+    /**
+     * Helper method appending committed Blocks to the store and archiving those older than the retained ones
+     * - Runs on the store writer without the lock, which is only taken to read and update the position
+     * - Blocks that cannot be written stay in memory and are retried on the next commit
+     * - Nothing is recorded if the store was replaced or the Ledger reset while writing
+     */
+    private void writeBlocks() {
+        BlockStore store;
+        NavigableMap<Integer,Block> blocks;
+        int written;
+        int latest;
+        lock.lock();
+        try {
+            storeScheduled = false;
+            store = blockStore;
+            if (store == null) {
+                return;
+            }
+            blocks = blockMap;
+            written = storedBlockNumber;
+            latest = snapshot.getBlockNumber();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean failed = false;
+        try {
+            while (written < latest) {
+                store.append(blocks.get(written + 1));
+                written++;
+            }
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+        }
+
+        lock.lock();
+        try {
+            if (blockStore != store) {
+                return;
+            }
+            storedBlockNumber = written;
+            if (failed) {
+                storeFailures++;
+            }
+            moveArchivedBlocks(store);
+            int archiveThrough = Math.min(storedBlockNumber, snapshot.getBlockNumber() - retainedBlocks);
+            while (archivedBlockNumber < archiveThrough) {
+                archivedBlockNumber++;
+                Block block = blockMap.get(archivedBlockNumber);
+                if (!block.isArchived()) {
+                    block.archive(store);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method pointing Blocks archived in replaced stores at the current store once it holds them,
+     * and closing the replaced stores when no archived Block needs them any more
+     * - Caller must hold the lock of this Ledger
+     * @param store current BlockStore
+     */
+    private void moveArchivedBlocks(BlockStore store) {
+        if (retiredStores.isEmpty()) {
+            return;
+        }
+        int movedThrough = Math.min(archivedBlockNumber, storedBlockNumber);
+        for (int blockNumber = 1; blockNumber <= movedThrough; blockNumber++) {
+            blockMap.get(blockNumber).moveArchive(store);
+        }
+        if (movedThrough == archivedBlockNumber) {
+            closeStores(new ArrayList<>(retiredStores));
+            retiredStores.clear();
+        }
+    }
+
+    /**
+     * Helper method closing stores on the store writer, after the write that may still use them
+     * - Caller must hold the lock of this Ledger, failures to close are counted as store failures
+     * @param stores
+     */
+    private void closeStores(List<BlockStore> stores) {
+        storeWriter.execute(() -> {
+            for (BlockStore store : stores) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    storeFailures++;
+                }
+            }
+        });
+    }
+
+    /**
+     * Wait until Blocks committed so far have been handed to the BlockStore and archived
+     * @throws LedgerException if interrupted while waiting
+     */
+    public void awaitBlockStore() throws LedgerException {
+        try {
+            storeWriter.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LedgerException("Await Block Store", "Interrupted");
+        } catch (ExecutionException e) {
+            throw new LedgerException("Await Block Store", e.getCause().toString());
+        }
+    }
+
+    /**
+     * Helper method creating the store writer, whose thread exits while there is nothing to write
+     * @return
+     */
+    private static ThreadPoolExecutor newStoreWriter() {
+        ThreadPoolExecutor writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ledger-store-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        writer.allowCoreThreadTimeOut(true);
+        return writer;
+    }
+
+    /**
+     * Helper method marking accounts credited by a large share of the Block's Transactions as hot
+     * - Runs before accounts are copied to the next Block, so the copies accumulate credits as well
+     * @param block
+     */
+    private void markHotAccounts(Block block) {
+        if (block.getTransactionList().isEmpty() || hotAccountShare > 1) {
+            return;
+        }
+        Map<String,Integer> credits = new HashMap<>();
+        for (Transaction transaction : block.getTransactionList()) {
+            credits.merge(transaction.getReceiver().getAddress(), 1, Integer::sum);
+        }
+        int threshold = (int) Math.ceil(hotAccountShare * block.getTransactionList().size());
+        for (Map.Entry<String,Integer> entry : credits.entrySet()) {
+            Account account = block.getAccount(entry.getKey());
+            if (entry.getValue() >= threshold && account != null && !account.isHot()) {
+                account.markHot();
+                hotAccounts.put(account.getAddress(), account);
+            }
+        }
+    }
+
+    /**
+     * Install Block sealed by another Ledger, such as a replication leader
+     * - Block must continue the chain and its hash must match its transactions
+     * @param block
+     * @throws LedgerException
+     */
+    public void installBlock(Block block) throws LedgerException {
+        installBlock(block, buildMerkleTree(block).getRoot());
+    }
+
+    /**
+     * Install Block whose Merkle Root has already been computed
+     * @param block
+     * @param merkleRoot root of the tree over the seed and the Block's transactions
+     * @throws LedgerException
+     */
+    void installBlock(Block block, String merkleRoot) throws LedgerException {
+        installBlocks(List.of(block), List.of(merkleRoot));
+    }
+
+    /**
+     * Install consecutive Blocks whose Merkle Roots have already been computed, such as by a bulk import
+     * - Every Block is checked and indexed, but only the last one is copied into the next uncommitted
+     *   Block and published, listeners are then notified of each Block in order
+     * - Blocks before the first bad one stay installed
+     * @param blocks
+     * @param merkleRoots root of the tree over the seed and the transactions of each Block
+     * @throws LedgerException
+     */
+    void installBlocks(List<Block> blocks, List<String> merkleRoots) throws LedgerException {
+        lock.lock();
+        try {
+            Block latestBlock = snapshot.getLatestBlock();
+            int installed = 0;
+            try {
+                for (int i = 0; i < blocks.size(); i++) {
+                    Block block = blocks.get(i);
+                    checkInstallable(block, merkleRoots.get(i), latestBlock);
+
+                    //Decoded Blocks carry no size, they were sealed at their own Transaction count
+                    if (block.getBlockSize() == 0) {
+                        block.setBlockSize(block.getTransactionCount());
+                    }
+                    block.setPreviousBlock(latestBlock);
+                    for (Transaction transaction : block.getTransactionList()) {
+                        transactionIdFilter.add(transaction.getTransactionId());
+                    }
+                    block.seal();
+                    blockMap.put(block.getBlockNumber(), block);
+                    recordCommittedBlock(block);
+                    latestBlock = block;
+                    installed++;
+                }
+            } finally {
+                if (installed > 0) {
+                    publishSnapshot(latestBlock, installed, startNextBlock(latestBlock));
+                    for (Block block : blocks.subList(0, installed)) {
+                        for (LedgerListener listener : listeners) {
+                            listener.blockSealed(this, block);
+                        }
+                    }
+                    storeBlocks();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method checking that Block continues the chain after the latest Block and matches its root
+     * @param block
+     * @param merkleRoot
+     * @param latestBlock latest Block of the chain, or Null when no Block is committed
+     * @throws LedgerException
+     */
+    private static void checkInstallable(Block block, String merkleRoot, Block latestBlock) throws LedgerException {
+        int expectedNumber = latestBlock == null ? 1 : latestBlock.getBlockNumber() + 1;
+        String expectedPreviousHash = latestBlock == null ? "" : latestBlock.getHash();
+
+        if (block.getBlockNumber() != expectedNumber) {
+            throw new LedgerException("Install Block", "Block Number Is Out of Sequence: "
+                    + block.getBlockNumber());
+        }
+        if (!expectedPreviousHash.equals(block.getPreviousHash())) {
+            throw new LedgerException("Install Block", "Hash Is Inconsistent: " + block.getBlockNumber());
+        }
+        if (!merkleRoot.equals(block.getHash())) {
+            throw new LedgerException("Install Block", "Merkle Root Does Not Match: " + block.getBlockNumber());
+        }
+    }
+
+    /**
+     * Build MerkleTree over the seed followed by the Block's transactions
+     * @param block
+     * @return MerkleTrees with the root and all levels computed
+     */
+    public MerkleTrees buildMerkleTree(Block block) {
+        List<String> tempTxList = new ArrayList<>();
+        tempTxList.add(seed);
+
+        //Loop through the list of transaction to get the hash
+        for (Transaction transaction : block.getTransactionList()) {
+            tempTxList.add(transaction.toString());
+        }
+
+        MerkleTrees merkleTrees = new MerkleTrees(tempTxList);
+        merkleTrees.merkle_tree();
+        return merkleTrees;
+    }
+
+    /**
+     * Hold transaction id for a prepared cross shard transfer, so no other Transaction takes it meanwhile
+     * - Caller must hold the lock of this Ledger
+     * @param transactionId
+     * @return false if the id is already held
+     */
+    boolean holdPreparedTransactionId(String transactionId) {
+        return preparedTransactionIds.add(transactionId);
+    }
+
+    /**
+     * Release transaction id held for a transfer that committed or aborted
+     * - Caller must hold the lock of this Ledger
+     * @param transactionId
+     */
+    void releasePreparedTransactionId(String transactionId) {
+        preparedTransactionIds.remove(transactionId);
+    }
+
+    /**
+     * Check whether transaction id is held for a prepared cross shard transfer
+     * @param transactionId
+     * @return
+     */
+    boolean isPreparedTransactionId(String transactionId) {
+        return preparedTransactionIds.contains(transactionId);
+    }
+
+    /**
+     * Get interior Merkle levels of a committed Block for serving proofs
+     * - Blocks sealed recently are cached when they are sealed, others are hashed again once and cached
+     * @param block
+     * @return MerkleLevels whose root is the Block hash
+     */
+    MerkleLevels getMerkleLevels(Block block) {
+        synchronized (merkleLevelCache) {
+            MerkleLevels levels = merkleLevelCache.get(block.getBlockNumber());
+            //Block numbers start over after a reset, so the root tells whether it is still the same Block
+            if (levels != null && levels.getRoot().equals(block.getHash())) {
+                return levels;
+            }
+        }
+        MerkleLevels levels = MerkleLevels.pack(buildMerkleTree(block).levels);
+        cacheMerkleLevels(block.getBlockNumber(), levels);
+        return levels;
+    }
+
+    /**
+     * Keep interior Merkle levels of a Block, evicting the least recently used Block beyond the cache size
+     * @param blockNumber
+     * @param levels
+     */
+    void cacheMerkleLevels(int blockNumber, MerkleLevels levels) {
+        synchronized (merkleLevelCache) {
+            merkleLevelCache.put(blockNumber, levels);
+        }
+    }
+
+    /**
+     * Helper method creating Block to be filled, hashing its Merkle leaves as they are added
+     * @param blockNumber
+     * @param previousHash
+     * @param accountCapacity number of Accounts the Block starts with
+     * @return Block
+     */
+    private Block newUncommittedBlock(int blockNumber, String previousHash, int accountCapacity) {
+        Block block = new Block(blockNumber, previousHash, blockSize, accountCapacity);
+        //Sealed trees are copied out of the builder, so its buffers are reused for every Block,
+        //the seed and a full Block of leaves decide whether the levels are hashed in parallel at seal
+        if (merkleBuilder == null) {
+            merkleBuilder = new IncrementalMerkleBuilder(seed, blockSize + 1);
+        } else {
+            merkleBuilder.reset(seed, blockSize + 1);
+        }
+        block.setMerkleBuilder(merkleBuilder);
+        return block;
+    }
+
+    /**
+     * Register listener notified when Transactions are accepted and Blocks are committed
+     * - Listeners run on the committing thread while the Ledger lock is held, so they must not block
+     * @param listener
+     */
+    public void addLedgerListener(LedgerListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Notify listeners that Transaction has been added to the uncommitted Block
+     * - Caller must hold the lock of this Ledger
+     * @param transaction
+     */
+    void notifyTransactionAccepted(Transaction transaction) {
+        for (LedgerListener listener : listeners) {
+            listener.transactionAccepted(this, transaction);
+        }
+    }
+
+    /**
+     * Remove previously registered listener
+     * @param listener
+     */
+    public void removeLedgerListener(LedgerListener listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * Get map of all the blocks in the Blockchain
      * @return NavigableMap representing all the blocks in the Blockchain
      * @throws LedgerException
      */
     public NavigableMap<Integer, Block> getBlockMap() throws LedgerException{
-        if (blockMap.isEmpty()){
+        LedgerSnapshot current = snapshot;
+        if (current.getNumberOfBlocks() == 0){
             throw new LedgerException("Get Block Map", "No Block Has Been Committed");
         }
-        return blockMap;
+        return current.getBlocks();
     }
 
     /**
@@ -187,10 +1108,20 @@ public class Ledger {
      * @throws LedgerException
      */
     public Block getLatestBlock() throws LedgerException {
-        if(blockMap.isEmpty()){
+        LedgerSnapshot current = snapshot;
+        if(current.getNumberOfBlocks() == 0){
             throw new LedgerException("Get Latest Block", "No Block Has Been Committed");
         }
-        return blockMap.lastEntry().getValue();
+        return current.getLatestBlock();
+    }
+
+    /**
+     * Get immutable read view as of the latest committed Block
+     * - Readers can hold on to it while new Blocks are sealed
+     * @return LedgerSnapshot
+     */
+    public LedgerSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -198,7 +1129,7 @@ public class Ledger {
      * @return int representing number of blocks committed to Blockchain
      */
     public int getNumberOfBlocks(){
-        return blockMap.size();
+        return snapshot.getNumberOfBlocks();
     }
 
     /**
@@ -209,23 +1140,42 @@ public class Ledger {
      */
     public void validate() throws LedgerException {
 
-        if(blockMap.isEmpty()){
-            throw new LedgerException("Validate", "No Block Has Been Committed");
+        LedgerSnapshot current = snapshot;
+        ValidateEvent validateEvent = LedgerProfiling.beginValidate();
+        boolean valid = false;
+        try {
+            validate(current);
+            valid = true;
+        } finally {
+            if (LedgerProfiling.end(validateEvent)) {
+                validateEvent.ledger = name;
+                validateEvent.blockCount = current.getNumberOfBlocks();
+                validateEvent.accountCount = current.getBalances().size();
+                validateEvent.valid = valid;
+                validateEvent.commit();
+            }
         }
+    }
 
-        Block committedBlock = blockMap.lastEntry().getValue();
-        Map<String,Account> accountMap = committedBlock.getAccountBalanceMap();
-        List<Account> accountList = new ArrayList<>(accountMap.values());
+    /**
+     * Helper method validating the Blocks and balances of one snapshot
+     * @param current
+     * @throws LedgerException
+     */
+    private void validate(LedgerSnapshot current) throws LedgerException {
+
+        if(current.getNumberOfBlocks() == 0){
+            throw new LedgerException("Validate", "No Block Has Been Committed");
+        }
 
         int totalBalance = 0;
-        for (Account account : accountList) {
-            totalBalance += account.getBalance();
+        for (Integer balance : current.getBalances().values()) {
+            totalBalance += balance;
         }
 
         int fees = 0;
         // String hash;
-        for(Integer key : blockMap.keySet()){
-            Block block = blockMap.get(key);
+        for(Block block : current.getBlocks().values()){
 
             //Check for Hash Consistency
             if(block.getBlockNumber() != 1)
@@ -234,15 +1184,15 @@ public class Ledger {
                             + block.getBlockNumber());
             }
 
-            //Check for Transaction Count
-            if(block.getTransactionList().size() != 10){
-                throw new LedgerException("Validate", "Transaction Count Is Not 10 In Block: "
+            //Check for Transaction Count against the size the Block was sealed at,
+            //archived blocks answer from their headers
+            if(block.getTransactionCount() != block.getBlockSize()){
+                throw new LedgerException("Validate", "Transaction Count Is Not " + block.getBlockSize()
+                        + " In Block: "
                         + block.getBlockNumber());
             }
 
-            for(Transaction transaction : block.getTransactionList()){
-                fees += transaction.getFee();
-            }
+            fees += block.getFeeTotal();
         }
 
         int adjustedBalance = totalBalance + fees;
@@ -262,12 +1212,69 @@ public class Ledger {
         return uncommittedBlock;
     }
 
+    /**
+     * Setter method for the Block that is currently being filled
+     * @param block
+     */
+    public void setUncommittedBlock(Block block){
+        uncommittedBlock = block;
+    }
+
+    /**
+     * Getter method for the lock guarding this Ledger's uncommitted block
+     * @return
+     */
+    public ReentrantLock getLock(){
+        return lock;
+    }
+
     /**
      * Helper method allowing reset the state of the Ledger
+     * - Initialize genesis block and the account list
+     * - Listeners are told, so anything waiting on the discarded uncommitted Block can give up
      */
-    public synchronized void reset(){
-        blockMap = new TreeMap<>();
-        uncommittedBlock = new Block(1, "");
+    public void reset(){
+        lock.lock();
+        try {
+            // Discarded chain is not read again, so its stores are closed without restoring archived Blocks
+            List<BlockStore> stores = new ArrayList<>(retiredStores);
+            if (blockStore != null) {
+                stores.add(blockStore);
+            }
+            retiredStores.clear();
+            if (!stores.isEmpty()) {
+                closeStores(stores);
+            }
+            initialize();
+            for (LedgerListener listener : listeners) {
+                listener.ledgerReset(this);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Helper method creating the genesis block and empty chain state
+     * - Private, so the constructor does not hand a partly built Ledger to an overriding method
+     */
+    private void initialize() {
+        blockMap = new ConcurrentSkipListMap<>();
+        snapshot = LedgerSnapshot.empty();
+        uncommittedBlock = newUncommittedBlock(1, "", 1);
         uncommittedBlock.addAccount("master", new Account("master", Integer.MAX_VALUE));
+        balanceHistoryMap = new ConcurrentHashMap<>();
+        transactionBlockNumbers = new ConcurrentHashMap<>();
+        preparedTransactionIds = ConcurrentHashMap.newKeySet();
+        hotAccounts = new ConcurrentHashMap<>();
+        synchronized (merkleLevelCache) {
+            merkleLevelCache.clear();
+        }
+        // Store holds the discarded chain, so it is detached and closed rather than appended to
+        blockStore = null;
+        storedBlockNumber = 0;
+        archivedBlockNumber = 0;
+        transactionIdFilter = new ScalableBloomFilter(ScalableBloomFilter.DEFAULT_INITIAL_CAPACITY,
+                transactionIdFalsePositiveRate);
     }
 }
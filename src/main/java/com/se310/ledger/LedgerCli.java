@@ -0,0 +1,110 @@
+package com.se310.ledger;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * LedgerCli class implementation launching the Ledger from the command line.
+ * Commands are read from a script file, or streamed from stdin when no file or - is given, and
+ * processed as they arrive, so generated workloads can be piped straight in:
+ *   LedgerCli [--block-size n] [--output full|errors|quiet] [script | -]
+ * Totals are printed to stderr at exit. Kept free of work outside main so it can be started from
+ * an AppCDS archive built by the appcds Maven profile:
+ *   java -XX:SharedArchiveFile=target/ledger-cds.jsa -jar target/assignment1-1.0-SNAPSHOT.jar ledger.script
+ *
+ * @author  Joshua Vaysman
+ * @version 1.3
+ */
+public class LedgerCli {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String USAGE = "Usage: LedgerCli [--block-size n] [--output full|errors|quiet] [script | -]";
+
+    private LedgerCli() {
+    }
+
+    /**
+     * Process commands of the script file or stdin
+     * @param args
+     */
+    public static void main(String[] args) {
+        String source = "-";
+        String outputMode = "full";
+        FileProcessor processor = new FileProcessor();
+
+        // Block size is checked while parsing, so a value the processor rejects prints the usage
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--block-size" -> processor.setBlockSize(Integer.parseInt(args[++i]));
+                    case "--output" -> outputMode = args[++i];
+                    default -> {
+                        if (args[i].startsWith("--") || i != args.length - 1) {
+                            throw new IllegalArgumentException("Unknown Argument: " + args[i]);
+                        }
+                        source = args[i];
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        PrintStream stdout = new PrintStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), BUFFER_SIZE), false);
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+
+        switch (outputMode) {
+            case "full" -> {
+                processor.setOutput(stdout);
+                processor.setFailureOutput(stdout);
+            }
+            case "errors" -> {
+                processor.setOutput(discard);
+                processor.setFailureOutput(stdout);
+            }
+            case "quiet" -> {
+                processor.setOutput(discard);
+                processor.setFailureOutput(discard);
+            }
+            default -> {
+                System.err.println(USAGE);
+                System.exit(2);
+            }
+        }
+
+        long start = System.nanoTime();
+        int status = 0;
+        try (BufferedReader reader = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE)
+                : Files.newBufferedReader(Path.of(source))) {
+            processor.processCommands(reader);
+        } catch (IOException e) {
+            System.err.println("Unable to Read Commands: " + e.getMessage());
+            status = 1;
+        } finally {
+            // Blocks still queued for a store are written before the store is closed, and
+            // Transactions still buffered in a journal are synced before the journal is closed
+            processor.closeBlockStores();
+            processor.closeJournals();
+            stdout.flush();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        long commands = processor.getCommandCount();
+        System.err.printf("Commands: %d, Errors: %d, Elapsed: %.1f ms, Throughput: %.0f commands/s%n",
+                commands, processor.getFailureCount(), elapsedNanos / 1e6,
+                elapsedNanos == 0 ? 0.0 : commands * 1e9 / elapsedNanos);
+        System.exit(status);
+    }
+}
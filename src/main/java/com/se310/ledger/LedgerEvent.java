@@ -0,0 +1,77 @@
+package com.se310.ledger;
+
+/**
+ * LedgerEvent class implementation describing a change published by LedgerEventPublisher
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class LedgerEvent {
+
+    /**
+     * Kinds of changes published
+     */
+    public enum Type { TRANSACTION_ACCEPTED, BLOCK_SEALED }
+
+    private final Type type;
+    private final String ledgerName;
+    private final int blockNumber;
+    private final Block block;
+    private final Transaction transaction;
+
+    /**
+     * LedgerEvent Constructor
+     * @param type
+     * @param ledgerName
+     * @param blockNumber Block sealed or the uncommitted Block the Transaction was added to
+     * @param block sealed Block or Null
+     * @param transaction accepted Transaction or Null
+     */
+    public LedgerEvent(Type type, String ledgerName, int blockNumber, Block block, Transaction transaction) {
+        this.type = type;
+        this.ledgerName = ledgerName;
+        this.blockNumber = blockNumber;
+        this.block = block;
+        this.transaction = transaction;
+    }
+
+    /**
+     * Getter method for the kind of change
+     * @return
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Getter method for the name of the Ledger that changed
+     * @return
+     */
+    public String getLedgerName() {
+        return ledgerName;
+    }
+
+    /**
+     * Getter method for the block number the change belongs to
+     * @return
+     */
+    public int getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * Getter method for the sealed Block
+     * @return Block or Null for TRANSACTION_ACCEPTED events
+     */
+    public Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Getter method for the accepted Transaction
+     * @return Transaction or Null for BLOCK_SEALED events
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+}
@@ -0,0 +1,337 @@
+package com.se310.ledger;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LedgerEventPublisher class implementation streaming accepted Transactions and sealed Blocks of a
+ * Ledger to Flow subscribers.
+ * Events are published at the commit point under the Ledger lock, so publishing never waits: each
+ * subscriber gets its own bounded buffer drained on the executor, and a full buffer is handled by the
+ * subscriber's policy:
+ * - DROP: the new event is discarded and counted
+ * - BLOCK: the event is staged behind the buffer, up to another buffer's worth, and waits there for room
+ *   up to the block timeout; the delivery thread moves staged events into the buffer as it frees room and
+ *   drops, and counts, the ones whose timeout has passed. Events arriving while staging is full are dropped
+ * - DISCONNECT: the subscription is cancelled and the subscriber gets onError
+ * The class is final since the constructor registers the publisher as a listener of the Ledger
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public final class LedgerEventPublisher implements Flow.Publisher<LedgerEvent>, LedgerListener, AutoCloseable {
+
+    /**
+     * Handling of events for a subscriber whose buffer is full
+     */
+    public enum OverflowPolicy { DROP, BLOCK, DISCONNECT }
+
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    public static final long DEFAULT_BLOCK_TIMEOUT_MILLIS = 50;
+
+    private final Ledger ledger;
+    private final int bufferSize;
+    private final long blockTimeoutMillis;
+    private final Executor executor;
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * LedgerEventPublisher Constructor delivering on the common pool with default limits
+     * @param ledger
+     */
+    public LedgerEventPublisher(Ledger ledger) {
+        this(ledger, DEFAULT_BUFFER_SIZE, DEFAULT_BLOCK_TIMEOUT_MILLIS, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * LedgerEventPublisher Constructor
+     * @param ledger
+     * @param bufferSize maximum number of undelivered events per subscriber
+     * @param blockTimeoutMillis longest an event waits for room in the buffer of a BLOCK subscriber
+     * @param executor runs delivery to subscribers
+     */
+    public LedgerEventPublisher(Ledger ledger, int bufferSize, long blockTimeoutMillis, Executor executor) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer Size Must Be Positive");
+        }
+        this.ledger = ledger;
+        this.bufferSize = bufferSize;
+        this.blockTimeoutMillis = blockTimeoutMillis;
+        this.executor = executor;
+        ledger.addLedgerListener(this);
+    }
+
+    /**
+     * Subscribe with the DROP policy
+     * @param subscriber
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber) {
+        subscribe(subscriber, OverflowPolicy.DROP);
+    }
+
+    /**
+     * Subscribe to events published from now on
+     * @param subscriber
+     * @param policy handling of events when the subscriber's buffer is full
+     */
+    public void subscribe(Flow.Subscriber<? super LedgerEvent> subscriber, OverflowPolicy policy) {
+        EventSubscription subscription = new EventSubscription(subscriber, policy);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.complete();
+        } else {
+            subscriptions.add(subscription);
+        }
+    }
+
+    /**
+     * Get number of active subscribers
+     * @return
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Get number of events dropped for active subscribers whose buffers were full
+     * @return
+     */
+    public long getDroppedEventCount() {
+        long dropped = 0;
+        for (EventSubscription subscription : subscriptions) {
+            synchronized (subscription) {
+                dropped += subscription.droppedCount;
+            }
+        }
+        return dropped;
+    }
+
+    @Override
+    public void transactionAccepted(Ledger ledger, Transaction transaction) {
+        publish(new LedgerEvent(LedgerEvent.Type.TRANSACTION_ACCEPTED, ledger.getName(),
+                ledger.getUncommittedBlock().getBlockNumber(), null, transaction));
+    }
+
+    @Override
+    public void blockSealed(Ledger ledger, Block block) {
+        publish(new LedgerEvent(LedgerEvent.Type.BLOCK_SEALED, ledger.getName(),
+                block.getBlockNumber(), block, null));
+    }
+
+    /**
+     * Stop publishing, subscribers get onComplete once their buffers are delivered
+     */
+    @Override
+    public void close() {
+        closed = true;
+        ledger.removeLedgerListener(this);
+        for (EventSubscription subscription : subscriptions) {
+            subscription.complete();
+        }
+        subscriptions.clear();
+    }
+
+    /**
+     * Helper method handing event to every subscriber
+     * @param event
+     */
+    private void publish(LedgerEvent event) {
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Subscription of one subscriber with its own bounded buffer and demand
+     */
+    private class EventSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super LedgerEvent> subscriber;
+        private final OverflowPolicy policy;
+        private final ArrayDeque<LedgerEvent> buffer = new ArrayDeque<>();
+        // Events of a BLOCK subscriber waiting for room in the buffer, oldest first
+        private final ArrayDeque<StagedEvent> staged = new ArrayDeque<>();
+        private long demand;
+        private long droppedCount;
+        private boolean draining;
+        private boolean cancelled;
+        private boolean completing;
+        private Throwable error;
+
+        private EventSubscription(Flow.Subscriber<? super LedgerEvent> subscriber, OverflowPolicy policy) {
+            this.subscriber = subscriber;
+            this.policy = policy;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Requested Events Must Be Positive");
+                    cancelled = true;
+                    buffer.clear();
+                    staged.clear();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            if (n <= 0) {
+                subscriptions.remove(this);
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                cancelled = true;
+                buffer.clear();
+                staged.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Buffer event, applying the overflow policy when the buffer is full
+         * - Called under the Ledger lock, so it never waits
+         * @param event
+         */
+        private void offer(LedgerEvent event) {
+            boolean disconnected = false;
+            synchronized (this) {
+                if (cancelled || completing) {
+                    return;
+                }
+                if (buffer.size() < bufferSize && staged.isEmpty()) {
+                    buffer.add(event);
+                } else if (policy == OverflowPolicy.BLOCK && staged.size() < bufferSize) {
+                    staged.add(new StagedEvent(event,
+                            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis)));
+                    return;
+                } else if (policy == OverflowPolicy.DISCONNECT) {
+                    error = new IllegalStateException("Subscriber Buffer Overflow");
+                    cancelled = true;
+                    buffer.clear();
+                    disconnected = true;
+                } else {
+                    droppedCount++;
+                    return;
+                }
+            }
+            if (disconnected) {
+                subscriptions.remove(this);
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Helper method moving staged events into the room freed in the buffer, dropping the ones that
+         * waited longer than the block timeout
+         * - Caller holds the monitor of the subscription
+         */
+        private void promoteStaged() {
+            long now = System.nanoTime();
+            while (!staged.isEmpty() && buffer.size() < bufferSize) {
+                StagedEvent stagedEvent = staged.poll();
+                if (now - stagedEvent.deadline > 0) {
+                    droppedCount++;
+                } else {
+                    buffer.add(stagedEvent.event);
+                }
+            }
+        }
+
+        /**
+         * Deliver remaining buffered events and then onComplete
+         */
+        private void complete() {
+            synchronized (this) {
+                completing = true;
+            }
+            scheduleDrain();
+        }
+
+        /**
+         * Helper method starting delivery unless it is already running
+         */
+        private void scheduleDrain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Deliver buffered events as far as demand allows, one thread at a time
+         */
+        private void drain() {
+            while (true) {
+                LedgerEvent event = null;
+                Throwable failure = null;
+                boolean done = false;
+                synchronized (this) {
+                    if (error != null) {
+                        failure = error;
+                        error = null;
+                        draining = false;
+                    } else if (cancelled || buffer.isEmpty() || demand == 0) {
+                        done = completing && !cancelled && buffer.isEmpty() && staged.isEmpty();
+                        if (done) {
+                            cancelled = true;
+                        }
+                        draining = false;
+                    } else {
+                        event = buffer.poll();
+                        demand--;
+                        // Room was freed for events staged by a BLOCK subscriber
+                        promoteStaged();
+                    }
+                }
+
+                // Subscriber is called outside the monitor so it never holds up ingest
+                if (failure != null) {
+                    subscriber.onError(failure);
+                    return;
+                }
+                if (event == null) {
+                    if (done) {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                try {
+                    subscriber.onNext(event);
+                } catch (Throwable t) {
+                    cancel();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Event of a BLOCK subscriber waiting for room in its buffer
+     */
+    private static class StagedEvent {
+        private final LedgerEvent event;
+        private final long deadline;
+
+        private StagedEvent(LedgerEvent event, long deadline) {
+            this.event = event;
+            this.deadline = deadline;
+        }
+    }
+}
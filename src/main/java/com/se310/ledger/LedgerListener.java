@@ -0,0 +1,34 @@
+package com.se310.ledger;
+
+/**
+ * LedgerListener interface implemented by components that react to Ledger changes
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public interface LedgerListener {
+
+    /**
+     * Called after Block has been committed and the next uncommitted Block started
+     * @param ledger
+     * @param block
+     */
+    void blockSealed(Ledger ledger, Block block);
+
+    /**
+     * Called after Transaction has been applied and added to the uncommitted Block
+     * - Runs under the Ledger lock, before the Block is sealed if the Transaction filled it
+     * @param ledger
+     * @param transaction
+     */
+    default void transactionAccepted(Ledger ledger, Transaction transaction) {
+    }
+
+    /**
+     * Called after the Ledger has been reset to its genesis state
+     * - Runs under the Ledger lock, Blocks that were not sealed before the reset never will be
+     * @param ledger
+     */
+    default void ledgerReset(Ledger ledger) {
+    }
+}
@@ -0,0 +1,265 @@
+package com.se310.ledger;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * LedgerProfiling class implementation holding the JDK Flight Recorder events emitted by the Ledger.
+ * Events cover command parsing, Transaction apply, Ledger lock waits, Block seal with its Merkle and
+ * account clone sub-timings, and validate. Every event is disabled by default, and none is created until
+ * Flight Recorder has been started in this JVM, since loading the event classes registers them with the
+ * recorder, which is a one-time startup cost. A recording turns them on with the bundled profile:
+ *   java -XX:StartFlightRecording:settings=ledger-profiling.jfc,filename=ledger.jfr ...
+ *   jcmd &lt;pid&gt; JFR.start settings=ledger-profiling.jfc filename=ledger.jfr
+ * or from a running CommandProcessor with the profile start and profile stop commands.
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public final class LedgerProfiling {
+
+    public static final String PROFILE_RESOURCE = "/ledger-profiling.jfc";
+
+    private LedgerProfiling() {
+    }
+
+    /**
+     * Start a recording with the bundled profile, written to the destination once it is stopped
+     * @param destination
+     * @return Recording to stop or close
+     * @throws IOException if the profile cannot be read or the destination written
+     */
+    public static Recording startRecording(Path destination) throws IOException {
+        Configuration configuration;
+        try (InputStream profile = LedgerProfiling.class.getResourceAsStream(PROFILE_RESOURCE)) {
+            if (profile == null) {
+                throw new IOException("Profile Not Found: " + PROFILE_RESOURCE);
+            }
+            configuration = Configuration.create(new InputStreamReader(profile, StandardCharsets.UTF_8));
+        } catch (ParseException e) {
+            throw new IOException("Profile Is Not Valid: " + e.getMessage(), e);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName("ledger-profiling");
+        recording.setToDisk(true);
+        recording.setDestination(destination);
+        recording.start();
+        return recording;
+    }
+
+    /**
+     * Begin CommandParseEvent, or return Null while Flight Recorder has not been started
+     * @return
+     */
+    static CommandParseEvent beginCommandParse() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        CommandParseEvent event = new CommandParseEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin TransactionApplyEvent, or return Null while Flight Recorder has not been started
+     * @return
+     */
+    static TransactionApplyEvent beginTransactionApply() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        TransactionApplyEvent event = new TransactionApplyEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin LockWaitEvent, or return Null while Flight Recorder has not been started
+     * @return
+     */
+    static LockWaitEvent beginLockWait() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        LockWaitEvent event = new LockWaitEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin BlockSealEvent, or return Null while Flight Recorder has not been started
+     * @return
+     */
+    static BlockSealEvent beginBlockSeal() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        BlockSealEvent event = new BlockSealEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Begin ValidateEvent, or return Null while Flight Recorder has not been started
+     * @return
+     */
+    static ValidateEvent beginValidate() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        ValidateEvent event = new ValidateEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * End event begun by one of the begin methods and check whether it should be committed
+     * @param event event to end, or Null while Flight Recorder has not been started
+     * @return true when the event is enabled and took at least its threshold
+     */
+    static boolean end(Event event) {
+        if (event == null) {
+            return false;
+        }
+        event.end();
+        return event.shouldCommit();
+    }
+
+    /**
+     * Tokenizing of one command line by CommandProcessor
+     */
+    @Name("com.se310.ledger.CommandParse")
+    @Label("Command Parse")
+    @Category("Ledger")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class CommandParseEvent extends Event {
+
+        @Label("Command")
+        String command;
+
+        @Label("Token Count")
+        int tokenCount;
+
+        @Label("Line Length")
+        int lineLength;
+    }
+
+    /**
+     * Transaction applied to the uncommitted Block under the Ledger lock, including the seal it triggered
+     */
+    @Name("com.se310.ledger.TransactionApply")
+    @Label("Transaction Apply")
+    @Category("Ledger")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class TransactionApplyEvent extends Event {
+
+        @Label("Ledger")
+        String ledger;
+
+        @Label("Transaction Id")
+        String transactionId;
+
+        @Label("Block Number")
+        int blockNumber;
+
+        @Label("Block Transaction Count")
+        int transactionCount;
+
+        @Label("Sealed Block")
+        boolean sealedBlock;
+    }
+
+    /**
+     * Time spent waiting for a contended Ledger lock, uncontended acquisitions are not recorded
+     */
+    @Name("com.se310.ledger.LockWait")
+    @Label("Ledger Lock Wait")
+    @Category("Ledger")
+    @Description("Wait for the Ledger lock held by another caller")
+    @Enabled(false)
+    public static final class LockWaitEvent extends Event {
+
+        @Label("Ledger")
+        String ledger;
+
+        @Label("Block Number")
+        int blockNumber;
+
+        @Label("Queued Threads")
+        int queueLength;
+    }
+
+    /**
+     * Sealing of a full Block, from the Merkle root through the commit of the Block, not its write to a BlockStore
+     */
+    @Name("com.se310.ledger.BlockSeal")
+    @Label("Block Seal")
+    @Category("Ledger")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class BlockSealEvent extends Event {
+
+        @Label("Ledger")
+        String ledger;
+
+        @Label("Block Number")
+        int blockNumber;
+
+        @Label("Transaction Count")
+        int transactionCount;
+
+        @Label("Account Count")
+        int accountCount;
+
+        @Label("Merkle Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long merkleDuration;
+
+        @Label("Clone Duration")
+        @Description("Copying accounts into the next uncommitted Block")
+        @Timespan(Timespan.NANOSECONDS)
+        long cloneDuration;
+    }
+
+    /**
+     * Validation of the committed Blockchain
+     */
+    @Name("com.se310.ledger.Validate")
+    @Label("Validate")
+    @Category("Ledger")
+    @Enabled(false)
+    @StackTrace(false)
+    public static final class ValidateEvent extends Event {
+
+        @Label("Ledger")
+        String ledger;
+
+        @Label("Block Count")
+        int blockCount;
+
+        @Label("Account Count")
+        int accountCount;
+
+        @Label("Valid")
+        boolean valid;
+    }
+}
@@ -0,0 +1,66 @@
+package com.se310.ledger;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * LedgerRegistry class implementation keeping track of independent Ledgers hosted by one process
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class LedgerRegistry {
+
+    private final ConcurrentMap<String,Ledger> ledgerMap = new ConcurrentHashMap<>();
+
+    /**
+     * Create new Ledger and register it under its name
+     * @param name
+     * @param description
+     * @param seed
+     * @return Ledger that was created
+     * @throws LedgerException
+     */
+    public Ledger createLedger(String name, String description, String seed) throws LedgerException {
+        Ledger ledger = new Ledger(name, description, seed);
+        if (ledgerMap.putIfAbsent(name, ledger) != null) {
+            throw new LedgerException("Create Ledger", "Ledger Already Exists");
+        }
+        return ledger;
+    }
+
+    /**
+     * Get registered Ledger by name
+     * @param name
+     * @return Ledger
+     * @throws LedgerException
+     */
+    public Ledger getLedger(String name) throws LedgerException {
+        Ledger ledger = ledgerMap.get(name);
+        if (ledger == null) {
+            throw new LedgerException("Get Ledger", "Ledger Does Not Exist");
+        }
+        return ledger;
+    }
+
+    /**
+     * Remove Ledger from the registry
+     * @param name
+     * @throws LedgerException
+     */
+    public void removeLedger(String name) throws LedgerException {
+        if (ledgerMap.remove(name) == null) {
+            throw new LedgerException("Remove Ledger", "Ledger Does Not Exist");
+        }
+    }
+
+    /**
+     * Get names of all registered Ledgers
+     * @return Set of Ledger names in sorted order
+     */
+    public Set<String> getLedgerNames() {
+        return new TreeSet<>(ledgerMap.keySet());
+    }
+}
@@ -0,0 +1,132 @@
+package com.se310.ledger;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * LedgerSnapshot class implementation representing immutable read view of the Ledger as of a
+ * committed Block. A new snapshot is published atomically every time a Block is sealed, so readers
+ * see balances and blocks of one Block without locking and without seeing a half applied Block
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class LedgerSnapshot {
+
+    private final int numberOfBlocks;
+    private final Block latestBlock;
+    private final Map<String,Integer> balances;
+    private final NavigableMap<Integer,Block> blocks;
+    private final Map<String,Integer> transactionBlockNumbers;
+
+    /**
+     * Create snapshot of a Ledger with no committed Blocks
+     * @return LedgerSnapshot
+     */
+    static LedgerSnapshot empty() {
+        return new LedgerSnapshot(0, null, Map.of(), Collections.unmodifiableNavigableMap(new TreeMap<>()),
+                Map.of());
+    }
+
+    /**
+     * LedgerSnapshot Constructor
+     * @param numberOfBlocks
+     * @param latestBlock
+     * @param balances immutable map of account balances as of the latest Block
+     * @param blocks immutable view of committed Blocks up to the latest Block
+     * @param transactionBlockNumbers index of committed transaction ids to their Block, shared with the Ledger
+     *                                and possibly ahead of this snapshot
+     */
+    LedgerSnapshot(int numberOfBlocks, Block latestBlock, Map<String,Integer> balances,
+                   NavigableMap<Integer,Block> blocks, Map<String,Integer> transactionBlockNumbers) {
+        this.numberOfBlocks = numberOfBlocks;
+        this.latestBlock = latestBlock;
+        this.balances = balances;
+        this.blocks = blocks;
+        this.transactionBlockNumbers = transactionBlockNumbers;
+    }
+
+    /**
+     * Get number of Blocks committed as of this snapshot
+     * @return
+     */
+    public int getNumberOfBlocks() {
+        return numberOfBlocks;
+    }
+
+    /**
+     * Get number of the latest Block in this snapshot
+     * @return int or 0 if no Block has been committed
+     */
+    public int getBlockNumber() {
+        return latestBlock == null ? 0 : latestBlock.getBlockNumber();
+    }
+
+    /**
+     * Get latest committed Block
+     * @return Block or Null if no Block has been committed
+     */
+    public Block getLatestBlock() {
+        return latestBlock;
+    }
+
+    /**
+     * Get all Account balances as of the latest Block
+     * @return unmodifiable Map of addresses to balances
+     */
+    public Map<String,Integer> getBalances() {
+        return balances;
+    }
+
+    /**
+     * Get Account balance as of the latest Block
+     * @param address
+     * @return Integer or Null if the Account was not committed
+     */
+    public Integer getBalance(String address) {
+        return balances.get(address);
+    }
+
+    /**
+     * Get committed Blocks as of this snapshot
+     * @return unmodifiable NavigableMap of block numbers to Blocks
+     */
+    public NavigableMap<Integer,Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Find committed Block holding the Transaction
+     * - Looked up in the transaction id index, ids committed after this snapshot are not visible
+     * @param transactionId
+     * @return Block or Null if no Block of this snapshot contains the Transaction
+     */
+    public Block findBlock(String transactionId) {
+        Integer blockNumber = transactionBlockNumbers.get(transactionId);
+        if (blockNumber == null || blockNumber > getBlockNumber()) {
+            return null;
+        }
+        return blocks.get(blockNumber);
+    }
+
+    /**
+     * Find committed Transaction by id
+     * - Only the one Block holding it is searched, which loads that Block if it was archived
+     * @param transactionId
+     * @return Transaction or Null if no Block of this snapshot contains it
+     */
+    public Transaction findTransaction(String transactionId) {
+        Block block = findBlock(transactionId);
+        if (block == null) {
+            return null;
+        }
+        for (Transaction transaction : block.getTransactionList()) {
+            if (transaction.getTransactionId().equals(transactionId)) {
+                return transaction;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package com.se310.ledger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Mempool class implementation holding submitted Transactions until they are pulled into a Block.
+ * Pending Transactions are ordered by fee, highest first, and then by arrival, the pool is bounded
+ * and rejects new submissions when full instead of growing without limit
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class Mempool {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final int capacity;
+    private final PriorityQueue<PendingTransaction> pendingQueue = new PriorityQueue<>(
+            Comparator.comparingInt((PendingTransaction pending) -> pending.transaction.getFee()).reversed()
+                    .thenComparingLong(pending -> pending.arrival));
+    private final Set<String> pendingIds = new HashSet<>();
+    private long nextArrival;
+
+    /**
+     * Mempool Constructor
+     * @param capacity maximum number of pending Transactions
+     */
+    public Mempool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Mempool Capacity Must Be Positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add Transaction to the pool
+     * - Transaction is accepted once it passes the checks and before it is queued, the queue orders
+     *   by fee so it must not change while pending, and a rejected one is left as it was
+     * @param transaction
+     * @throws LedgerException if the Transaction is already pending or the pool is full
+     */
+    public synchronized void submit(Transaction transaction) throws LedgerException {
+        if (pendingIds.contains(transaction.getTransactionId())) {
+            throw new LedgerException("Submit Transaction", "Transaction Id Must Be Unique");
+        }
+        if (pendingQueue.size() >= capacity) {
+            throw new LedgerException("Submit Transaction", "Mempool Is Full");
+        }
+        transaction.accept();
+        pendingIds.add(transaction.getTransactionId());
+        pendingQueue.add(new PendingTransaction(transaction, nextArrival++));
+    }
+
+    /**
+     * Remove highest priority Transactions from the pool
+     * @param maxTransactions maximum number to remove, nothing is removed when not positive
+     * @return List of Transactions in priority order
+     */
+    public synchronized List<Transaction> drain(int maxTransactions) {
+        List<Transaction> transactions = new ArrayList<>(Math.max(0, Math.min(maxTransactions, pendingQueue.size())));
+        while (transactions.size() < maxTransactions && !pendingQueue.isEmpty()) {
+            Transaction transaction = pendingQueue.poll().transaction;
+            pendingIds.remove(transaction.getTransactionId());
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+
+    /**
+     * Check whether Transaction is waiting in the pool
+     * @param transactionId
+     * @return
+     */
+    public synchronized boolean contains(String transactionId) {
+        return pendingIds.contains(transactionId);
+    }
+
+    /**
+     * Get number of pending Transactions
+     * @return
+     */
+    public synchronized int size() {
+        return pendingQueue.size();
+    }
+
+    /**
+     * Getter method for maximum number of pending Transactions
+     * @return
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Pending Transaction together with its arrival order
+     */
+    private static class PendingTransaction {
+        private final Transaction transaction;
+        private final long arrival;
+
+        private PendingTransaction(Transaction transaction, long arrival) {
+            this.transaction = transaction;
+            this.arrival = arrival;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.se310.ledger;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * MerkleLevels class implementation holding the interior levels of a sealed Block's MerkleTree.
+ * Nodes are packed as raw 32 byte digests, one array per level above the leaves, which is a fraction
+ * of the hex strings and leaf copies a MerkleTrees keeps. Leaves are not stored, they are the seed and
+ * the Block's Transactions, so a proof reads one sibling per level and hashes nothing.
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+final class MerkleLevels {
+
+    private static final int DIGEST_BYTES = 32;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final int leafCount;
+    // levels[k] holds tree level k + 1, the last one holds only the root
+    private final byte[][] levels;
+    private final String root;
+
+    private MerkleLevels(int leafCount, byte[][] levels, String root) {
+        this.leafCount = leafCount;
+        this.levels = levels;
+        this.root = root;
+    }
+
+    /**
+     * Pack the levels of a built tree, leaves first and root last
+     * @param treeLevels
+     * @return MerkleLevels
+     */
+    static MerkleLevels pack(List<List<String>> treeLevels) {
+        byte[][] levels = new byte[treeLevels.size() - 1][];
+        for (int level = 1; level < treeLevels.size(); level++) {
+            List<String> nodes = treeLevels.get(level);
+            byte[] packed = new byte[nodes.size() * DIGEST_BYTES];
+            for (int i = 0; i < nodes.size(); i++) {
+                decodeHex(nodes.get(i), packed, i * DIGEST_BYTES);
+            }
+            levels[level - 1] = packed;
+        }
+        List<String> top = treeLevels.get(treeLevels.size() - 1);
+        return new MerkleLevels(treeLevels.get(0).size(), levels, top.get(0));
+    }
+
+    /**
+     * Getter method for the Merkle Root
+     * @return
+     */
+    String getRoot() {
+        return root;
+    }
+
+    /**
+     * Get number of bytes held for the interior levels
+     * @return
+     */
+    long getSizeInBytes() {
+        long size = 0;
+        for (byte[] level : levels) {
+            size += level.length;
+        }
+        return size;
+    }
+
+    /**
+     * Build inclusion proof for the leaf at the given position
+     * - One lookup per level and no hashing, only the leaf level sibling is asked for
+     * @param leafIndex position of the leaf, zero being the seed
+     * @param leaves leaf value at a position
+     * @return MerkleProof or Null if index is out of range
+     */
+    MerkleProof getProof(int leafIndex, IntFunction<String> leaves) {
+        if (leafIndex < 0 || leafIndex >= leafCount) {
+            return null;
+        }
+
+        MerkleProof proof = new MerkleProof(leaves.apply(leafIndex), root);
+        // Last node without a pair is hashed with an empty right side
+        if (leafIndex % 2 == 0) {
+            proof.addStep(leafIndex + 1 < leafCount ? leaves.apply(leafIndex + 1) : "", false);
+        } else {
+            proof.addStep(leaves.apply(leafIndex - 1), true);
+        }
+        int index = leafIndex / 2;
+        for (int level = 0; level < levels.length - 1; level++) {
+            byte[] nodes = levels[level];
+            int nodeCount = nodes.length / DIGEST_BYTES;
+            if (index % 2 == 0) {
+                proof.addStep(index + 1 < nodeCount ? encodeHex(nodes, index + 1) : "", false);
+            } else {
+                proof.addStep(encodeHex(nodes, index - 1), true);
+            }
+            index /= 2;
+        }
+        return proof;
+    }
+
+    /**
+     * Helper method decoding a hex digest into the packed level
+     * @param hex
+     * @param packed
+     * @param offset
+     */
+    private static void decodeHex(String hex, byte[] packed, int offset) {
+        if (hex.length() != 2 * DIGEST_BYTES) {
+            throw new IllegalArgumentException("Merkle Node Is Not a SHA-256 Digest");
+        }
+        for (int i = 0; i < DIGEST_BYTES; i++) {
+            packed[offset + i] = (byte) ((Character.digit(hex.charAt(2 * i), 16) << 4)
+                    | Character.digit(hex.charAt(2 * i + 1), 16));
+        }
+    }
+
+    /**
+     * Helper method encoding the node at the position of a packed level as hex
+     * @param nodes
+     * @param index
+     * @return
+     */
+    private static String encodeHex(byte[] nodes, int index) {
+        char[] hex = new char[2 * DIGEST_BYTES];
+        int offset = index * DIGEST_BYTES;
+        for (int i = 0; i < DIGEST_BYTES; i++) {
+            hex[2 * i] = HEX_DIGITS[(nodes[offset + i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[nodes[offset + i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
@@ -0,0 +1,81 @@
+package com.se310.ledger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MerkleProof class implementation representing inclusion proof of a leaf in the MerkleTree.
+ * Each step holds the sibling value at that level and whether the sibling sits on the left,
+ * from the leaf level up to the level below the root
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class MerkleProof {
+
+    private final String leaf;
+    private final String root;
+    private final List<String> siblings = new ArrayList<>();
+    private final List<Boolean> siblingOnLeft = new ArrayList<>();
+
+    /**
+     * MerkleProof Constructor
+     * @param leaf value the proof is for
+     * @param root Merkle Root the proof leads to
+     */
+    public MerkleProof(String leaf, String root) {
+        this.leaf = leaf;
+        this.root = root;
+    }
+
+    /**
+     * Helper method for adding next step of the proof
+     * @param sibling value paired with the current node, empty if the node has no pair
+     * @param onLeft true if the sibling is hashed before the current node
+     */
+    public void addStep(String sibling, boolean onLeft) {
+        siblings.add(sibling);
+        siblingOnLeft.add(onLeft);
+    }
+
+    /**
+     * Getter method for the leaf value
+     * @return
+     */
+    public String getLeaf() {
+        return leaf;
+    }
+
+    /**
+     * Getter method for the Merkle Root
+     * @return
+     */
+    public String getRoot() {
+        return root;
+    }
+
+    /**
+     * Get number of steps in the proof
+     * @return
+     */
+    public int size() {
+        return siblings.size();
+    }
+
+    /**
+     * Get list of sibling values from the leaf up
+     * @return
+     */
+    public List<String> getSiblings() {
+        return Collections.unmodifiableList(siblings);
+    }
+
+    /**
+     * Get list of sibling positions from the leaf up
+     * @return
+     */
+    public List<Boolean> getSiblingOnLeft() {
+        return Collections.unmodifiableList(siblingOnLeft);
+    }
+}
@@ -1,8 +1,12 @@
 package com.se310.ledger;
 
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * MerkleTree Implementation
@@ -18,10 +22,45 @@ public class MerkleTrees {
     // Merkle Root
     String root;
 
+    // Every level of the tree, leaves first, kept for inclusion proofs
+    List<List<String>> levels;
+
+
+    // Levels at least this wide are hashed in parallel
+    static final int PARALLEL_THRESHOLD = 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // Hashes computed in this JVM, shows how much hashing an operation needs
+    private static final LongAdder HASH_COUNT = new LongAdder();
+
+    // Digest is reset by digest(), so each thread reuses one instead of looking it up per hash
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
 
     public MerkleTrees(List<String> txList) {
         this.txList = txList;
         root = "";
+        levels = new ArrayList<List<String>>();
+    }
+
+    /**
+     * Create tree whose levels have already been hashed, such as by IncrementalMerkleBuilder
+     *
+     * @param levels every level of the tree, leaves first and root last
+     * @return
+     */
+    static MerkleTrees fromLevels(List<List<String>> levels) {
+        MerkleTrees merkleTrees = new MerkleTrees(levels.get(0));
+        merkleTrees.levels = levels;
+        merkleTrees.root = levels.get(levels.size() - 1).get(0);
+        return merkleTrees;
     }
 
     public void merkle_tree() {
@@ -31,15 +70,91 @@ public class MerkleTrees {
             tempTxList.add(this.txList.get(i));
         }
 
+        levels = new ArrayList<List<String>>();
+        levels.add(tempTxList);
+
         List<String> newTxList = getNewTxList(tempTxList);
+        levels.add(newTxList);
         while (newTxList.size() != 1) {
             newTxList = getNewTxList(newTxList);
+            levels.add(newTxList);
         }
 
         this.root = newTxList.get(0);
     }
 
+    /**
+     * Build inclusion proof for the leaf at the given position
+     * - Walks the retained levels, so it costs one lookup per level and no hashing
+     *
+     * @param leafIndex position of the leaf in the original list
+     * @return MerkleProof or Null if the tree has not been built or index is out of range
+     */
+    public MerkleProof getProof(int leafIndex) {
+        if (levels.isEmpty() || leafIndex < 0 || leafIndex >= levels.get(0).size()) {
+            return null;
+        }
+
+        MerkleProof proof = new MerkleProof(levels.get(0).get(leafIndex), root);
+        int index = leafIndex;
+        for (int level = 0; level < levels.size() - 1; level++) {
+            List<String> nodes = levels.get(level);
+            if (index % 2 == 0) {
+                // Last node without a pair is hashed with an empty right side
+                proof.addStep(index + 1 < nodes.size() ? nodes.get(index + 1) : "", false);
+            } else {
+                proof.addStep(nodes.get(index - 1), true);
+            }
+            index /= 2;
+        }
+        return proof;
+    }
+
+    /**
+     * Verify that the leaf is included under the given root
+     *
+     * @param leaf
+     * @param proof
+     * @param root
+     * @return true if hashing the leaf along the proof reproduces the root
+     */
+    public static boolean verifyProof(String leaf, MerkleProof proof, String root) {
+        if (leaf == null || proof == null || root == null) {
+            return false;
+        }
+
+        String current = leaf;
+        for (int i = 0; i < proof.size(); i++) {
+            String sibling = proof.getSiblings().get(i);
+            current = sha2Hex(proof.getSiblingOnLeft().get(i) ? sibling + current : current + sibling);
+        }
+        return current.equals(root);
+    }
+
     private List<String> getNewTxList(List<String> tempTxList) {
+        return combineLevel(tempTxList);
+    }
+
+    /**
+     * Hash each pair of a level into the level above, shared with IncrementalMerkleBuilder
+     * - Last node without a pair is hashed with an empty right side
+     *
+     * @param tempTxList nodes of the level
+     * @return nodes of the level above
+     */
+    static List<String> combineLevel(List<String> tempTxList) {
+
+        if (tempTxList.size() >= PARALLEL_THRESHOLD) {
+            // Pairs of a level are independent, so wide levels are split across cores
+            return IntStream.range(0, (tempTxList.size() + 1) / 2)
+                    .parallel()
+                    .mapToObj(pair -> {
+                        String left = tempTxList.get(2 * pair);
+                        String right = 2 * pair + 1 < tempTxList.size() ? tempTxList.get(2 * pair + 1) : "";
+                        return sha2Hex(left + right);
+                    })
+                    .collect(Collectors.toList());
+        }
 
         List<String> newTxList = new ArrayList<String>();
         int index = 0;
@@ -55,7 +170,7 @@ public class MerkleTrees {
             }
 
             // sha2 hex value
-            String sha2HexValue = getSHA2HexValue(left + right);
+            String sha2HexValue = sha2Hex(left + right);
             newTxList.add(sha2HexValue);
             index++;
 
@@ -71,16 +186,28 @@ public class MerkleTrees {
      * @return
      */
     public String getSHA2HexValue(String str) {
+        return sha2Hex(str);
+    }
+
+    /**
+     * Return hex string, shared with proof verification
+     *
+     * @param str
+     * @return
+     */
+    static String sha2Hex(String str) {
         byte[] cipher_byte;
+        HASH_COUNT.increment();
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = SHA_256.get();
             md.update(str.getBytes());
             cipher_byte = md.digest();
-            StringBuilder sb = new StringBuilder(2 * cipher_byte.length);
-            for (byte b : cipher_byte) {
-                sb.append(String.format("%02x", b & 0xff));
+            char[] hex = new char[2 * cipher_byte.length];
+            for (int i = 0; i < cipher_byte.length; i++) {
+                hex[2 * i] = HEX_DIGITS[(cipher_byte[i] >> 4) & 0xf];
+                hex[2 * i + 1] = HEX_DIGITS[cipher_byte[i] & 0xf];
             }
-            return sb.toString();
+            return new String(hex);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -88,6 +215,15 @@ public class MerkleTrees {
         return "";
     }
 
+    /**
+     * Get number of SHA-256 hashes computed in this JVM so far
+     *
+     * @return
+     */
+    public static long getHashCount() {
+        return HASH_COUNT.sum();
+    }
+
     /**
      * Get Root
      *
@@ -0,0 +1,83 @@
+package com.se310.ledger;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * RateLimiter class implementation keeping one token bucket per payer address.
+ * Each payer may spend a burst of Transactions at once and then as many as its bucket refills,
+ * so one payer flooding the Ledger is turned away before it takes the lock other payers wait on.
+ * Every Transaction that passes the specification checks spends a permit, including one rejected
+ * afterwards for its funds or a duplicate id, since a rejected attempt still takes the Ledger lock
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final ConcurrentMap<String,TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * RateLimiter Constructor
+     * @param permitsPerSecond rate every bucket refills at
+     * @param burst capacity of every bucket
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and Burst Must Be Positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Take one permit from the payer's bucket
+     * @param address
+     * @return true if the payer had a permit left
+     */
+    public boolean tryAcquire(String address) {
+        return buckets.computeIfAbsent(address, key -> new TokenBucket(burst)).tryAcquire();
+    }
+
+    /**
+     * Getter method for the refill rate
+     * @return
+     */
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Getter method for the bucket capacity
+     * @return
+     */
+    public int getBurst() {
+        return burst;
+    }
+
+    /**
+     * Token bucket of one payer, refilled lazily when a permit is requested
+     */
+    private class TokenBucket {
+        private double tokens;
+        private long lastRefillNanos;
+
+        private TokenBucket(int tokens) {
+            this.tokens = tokens;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        private synchronized boolean tryAcquire() {
+            long nowNanos = System.nanoTime();
+            tokens = Math.min(burst, tokens + (nowNanos - lastRefillNanos) * permitsPerSecond / 1_000_000_000.0);
+            lastRefillNanos = nowNanos;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.se310.ledger;
+
+/**
+ * Receipt class implementation describing where an applied Transaction landed in the Blockchain
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class Receipt {
+
+    private final String transactionId;
+    private final int blockNumber;
+    private final String blockHash;
+
+    /**
+     * Receipt Constructor
+     * @param transactionId
+     * @param blockNumber Block the Transaction was added to
+     * @param blockHash hash of the Block or Null if it has not been sealed yet
+     */
+    public Receipt(String transactionId, int blockNumber, String blockHash) {
+        this.transactionId = transactionId;
+        this.blockNumber = blockNumber;
+        this.blockHash = blockHash;
+    }
+
+    /**
+     * Getter method for transaction id
+     * @return
+     */
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Getter method for the number of the Block the Transaction was added to
+     * @return
+     */
+    public int getBlockNumber() {
+        return blockNumber;
+    }
+
+    /**
+     * Getter method for the hash of the Block the Transaction was added to
+     * @return String or Null if the Block has not been sealed yet
+     */
+    public String getBlockHash() {
+        return blockHash;
+    }
+
+    /**
+     * Check whether the Block the Transaction was added to has been sealed
+     * @return
+     */
+    public boolean isSealed() {
+        return blockHash != null;
+    }
+}
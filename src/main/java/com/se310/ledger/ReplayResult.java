@@ -0,0 +1,92 @@
+package com.se310.ledger;
+
+/**
+ * ReplayResult class implementation describing the outcome of a ReplayVerifier run
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplayResult {
+
+    private final long linesCompared;
+    private final long divergenceLineNumber;
+    private final String expectedLine;
+    private final String actualLine;
+    private final String stateDigest;
+
+    /**
+     * ReplayResult Constructor
+     * @param linesCompared number of output lines that matched the expected results
+     * @param divergenceLineNumber line of the expected results file that differed, or 0 if all matched
+     * @param expectedLine expected line at the divergence, or Null past the end of the expected results
+     * @param actualLine output line at the divergence, or Null past the end of the output
+     * @param stateDigest digest of the Ledger state once the commands were replayed
+     */
+    public ReplayResult(long linesCompared, long divergenceLineNumber, String expectedLine, String actualLine,
+                        String stateDigest) {
+        this.linesCompared = linesCompared;
+        this.divergenceLineNumber = divergenceLineNumber;
+        this.expectedLine = expectedLine;
+        this.actualLine = actualLine;
+        this.stateDigest = stateDigest;
+    }
+
+    /**
+     * Check whether the output matched the expected results line for line
+     * @return
+     */
+    public boolean isMatched() {
+        return divergenceLineNumber == 0;
+    }
+
+    /**
+     * Getter method for the number of output lines that matched
+     * @return
+     */
+    public long getLinesCompared() {
+        return linesCompared;
+    }
+
+    /**
+     * Getter method for the line of the expected results file where the output first differed
+     * @return line number or 0 if the output matched
+     */
+    public long getDivergenceLineNumber() {
+        return divergenceLineNumber;
+    }
+
+    /**
+     * Getter method for the expected line at the divergence
+     * @return line or Null when the output went past the end of the expected results
+     */
+    public String getExpectedLine() {
+        return expectedLine;
+    }
+
+    /**
+     * Getter method for the output line at the divergence
+     * @return line or Null when the output ended before the expected results
+     */
+    public String getActualLine() {
+        return actualLine;
+    }
+
+    /**
+     * Getter method for the SHA-256 digest of balances and latest Block hashes after the replay
+     * - Digest is Null when the replay stopped at a divergence
+     * @return
+     */
+    public String getStateDigest() {
+        return stateDigest;
+    }
+
+    @Override
+    public String toString() {
+        if (isMatched()) {
+            return "Matched: " + linesCompared + " lines, State Digest: " + stateDigest;
+        }
+        return "Diverged at Line: " + divergenceLineNumber
+                + "\n  Expected: " + (expectedLine == null ? "<end of expected results>" : expectedLine)
+                + "\n  Actual:   " + (actualLine == null ? "<end of output>" : actualLine);
+    }
+}
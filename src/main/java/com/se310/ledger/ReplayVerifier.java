@@ -0,0 +1,259 @@
+package com.se310.ledger;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * ReplayVerifier class implementation replaying commands and checking their output against expected results.
+ * Output is compared line by line as it is printed, so memory stays constant however long the run is,
+ * and the replay stops at the first line that differs. Once every line matched, a digest of the committed
+ * balances and latest Block hash of each Ledger is computed, so two runs can also be compared by state:
+ *   ReplayVerifier [--skip n] [script | -] expected
+ * where --skip drops header lines of the expected results, such as the command line of results_ledger-1.txt
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplayVerifier {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String USAGE = "Usage: ReplayVerifier [--skip n] [script | -] expected";
+
+    private final int skipLines;
+
+    /**
+     * ReplayVerifier Constructor
+     * @param skipLines number of header lines of the expected results that are not output
+     */
+    public ReplayVerifier(int skipLines) {
+        if (skipLines < 0) {
+            throw new IllegalArgumentException("Skipped Lines Must Not Be Negative");
+        }
+        this.skipLines = skipLines;
+    }
+
+    /**
+     * Replay script and compare its output with the expected results file
+     * @param script
+     * @param expected
+     * @return ReplayResult
+     * @throws IOException
+     */
+    public ReplayResult verify(Path script, Path expected) throws IOException {
+        try (BufferedReader commands = Files.newBufferedReader(script);
+             BufferedReader expectedLines = Files.newBufferedReader(expected)) {
+            return verify(commands, expectedLines);
+        }
+    }
+
+    /**
+     * Replay commands, such as a generated workload, and compare their output with the expected results
+     * - Each replay uses its own LedgerRegistry, so runs are independent of each other
+     * @param commands
+     * @param expected
+     * @return ReplayResult
+     * @throws IOException
+     */
+    public ReplayResult verify(BufferedReader commands, BufferedReader expected) throws IOException {
+        for (int i = 0; i < skipLines; i++) {
+            expected.readLine();
+        }
+
+        LineComparator comparator = new LineComparator(expected, skipLines);
+        PrintStream out = new PrintStream(comparator, false, StandardCharsets.UTF_8);
+        LedgerRegistry ledgerRegistry = new LedgerRegistry();
+        FileProcessor processor = new FileProcessor(ledgerRegistry);
+        processor.setOutput(out);
+        processor.setFailureOutput(out);
+
+        // No more commands are read once the output has diverged
+        processor.processCommands(new BufferedReader(commands, BUFFER_SIZE) {
+            @Override
+            public String readLine() throws IOException {
+                return comparator.isDiverged() ? null : super.readLine();
+            }
+        });
+        out.flush();
+        comparator.finish();
+
+        if (comparator.isDiverged()) {
+            return new ReplayResult(comparator.linesCompared, comparator.divergenceLineNumber,
+                    comparator.expectedLine, comparator.actualLine, null);
+        }
+        return new ReplayResult(comparator.linesCompared, 0, null, null, stateDigest(ledgerRegistry));
+    }
+
+    /**
+     * Compute SHA-256 digest over every Ledger's committed balances and latest Block hash
+     * - Ledgers and accounts are taken in name order, so the digest does not depend on map ordering
+     * @param ledgerRegistry
+     * @return hex encoded digest
+     */
+    public static String stateDigest(LedgerRegistry ledgerRegistry) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 Is Not Available", e);
+        }
+
+        for (String name : new TreeSet<>(ledgerRegistry.getLedgerNames())) {
+            LedgerSnapshot snapshot;
+            try {
+                snapshot = ledgerRegistry.getLedger(name).getSnapshot();
+            } catch (LedgerException e) {
+                // Removed while the digest was computed
+                continue;
+            }
+            Block latestBlock = snapshot.getLatestBlock();
+            StringBuilder state = new StringBuilder()
+                    .append("ledger ").append(name).append('\n')
+                    .append("block ").append(snapshot.getBlockNumber()).append(' ')
+                    .append(latestBlock == null ? "" : latestBlock.getHash()).append('\n');
+            for (Map.Entry<String,Integer> balance : new TreeMap<>(snapshot.getBalances()).entrySet()) {
+                state.append("balance ").append(balance.getKey()).append(' ').append(balance.getValue()).append('\n');
+            }
+            digest.update(state.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Replay script or stdin against the expected results and print the outcome
+     * - Exit code is 0 when the output matched, 1 when it diverged and 2 on usage errors
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        int skipLines = 0;
+        String source = "-";
+        String expected;
+
+        try {
+            int i = 0;
+            if (args.length > 1 && args[0].equals("--skip")) {
+                skipLines = Integer.parseInt(args[1]);
+                i = 2;
+            }
+            if (args.length - i == 2) {
+                source = args[i++];
+            } else if (args.length - i != 1) {
+                throw new IllegalArgumentException("Missing Arguments");
+            }
+            expected = args[i];
+        } catch (RuntimeException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        ReplayVerifier verifier = new ReplayVerifier(skipLines);
+        ReplayResult result;
+        try (BufferedReader commands = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), BUFFER_SIZE)
+                : Files.newBufferedReader(Path.of(source));
+             BufferedReader expectedLines = Files.newBufferedReader(Path.of(expected))) {
+            result = verifier.verify(commands, expectedLines);
+        }
+        System.out.println(result);
+        System.exit(result.isMatched() ? 0 : 1);
+    }
+
+    /**
+     * Output stream splitting printed output into lines and comparing each with the next expected line
+     */
+    private static class LineComparator extends OutputStream {
+
+        private final BufferedReader expected;
+        private final long lineOffset;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+        private long linesCompared;
+        private long divergenceLineNumber;
+        private String expectedLine;
+        private String actualLine;
+        private IOException failure;
+
+        private LineComparator(BufferedReader expected, long lineOffset) {
+            this.expected = expected;
+            this.lineOffset = lineOffset;
+        }
+
+        private boolean isDiverged() {
+            return divergenceLineNumber != 0;
+        }
+
+        @Override
+        public void write(int b) {
+            if (isDiverged()) {
+                return;
+            }
+            if (b == '\n') {
+                compare(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            } else if (b != '\r') {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(bytes[i]);
+            }
+        }
+
+        /**
+         * Compare the last line if it was not terminated and check nothing more was expected
+         * @throws IOException from reading the expected results
+         */
+        private void finish() throws IOException {
+            if (!isDiverged() && line.size() > 0) {
+                compare(line.toString(StandardCharsets.UTF_8));
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (!isDiverged()) {
+                String remaining = expected.readLine();
+                if (remaining != null) {
+                    diverge(remaining, null);
+                }
+            }
+        }
+
+        private void compare(String actual) {
+            String expectedNext;
+            try {
+                expectedNext = expected.readLine();
+            } catch (IOException e) {
+                // PrintStream swallows exceptions, so it is rethrown by finish
+                failure = e;
+                diverge(null, actual);
+                return;
+            }
+            if (!actual.equals(expectedNext)) {
+                diverge(expectedNext, actual);
+            } else {
+                linesCompared++;
+            }
+        }
+
+        private void diverge(String expectedNext, String actual) {
+            divergenceLineNumber = lineOffset + linesCompared + 1;
+            expectedLine = expectedNext;
+            actualLine = actual;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.se310.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * ReplicationFollower class implementation applying Blocks streamed by a ReplicationLeader.
+ * Each Block is checked for number, previous hash and Merkle Root continuity before it is
+ * installed, and after a disconnect the follower reconnects and resumes from its last Block
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplicationFollower {
+
+    private static final long RECONNECT_MILLIS = 500;
+
+    private final Ledger ledger;
+    private final int port;
+    private volatile boolean running;
+    private volatile Socket socket;
+    private volatile String failureReason;
+    private Thread followerThread;
+
+    /**
+     * ReplicationFollower Constructor
+     * @param ledger Ledger created with the same seed as the leader
+     * @param port loopback port of the leader
+     */
+    public ReplicationFollower(Ledger ledger, int port) {
+        this.ledger = ledger;
+        this.port = port;
+    }
+
+    /**
+     * Start following the leader
+     */
+    public synchronized void start() {
+        running = true;
+        followerThread = new Thread(this::follow, "replication-follower-" + ledger.getName());
+        followerThread.setDaemon(true);
+        followerThread.start();
+    }
+
+    /**
+     * Stop following and wait for the follower thread to finish
+     */
+    public synchronized void stop() {
+        running = false;
+        closeSocket();
+        if (followerThread != null) {
+            try {
+                followerThread.join(RECONNECT_MILLIS * 4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Check whether follower is still replicating
+     * @return
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Getter method for the reason replication stopped on a bad Block
+     * @return String or Null if no Block has been rejected
+     */
+    public String getFailureReason() {
+        return failureReason;
+    }
+
+    /**
+     * Connect loop running on its own thread
+     */
+    private void follow() {
+        while (running) {
+            try (Socket leaderSocket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                socket = leaderSocket;
+                DataOutputStream out = new DataOutputStream(leaderSocket.getOutputStream());
+                DataInputStream in = new DataInputStream(new BufferedInputStream(leaderSocket.getInputStream()));
+
+                out.writeInt(getLastBlockNumber());
+                out.flush();
+
+                while (running) {
+                    ledger.installBlock(BlockCodec.readBlock(in));
+                }
+            } catch (IOException e) {
+                // Leader unavailable or connection dropped, retry below
+            } catch (LedgerException e) {
+                // Diverged chain cannot be repaired by reconnecting
+                failureReason = e.getReason();
+                running = false;
+            }
+
+            if (running) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method returning the number of the last installed Block
+     * @return int or 0 if no Block has been installed
+     */
+    private int getLastBlockNumber() {
+        try {
+            return ledger.getNumberOfBlocks() == 0 ? 0 : ledger.getLatestBlock().getBlockNumber();
+        } catch (LedgerException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Helper method closing current connection
+     */
+    private void closeSocket() {
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.se310.ledger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * ReplicationLeader class implementation streaming sealed Blocks to followers over loopback.
+ * A follower connects, sends the number of the last Block it holds, and receives every Block
+ * after it, first the backlog and then each Block as soon as it is sealed
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplicationLeader implements LedgerListener {
+
+    private static final long WAIT_MILLIS = 1000;
+
+    private final Ledger ledger;
+    private final ServerSocket serverSocket;
+    private final List<Socket> followerSockets = new CopyOnWriteArrayList<>();
+    private final Object sealMonitor = new Object();
+    private volatile long sealCount;
+    private volatile boolean running;
+
+    /**
+     * ReplicationLeader Constructor
+     * @param ledger Ledger whose Blocks are replicated
+     * @param port loopback port to listen on, 0 picks a free port
+     * @throws IOException
+     */
+    public ReplicationLeader(Ledger ledger, int port) throws IOException {
+        this.ledger = ledger;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Getter method for the port followers connect to
+     * @return
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Start accepting followers
+     */
+    public void start() {
+        running = true;
+        ledger.addLedgerListener(this);
+
+        Thread acceptThread = new Thread(this::acceptFollowers, "replication-leader-" + ledger.getName());
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * Stop replication and disconnect all followers
+     */
+    public void stop() {
+        running = false;
+        ledger.removeLedgerListener(this);
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        for (Socket socket : followerSockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+        synchronized (sealMonitor) {
+            sealMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Wake up follower streams waiting for the next Block
+     * @param ledger
+     * @param block
+     */
+    @Override
+    public void blockSealed(Ledger ledger, Block block) {
+        synchronized (sealMonitor) {
+            sealCount++;
+            sealMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Accept loop running on its own thread
+     */
+    private void acceptFollowers() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                followerSockets.add(socket);
+
+                Thread followerThread = new Thread(() -> serveFollower(socket),
+                        "replication-stream-" + socket.getPort());
+                followerThread.setDaemon(true);
+                followerThread.start();
+            } catch (IOException e) {
+                // Server socket closed by stop
+            }
+        }
+    }
+
+    /**
+     * Stream Blocks to one follower until it disconnects
+     * @param socket
+     */
+    private void serveFollower(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+
+            // Resume right after the last Block the follower already has
+            int nextBlockNumber = in.readInt() + 1;
+
+            while (running) {
+                long seenSealCount = sealCount;
+                Block block = readBlock(nextBlockNumber);
+
+                if (block != null) {
+                    BlockCodec.writeBlock(out, block);
+                    nextBlockNumber++;
+                    continue;
+                }
+
+                // Caught up, push what has been written and wait for the next seal
+                out.flush();
+                synchronized (sealMonitor) {
+                    if (running && seenSealCount == sealCount) {
+                        sealMonitor.wait(WAIT_MILLIS);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Follower disconnected, it resumes from its last Block when it reconnects
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followerSockets.remove(socket);
+        }
+    }
+
+    /**
+     * Helper method reading committed Block from the published snapshot
+     * @param blockNumber
+     * @return Block or Null if it has not been sealed yet
+     */
+    private Block readBlock(int blockNumber) {
+        return ledger.lookupBlock(blockNumber);
+    }
+}
@@ -0,0 +1,119 @@
+package com.se310.ledger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ScalableBloomFilter class implementation growing a chain of BloomFilters as keys are added.
+ * Each new stage doubles the capacity of the previous one and halves its false positive rate,
+ * so the overall rate stays under the configured one no matter how many keys are added
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ScalableBloomFilter {
+
+    public static final long DEFAULT_INITIAL_CAPACITY = 65536;
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final List<BloomFilter> stages = new CopyOnWriteArrayList<>();
+    private final AtomicLong count = new AtomicLong();
+    private long stageCapacity;
+    private double stageFalsePositiveRate;
+    private long stageLimit;
+
+    /**
+     * ScalableBloomFilter Constructor
+     * @param initialCapacity number of keys the first stage is sized for
+     * @param falsePositiveRate overall false positive rate to stay under
+     */
+    public ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        if (initialCapacity < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid Bloom Filter Size");
+        }
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+
+        // Rates of the stages form a geometric series that sums to the configured rate
+        this.stageCapacity = initialCapacity;
+        this.stageFalsePositiveRate = falsePositiveRate / 2;
+        this.stageLimit = initialCapacity;
+        stages.add(new BloomFilter(stageCapacity, stageFalsePositiveRate));
+    }
+
+    /**
+     * Add key to the newest stage, starting a new stage once it is full
+     * @param key
+     */
+    public synchronized void add(String key) {
+        if (count.get() >= stageLimit) {
+            stageCapacity *= 2;
+            stageFalsePositiveRate /= 2;
+            stageLimit += stageCapacity;
+            stages.add(new BloomFilter(stageCapacity, stageFalsePositiveRate));
+        }
+        stages.get(stages.size() - 1).add(key);
+        count.incrementAndGet();
+    }
+
+    /**
+     * Check whether key may have been added
+     * @param key
+     * @return false if the key has definitely not been added
+     */
+    public boolean mightContain(String key) {
+        for (BloomFilter stage : stages) {
+            if (stage.mightContain(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get number of keys added
+     * @return
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Get number of stages allocated so far
+     * @return
+     */
+    public int getStageCount() {
+        return stages.size();
+    }
+
+    /**
+     * Get memory used by all stages
+     * @return long representing number of bytes
+     */
+    public long getMemoryBytes() {
+        long memoryBytes = 0;
+        for (BloomFilter stage : stages) {
+            memoryBytes += stage.getMemoryBytes();
+        }
+        return memoryBytes;
+    }
+
+    /**
+     * Getter method for the configured false positive rate
+     * @return
+     */
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /**
+     * Getter method for the capacity of the first stage
+     * @return
+     */
+    public long getInitialCapacity() {
+        return initialCapacity;
+    }
+}
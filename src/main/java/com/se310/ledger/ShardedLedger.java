@@ -0,0 +1,387 @@
+package com.se310.ledger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ShardedLedger class implementation partitioning accounts across independent Ledger shards.
+ * Every shard keeps its own uncommitted block, lock and Merkle hashing, so transactions whose
+ * payers live in different shards are processed and sealed in parallel.
+ * Cross shard transfers run a two-phase protocol, each step holding only the lock of the shard it changes:
+ * - Prepare: the receiver shard holds the id, then the payer shard checks the transfer, holds the id
+ *   and reserves amount and fee on the payer, a failure aborts whatever was prepared
+ * - Commit: the payer shard journals the transfer and records it with its fee, turning the reservation
+ *   into the debit, a journal refusal aborts both sides
+ * - Once the debit is committed the receiver shard is credited and records a credit entry with the same
+ *   id and no fee, so the credit is part of its Merkle roots, nothing can refuse that step
+ * The journal wait runs after every lock is released, so transfers still share group commits.
+ * Transaction ids are unique across all shards, an id is reserved only while its transfer is in flight.
+ *
+ * @author  Joshua Vaysman
+ * @version 1.3
+ */
+public class ShardedLedger {
+
+    private final String name;
+    private final String seed;
+    private final Ledger[] shards;
+    private final ExecutorService[] shardExecutors;
+    private final FinancialOps finOps = new FinancialOps();
+    private final TransactionValidator validator = new TransactionValidator();
+    // Ids of transfers in flight, to the amount debited but not credited yet, which validate counts
+    private final Map<String,Integer> inFlightIds = new ConcurrentHashMap<>();
+    private ScheduledExecutorService globalRootExecutor;
+    private volatile String globalRoot = "";
+
+    /**
+     * ShardedLedger Constructor
+     * @param name
+     * @param description
+     * @param seed
+     * @param shardCount number of shards accounts are partitioned across
+     */
+    public ShardedLedger(String name, String description, String seed, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard Count Must Be Positive");
+        }
+        this.name = name;
+        this.seed = seed;
+        this.shards = new Ledger[shardCount];
+        this.shardExecutors = new ExecutorService[shardCount];
+
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Ledger(name + "#" + i, description, seed);
+            shardExecutors[i] = newShardExecutor(name + "#" + i);
+        }
+
+        // Only the home shard of master keeps the genesis funds
+        int masterShard = shardIndex("master", shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            if (i != masterShard) {
+                shards[i].getUncommittedBlock().getAccountBalanceMap().remove("master");
+            }
+        }
+    }
+
+    /**
+     * Helper method creating the thread a shard's submitted transactions run on
+     * - Daemon thread, so a ShardedLedger that is never shut down does not keep the JVM alive
+     * @param shardName
+     * @return
+     */
+    private static ExecutorService newShardExecutor(String shardName) {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shard-" + shardName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Getter method for the name of the ShardedLedger
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get number of shards
+     * @return
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Get shard index the account address is partitioned to
+     * @param address
+     * @return
+     */
+    public int getShardIndex(String address) {
+        return shardIndex(address, shards.length);
+    }
+
+    /**
+     * Helper method partitioning addresses, also used while the shards are being created
+     * @param address
+     * @param shardCount
+     * @return
+     */
+    private static int shardIndex(String address, int shardCount) {
+        return Math.floorMod(address.hashCode(), shardCount);
+    }
+
+    /**
+     * Get shard Ledger the account address is partitioned to
+     * @param address
+     * @return
+     */
+    public Ledger getShard(String address) {
+        return shards[getShardIndex(address)];
+    }
+
+    /**
+     * Method for adding account to its shard
+     * @param address
+     * @throws LedgerException
+     */
+    public void createAccount(String address) throws LedgerException {
+        getShard(address).addToLedger(new Account(address, 0));
+    }
+
+    /**
+     * Get committed Account balance from the account's shard
+     * @param address
+     * @return Integer representing balance of the Account
+     * @throws LedgerException
+     */
+    public Integer getAccountBalance(String address) throws LedgerException {
+        return getShard(address).getAccountBalance(address);
+    }
+
+    /**
+     * Process transaction on the caller's thread
+     * @param transactionId
+     * @param amount
+     * @param fee
+     * @param note
+     * @param payerAddress
+     * @param receiverAddress
+     * @return String representing transaction id
+     * @throws LedgerException
+     */
+    public String processTransaction(String transactionId, int amount, int fee, String note,
+                                     String payerAddress, String receiverAddress) throws LedgerException {
+
+        Ledger payerShard = getShard(payerAddress);
+        Ledger receiverShard = getShard(receiverAddress);
+
+        //Reserve the id while the transfer is in flight, so the same id cannot be applied twice at once
+        if (inFlightIds.putIfAbsent(transactionId, 0) != null) {
+            throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+        }
+        try {
+            //Recorded ids are found in the shards, so the reservation is only held until the transfer is done
+            for (Ledger shard : shards) {
+                if (finOps.getTransaction(shard, transactionId) != null) {
+                    throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+                }
+            }
+
+            //Specification checks need no lock, accounts are resolved by each shard under its own lock
+            Transaction transfer = new Transaction(transactionId, amount, fee, note, null, null);
+            validator.preValidate(payerShard, transfer);
+            TransactionJournal journal = payerShard.getTransactionJournal();
+            long sequence = receiverShard == payerShard
+                    ? processInShard(payerShard, transfer, payerAddress, receiverAddress, journal)
+                    : transfer(payerShard, receiverShard, transfer, payerAddress, receiverAddress, journal);
+            finOps.awaitDurable(journal, sequence);
+            return transactionId;
+        } finally {
+            inFlightIds.remove(transactionId);
+        }
+    }
+
+    /**
+     * Helper method applying transfer between two accounts of the same shard under its lock
+     * @return journal sequence number of the Transaction
+     * @throws LedgerException
+     */
+    private long processInShard(Ledger shard, Transaction transfer, String payerAddress, String receiverAddress,
+                                TransactionJournal journal) throws LedgerException {
+        shard.getLock().lock();
+        try {
+            Account payer = shard.getUncommittedBlock().getAccount(payerAddress);
+            Account receiver = shard.getUncommittedBlock().getAccount(receiverAddress);
+            if (payer == null || receiver == null) {
+                throw new LedgerException("Process Transaction", "Account Does Not Exist");
+            }
+            return finOps.applyValidated(shard, new Transaction(transfer.getTransactionId(), transfer.getAmount(),
+                    transfer.getFee(), transfer.getNote(), payer, receiver), journal);
+        } finally {
+            shard.getLock().unlock();
+        }
+    }
+
+    /**
+     * Helper method running the two-phase protocol for a transfer between shards
+     * - No step holds more than one shard lock, so transfers in opposite directions cannot deadlock
+     * @return journal sequence number of the debit
+     * @throws LedgerException
+     */
+    private long transfer(Ledger payerShard, Ledger receiverShard, Transaction transfer, String payerAddress,
+                          String receiverAddress, TransactionJournal journal) throws LedgerException {
+        String transactionId = transfer.getTransactionId();
+
+        //Prepare
+        Account receiver = finOps.prepareCredit(receiverShard, transactionId, receiverAddress);
+        Transaction debit;
+        try {
+            debit = finOps.prepareDebit(payerShard, transfer, payerAddress, receiver);
+        } catch (LedgerException | RuntimeException e) {
+            finOps.abortCredit(receiverShard, transactionId);
+            throw e;
+        }
+
+        //Commit the debit, its amount counts as in flight until the credit is recorded
+        long sequence = 0;
+        boolean debited = false;
+        try {
+            payerShard.getLock().lock();
+            try {
+                sequence = finOps.commitDebit(payerShard, debit, journal);
+            } finally {
+                //Id is still held only if the debit was not recorded
+                debited = !payerShard.isPreparedTransactionId(transactionId);
+                if (debited) {
+                    inFlightIds.put(transactionId, transfer.getAmount());
+                }
+                payerShard.getLock().unlock();
+            }
+        } finally {
+            if (debited) {
+                //Credit follows a recorded debit even if sealing the payer's Block failed afterwards
+                receiverShard.getLock().lock();
+                try {
+                    finOps.commitCredit(receiverShard, debit);
+                } finally {
+                    inFlightIds.put(transactionId, 0);
+                    receiverShard.getLock().unlock();
+                }
+            } else {
+                finOps.abortDebit(payerShard, debit);
+                finOps.abortCredit(receiverShard, transactionId);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Submit transaction to the payer shard's own thread
+     * - Transactions of one shard are applied in submission order, shards run in parallel
+     * @return CompletableFuture completed with transaction id or failed with LedgerException
+     */
+    public CompletableFuture<String> submitTransaction(String transactionId, int amount, int fee, String note,
+                                                       String payerAddress, String receiverAddress) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return processTransaction(transactionId, amount, fee, note, payerAddress, receiverAddress);
+            } catch (LedgerException e) {
+                throw new CompletionException(e);
+            }
+        }, shardExecutors[getShardIndex(payerAddress)]);
+    }
+
+    /**
+     * Derive global root from the latest committed hash of every shard
+     * @return String representing Merkle Root over the shard roots
+     */
+    public String computeGlobalRoot() {
+        List<String> shardRoots = new ArrayList<>();
+        shardRoots.add(seed);
+        for (Ledger shard : shards) {
+            // Shard that has not committed a block yet contributes an empty root
+            Block latestBlock = shard.getSnapshot().getLatestBlock();
+            shardRoots.add(latestBlock == null ? "" : latestBlock.getHash());
+        }
+
+        MerkleTrees merkleTrees = new MerkleTrees(shardRoots);
+        merkleTrees.merkle_tree();
+        globalRoot = merkleTrees.getRoot();
+        return globalRoot;
+    }
+
+    /**
+     * Getter method for the most recently derived global root
+     * @return
+     */
+    public String getGlobalRoot() {
+        return globalRoot;
+    }
+
+    /**
+     * Start deriving the global root periodically in the background
+     * @param period
+     * @param unit
+     */
+    public synchronized void startGlobalRootUpdates(long period, TimeUnit unit) {
+        if (globalRootExecutor == null) {
+            globalRootExecutor = Executors.newSingleThreadScheduledExecutor();
+            globalRootExecutor.scheduleAtFixedRate(this::computeGlobalRoot, 0, period, unit);
+        }
+    }
+
+    /**
+     * Method for validating all shards.
+     * Check each shard for Hash consistency and Transaction count
+     * Check balances of all shards against the total, taken under all shard locks
+     */
+    public void validate() throws LedgerException {
+
+        for (Ledger shard : shards) {
+            shard.getLock().lock();
+        }
+        try {
+            long total = 0;
+            for (Ledger shard : shards) {
+                Block previous = null;
+                Iterable<Block> blocks = shard.getNumberOfBlocks() == 0 ? List.of() : shard.getBlockMap().values();
+                for (Block block : blocks) {
+                    if (previous != null && !block.getPreviousHash().equals(previous.getHash())) {
+                        throw new LedgerException("Validate", "Hash Is Inconsistent: "
+                                + shard.getName() + " " + block.getBlockNumber());
+                    }
+                    if (block.getTransactionCount() != block.getBlockSize()) {
+                        throw new LedgerException("Validate", "Transaction Count Is Not " + block.getBlockSize()
+                                + " In Block: "
+                                + shard.getName() + " " + block.getBlockNumber());
+                    }
+                    total += block.getFeeTotal();
+                    previous = block;
+                }
+
+                // Cross shard credits may not be sealed yet, so balances come from the uncommitted state
+                for (Transaction transaction : shard.getUncommittedBlock().getTransactionList()) {
+                    total += transaction.getFee();
+                }
+                for (Account account : shard.getUncommittedBlock().getAccountBalanceMap().values()) {
+                    total += account.getAvailableBalance() + account.getReservedBalance();
+                }
+            }
+
+            // Transfers debited in the payer shard whose credit has not been recorded yet
+            for (int amount : inFlightIds.values()) {
+                total += amount;
+            }
+
+            if (total != Integer.MAX_VALUE) {
+                throw new LedgerException("Validate", "Balance Does Not Add Up");
+            }
+        } finally {
+            for (int i = shards.length - 1; i >= 0; i--) {
+                shards[i].getLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Stop shard and background threads
+     */
+    public synchronized void shutdown() {
+        for (ExecutorService executor : shardExecutors) {
+            executor.shutdown();
+        }
+        if (globalRootExecutor != null) {
+            globalRootExecutor.shutdownNow();
+        }
+    }
+}
@@ -4,17 +4,22 @@ package com.se310.ledger;
  * Transaction class implementation representing operation in the Blockchain
  *
  * @author  Sergey L. Sundukovskiy
- * @version 1.0
+ * @version 1.3
  */
 public class Transaction {
 
     private String transactionId;
-    private Integer amount;
-    private Integer fee;
+    private int amount;
+    private int fee;
     private String note;
     private Account payer;
     private Account receiver;
 
+    // Set once the Transaction enters a Block or the Mempool, after which it can no longer change
+    private volatile boolean accepted;
+    // Canonical Merkle leaf encoding, built on first use after acceptance and reused from then on
+    private String leaf;
+
     /**
      * Constructor for Transaction
      * @param transactionId
@@ -24,7 +29,7 @@ public class Transaction {
      * @param payer
      * @param receiver
      */
-    public Transaction(String transactionId, Integer amount, Integer fee, String note, Account payer, Account receiver) {
+    public Transaction(String transactionId, int amount, int fee, String note, Account payer, Account receiver) {
         this.transactionId = transactionId;
         this.amount = amount;
         this.fee = fee;
@@ -46,6 +51,7 @@ public class Transaction {
      * @param transactionId
      */
     public void setTransactionId(String transactionId) {
+        checkNotAccepted();
         this.transactionId = transactionId;
     }
 
@@ -53,7 +59,7 @@ public class Transaction {
      * Getter method for transaction amount
      * @return
      */
-    public Integer getAmount() {
+    public int getAmount() {
         return amount;
     }
 
@@ -61,7 +67,8 @@ public class Transaction {
      * Setter method for transaction amount
      * @param amount
      */
-    public void setAmount(Integer amount) {
+    public void setAmount(int amount) {
+        checkNotAccepted();
         this.amount = amount;
     }
 
@@ -69,7 +76,7 @@ public class Transaction {
      * Getter method for transaction fee
      * @return
      */
-    public Integer getFee() {
+    public int getFee() {
         return fee;
     }
 
@@ -77,7 +84,8 @@ public class Transaction {
      * Setter method for transaction fee
      * @param fee
      */
-    public void setFee(Integer fee) {
+    public void setFee(int fee) {
+        checkNotAccepted();
         this.fee = fee;
     }
 
@@ -94,6 +102,7 @@ public class Transaction {
      * @param note
      */
     public void setNote(String note) {
+        checkNotAccepted();
         this.note = note;
     }
 
@@ -110,6 +119,7 @@ public class Transaction {
      * @param payer
      */
     public void setPayer(Account payer) {
+        checkNotAccepted();
         this.payer = payer;
     }
 
@@ -126,15 +136,55 @@ public class Transaction {
      * @param receiver
      */
     public void setReceiver(Account receiver) {
+        checkNotAccepted();
         this.receiver = receiver;
     }
 
+    /**
+     * Mark Transaction as accepted, freezing its fields and the addresses of its accounts
+     * so the cached leaf cannot drift
+     */
+    public void accept() {
+        if (payer != null) {
+            payer.freezeAddress();
+        }
+        if (receiver != null) {
+            receiver.freezeAddress();
+        }
+        this.accepted = true;
+    }
+
+    /**
+     * Check whether Transaction has been accepted
+     * @return
+     */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
     /**
      * Method used by MerkleTrees
+     * - Built once for accepted Transactions and shared by sealing, validation and proofs
      * @return
      */
     @Override
     public String toString() {
+        if (!accepted) {
+            return buildLeaf();
+        }
+        String cachedLeaf = leaf;
+        if (cachedLeaf == null) {
+            cachedLeaf = buildLeaf();
+            leaf = cachedLeaf;
+        }
+        return cachedLeaf;
+    }
+
+    /**
+     * Helper method building canonical Merkle leaf encoding of the Transaction
+     * @return
+     */
+    private String buildLeaf() {
         return "Transaction Id: " + transactionId +
                 ", Amount: " + amount +
                 ", Fee: " + fee +
@@ -142,5 +192,13 @@ public class Transaction {
                 ", Payer: " + payer.getAddress() +
                 ", Receiver: " + receiver.getAddress();
     }
-}
 
+    /**
+     * Helper method rejecting changes to an accepted Transaction
+     */
+    private void checkNotAccepted() {
+        if (accepted) {
+            throw new IllegalStateException("Transaction Has Been Accepted: " + transactionId);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.se310.ledger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * TransactionJournal class implementation making accepted Transactions durable with group commit.
+ * Transactions are appended to a shared buffer in the order the Ledger accepts them, and one flusher
+ * thread writes everything buffered and issues a single FileChannel.force for the whole batch, so
+ * callers waiting for durability share the cost of each sync. The flusher waits up to maxDelayMicros
+ * after the first buffered record for others to join the batch, unless maxBatchBytes are buffered first:
+ * a longer delay means fewer syncs and more throughput, a shorter one lower latency per Transaction.
+ * Once a batch cannot be written the journal fails: waiting callers and every later append get an
+ * IOException, so nothing is acknowledged after a lost batch.
+ * Record layout:
+ *   int length, int CRC32 of the payload, payload of
+ *   UTF transaction id, int amount, int fee, UTF note, UTF payer address, UTF receiver address
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class TransactionJournal implements AutoCloseable {
+
+    public static final long DEFAULT_MAX_DELAY_MICROS = 200;
+    public static final int DEFAULT_MAX_BATCH_BYTES = 256 * 1024;
+
+    private final Path path;
+    private final long maxDelayNanos;
+    private final int maxBatchBytes;
+    private final FileChannel channel;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition recordsBuffered = lock.newCondition();
+    private final Condition batchDurable = lock.newCondition();
+
+    // Guarded by lock, pending is swapped with spare while the flusher writes a batch
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(64 * 1024);
+    private ByteArrayOutputStream spare = new ByteArrayOutputStream(64 * 1024);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(256);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private long firstPendingNanos;
+    private long appendedSequence;
+    private long durableSequence;
+    private long syncCount;
+    private IOException failure;
+    private boolean closed;
+
+    private TransactionJournal(Path path, long maxDelayMicros, int maxBatchBytes) throws IOException {
+        this.path = path;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.maxBatchBytes = maxBatchBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.flusher = new Thread(this::flush, "transaction-journal");
+        this.flusher.setDaemon(true);
+    }
+
+    /**
+     * Open journal appending to the file and start its flusher thread
+     * @param path
+     * @param maxDelayMicros longest the flusher waits for a batch to fill before syncing it
+     * @param maxBatchBytes buffered bytes that start a sync without waiting for the delay
+     * @return TransactionJournal
+     * @throws IOException
+     */
+    public static TransactionJournal open(Path path, long maxDelayMicros, int maxBatchBytes) throws IOException {
+        if (maxDelayMicros < 0) {
+            throw new IllegalArgumentException("Maximum Delay Must Not Be Negative");
+        }
+        if (maxBatchBytes < 1) {
+            throw new IllegalArgumentException("Maximum Batch Size Must Be Positive");
+        }
+        TransactionJournal journal = new TransactionJournal(path, maxDelayMicros, maxBatchBytes);
+        journal.flusher.start();
+        return journal;
+    }
+
+    /**
+     * Getter method for the journal file
+     * @return
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get number of syncs issued, each covering one batch of Transactions
+     * @return
+     */
+    public long getSyncCount() {
+        lock.lock();
+        try {
+            return syncCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get sequence number of the last Transaction known to be on disk
+     * @return
+     */
+    public long getDurableSequence() {
+        lock.lock();
+        try {
+            return durableSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Check whether Transactions can still be appended
+     * - Only a hint, the journal may fail right after, append makes the same check atomically
+     * @return false once a batch could not be written or the journal is closed
+     */
+    public boolean isWritable() {
+        lock.lock();
+        try {
+            return failure == null && !closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Buffer Transaction to be written with the next batch
+     * - Called under the Ledger lock, so records are in the order Transactions were accepted
+     * @param transaction
+     * @return sequence number to wait for with awaitDurable
+     * @throws IOException if an earlier batch could not be written or the journal is closed
+     */
+    public long append(Transaction transaction) throws IOException {
+        lock.lock();
+        try {
+            checkWritable();
+            record.reset();
+            recordOut.writeUTF(transaction.getTransactionId());
+            recordOut.writeInt(transaction.getAmount());
+            recordOut.writeInt(transaction.getFee());
+            recordOut.writeUTF(transaction.getNote());
+            recordOut.writeUTF(transaction.getPayer().getAddress());
+            recordOut.writeUTF(transaction.getReceiver().getAddress());
+
+            CRC32 crc = new CRC32();
+            crc.update(record.toByteArray(), 0, record.size());
+            boolean wasEmpty = pending.size() == 0;
+            writeInt(pending, record.size());
+            writeInt(pending, (int) crc.getValue());
+            record.writeTo(pending);
+
+            // Flusher starts the batch window on the first record and cuts it short once the batch is full
+            if (wasEmpty) {
+                firstPendingNanos = System.nanoTime();
+                recordsBuffered.signal();
+            } else if (pending.size() >= maxBatchBytes) {
+                recordsBuffered.signal();
+            }
+            return ++appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait until the Transaction with the sequence number, and every one before it, is on disk
+     * - A failure does not take the Transaction back: its record may or may not be on disk, since part
+     *   of the batch can have been written before the error, and the journal accepts nothing after it
+     * @param sequence
+     * @throws IOException if its batch could not be written, or the journal was closed before it was
+     */
+    public void awaitDurable(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durableSequence < sequence && failure == null && !(closed && !flusher.isAlive())) {
+                batchDurable.await();
+            }
+            if (durableSequence < sequence) {
+                throw failure != null ? new IOException("Journal Write Failed", failure)
+                        : new IOException("Journal Is Closed");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted Waiting for Journal");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sync buffered Transactions, stop the flusher thread and close the file
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            recordsBuffered.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            batchDurable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        channel.close();
+    }
+
+    /**
+     * Flusher loop writing and syncing one batch at a time
+     * - Records buffered while a batch is synced form the next batch
+     */
+    private void flush() {
+        while (true) {
+            ByteArrayOutputStream batch;
+            long batchSequence;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    recordsBuffered.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                long remaining = firstPendingNanos + maxDelayNanos - System.nanoTime();
+                while (!closed && pending.size() < maxBatchBytes && remaining > 0) {
+                    try {
+                        remaining = recordsBuffered.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        remaining = 0;
+                    }
+                }
+                batch = pending;
+                pending = spare;
+                batchSequence = appendedSequence;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch.toByteArray());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durableSequence = batchSequence;
+                    syncCount++;
+                }
+                batch.reset();
+                spare = batch;
+                batchDurable.signalAll();
+                if (failure != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Helper method failing appends once a batch was lost or the journal is closed
+     * @throws IOException
+     */
+    private void checkWritable() throws IOException {
+        if (failure != null) {
+            throw new IOException("Journal Write Failed", failure);
+        }
+        if (closed) {
+            throw new IOException("Journal Is Closed");
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,45 @@
+package com.se310.ledger;
+
+/**
+ * TransactionValidator class implementation running the checks that do not need the Ledger lock.
+ * Specification checks look at the Transaction only, and the duplicate check consults the Ledger's
+ * transaction id filter and committed snapshot, both of which are safe to read concurrently,
+ * so invalid Transactions are turned away before they ever wait for the lock
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class TransactionValidator {
+
+    /**
+     * Check transaction specification conditions
+     * @param transaction
+     * @throws LedgerException
+     */
+    public void validate(Transaction transaction) throws LedgerException {
+        if(transaction.getAmount() < 0 || transaction.getAmount() > Integer.MAX_VALUE ){
+            throw new LedgerException("Process Transaction", "Transaction Amount Is Out of Range");
+        } else if (transaction.getFee() < 10) {
+            throw new LedgerException("Process Transaction", "Transaction Fee Must Be Greater Than 10");
+        } else if (transaction.getNote().length() > 1024){
+            throw new LedgerException("Process Transaction", "Note Length Must Be Less Than 1024 Chars");
+        }
+    }
+
+    /**
+     * Check transaction specification conditions and reject ids already committed to the Ledger
+     * - Committed Blocks are only scanned when the filter reports the id may have been seen
+     * @param ledger
+     * @param transaction
+     * @throws LedgerException
+     */
+    public void preValidate(Ledger ledger, Transaction transaction) throws LedgerException {
+        validate(transaction);
+
+        String transactionId = transaction.getTransactionId();
+        if (ledger.getTransactionIdFilter().mightContain(transactionId)
+                && ledger.getSnapshot().findTransaction(transactionId) != null) {
+            throw new LedgerException("Process Transaction", "Transaction Id Must Be Unique");
+        }
+    }
+}
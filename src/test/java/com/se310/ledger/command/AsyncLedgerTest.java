@@ -0,0 +1,121 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.AsyncLedger;
+import com.se310.ledger.Block;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.LedgerListener;
+import com.se310.ledger.Receipt;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for the non-blocking AsyncLedger facade
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class AsyncLedgerTest {
+
+    @Test
+    public void testSealedReceiptCarriesBlockHash() throws LedgerException {
+
+        Ledger ledger = newLedger("async", 2);
+        try (AsyncLedger async = new AsyncLedger(ledger)) {
+            CompletableFuture<Receipt> first = async.submitAndAwaitSeal(transaction(ledger, "1", 10));
+            Receipt applied = await(async.submit(transaction(ledger, "2", 10)));
+            assertNull(applied.getBlockHash());
+
+            Receipt sealed = await(first);
+            assertEquals(1, sealed.getBlockNumber());
+            assertEquals(ledger.getBlock(1).getHash(), sealed.getBlockHash());
+        }
+    }
+
+    @Test
+    public void testInvalidTransactionFailsBeforeApply() throws LedgerException {
+
+        Ledger ledger = newLedger("async", 2);
+        try (AsyncLedger async = new AsyncLedger(ledger)) {
+            LedgerException fee = ledgerFailure(async.submitAndAwaitSeal(transaction(ledger, "1", 5)));
+            assertEquals("Transaction Fee Must Be Greater Than 10", fee.getReason());
+            assertTrue(ledger.getUncommittedBlock().getTransactionList().isEmpty());
+        }
+    }
+
+    @Test
+    public void testUnexpectedFailureCompletesFuture() throws LedgerException {
+
+        Ledger ledger = newLedger("async", 2);
+        ledger.addLedgerListener(new LedgerListener() {
+            @Override
+            public void blockSealed(Ledger sealedLedger, Block block) {
+            }
+
+            @Override
+            public void transactionAccepted(Ledger acceptingLedger, Transaction transaction) {
+                throw new IllegalStateException("listener failed");
+            }
+        });
+        try (AsyncLedger async = new AsyncLedger(ledger)) {
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> await(async.submitAndAwaitSeal(transaction(ledger, "1", 10))));
+            assertTrue(failure.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testResetFailsFuturesWaitingForSeal() throws LedgerException {
+
+        Ledger ledger = newLedger("async", 5);
+        try (AsyncLedger async = new AsyncLedger(ledger)) {
+            CompletableFuture<Receipt> pending = async.submitAndAwaitSeal(transaction(ledger, "1", 10));
+            // Applier thread runs submissions in order, so the first one is waiting once this is applied
+            await(async.submit(transaction(ledger, "2", 10)));
+
+            ledger.reset();
+            assertEquals("Ledger Was Reset", ledgerFailure(pending).getReason());
+        }
+    }
+
+    @Test
+    public void testCloseFailsWaitingAndLaterSubmissions() throws LedgerException {
+
+        Ledger ledger = newLedger("async", 5);
+        AsyncLedger async = new AsyncLedger(ledger);
+        CompletableFuture<Receipt> pending = async.submitAndAwaitSeal(transaction(ledger, "1", 10));
+        await(async.submit(transaction(ledger, "2", 10)));
+
+        async.close();
+        assertEquals("Async Ledger Closed Before Block Was Sealed", ledgerFailure(pending).getReason());
+        assertEquals("Async Ledger Is Closed", ledgerFailure(async.submit(transaction(ledger, "3", 10))).getReason());
+        assertEquals("Async Ledger Is Closed",
+                ledgerFailure(async.submitAndAwaitSeal(transaction(ledger, "4", 10))).getReason());
+        assertEquals(2, ledger.getUncommittedBlock().getTransactionList().size());
+    }
+
+    private Transaction transaction(Ledger ledger, String transactionId, int fee) {
+        return LedgerFixtures.transaction(ledger, transactionId, 100, fee);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        return future.orTimeout(10, TimeUnit.SECONDS).join();
+    }
+
+    private static LedgerException ledgerFailure(CompletableFuture<?> future) {
+        CompletionException failure = assertThrows(CompletionException.class, () -> await(future));
+        assertTrue(failure.getCause() instanceof LedgerException, "unexpected " + failure.getCause());
+        return (LedgerException) failure.getCause();
+    }
+}
@@ -0,0 +1,79 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.BalanceHistory;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+
+import org.junit.jupiter.api.Test;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test Class for point in time account balances
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class BalanceHistoryTest {
+
+    @Test
+    public void testLookupFindsLatestChangeAtOrBeforeBlock() {
+
+        BalanceHistory history = new BalanceHistory();
+        history.record(1, 100);
+        history.record(2, 100);
+        history.record(4, 50);
+        for (int blockNumber = 5; blockNumber <= 20; blockNumber++) {
+            history.record(blockNumber, blockNumber);
+        }
+
+        // Unchanged balance of block 2 is not stored
+        assertEquals(18, history.size());
+        assertNull(history.getBalanceAt(0));
+        assertEquals(100, history.getBalanceAt(1));
+        assertEquals(100, history.getBalanceAt(3));
+        assertEquals(50, history.getBalanceAt(4));
+        assertEquals(12, history.getBalanceAt(12));
+        assertEquals(20, history.getBalanceAt(99));
+    }
+
+    @Test
+    public void testOutOfOrderBlockIsRejected() {
+
+        BalanceHistory history = new BalanceHistory();
+        history.record(3, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> history.record(3, 200));
+        assertThrows(IllegalArgumentException.class, () -> history.record(2, 200));
+        assertEquals(100, history.getBalanceAt(3));
+    }
+
+    @Test
+    public void testLedgerAnswersBalanceAsOfEachBlock() throws LedgerException {
+
+        Ledger ledger = newLedger("history", 2);
+
+        transfer(ledger, "1", 100);
+        transfer(ledger, "2", 100);
+        ledger.addToLedger(new Account("bob", 0));
+        transfer(ledger, "3", 50);
+        transfer(ledger, "4", 50);
+
+        assertEquals(200, ledger.getAccountBalance("mary", 1));
+        assertEquals(300, ledger.getAccountBalance("mary", 2));
+        assertEquals(300, ledger.getAccountBalance("mary"));
+        assertEquals(0, ledger.getAccountBalance("bob", 2));
+
+        LedgerException notCommitted = assertThrows(LedgerException.class,
+                () -> ledger.getAccountBalance("bob", 1));
+        assertEquals("Account Is Not Committed to a Block", notCommitted.getReason());
+        LedgerException noBlock = assertThrows(LedgerException.class,
+                () -> ledger.getAccountBalance("mary", 3));
+        assertEquals("Block Does Not Exist", noBlock.getReason());
+    }
+}
@@ -0,0 +1,119 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.BlockImporter;
+import com.se310.ledger.ChainExporter;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test Class for bulk import of exported Blocks
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class BlockImportTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testEveryDumpFormatRestoresTheChain() throws Exception {
+
+        Ledger source = buildLedger();
+        Path directory = Files.createTempDirectory("block-import");
+        try {
+            for (ChainExporter.Format format : new ChainExporter.Format[] {
+                    ChainExporter.Format.BINARY, ChainExporter.Format.JSON }) {
+                for (boolean gzip : new boolean[] { false, true }) {
+                    Path dump = directory.resolve(format + "-" + gzip);
+                    new ChainExporter(format, gzip).export(source, 1, source.getNumberOfBlocks(), dump);
+
+                    Ledger restored = new Ledger("restored", "restored ledger", "chapman");
+                    // Batches smaller than the chain install the Blocks across several batches
+                    assertEquals(7, new BlockImporter(3).importBlocks(restored, dump));
+
+                    assertEquals(source.getNumberOfBlocks(), restored.getNumberOfBlocks());
+                    for (int blockNumber = 1; blockNumber <= 7; blockNumber++) {
+                        assertEquals(source.getBlock(blockNumber).getHash(), restored.getBlock(blockNumber).getHash());
+                        assertEquals(source.getAccountBalance("mary", blockNumber),
+                                restored.getAccountBalance("mary", blockNumber));
+                    }
+                    assertEquals(source.getSnapshot().getBalances(), restored.getSnapshot().getBalances());
+                    assertNotNull(finOps.getTransaction(restored, "note \"quoted\"\n"));
+                    assertDoesNotThrow(() -> restored.validate());
+
+                    // Restored Ledger keeps processing from the last imported Block
+                    transfer(restored, "next", 1);
+                    assertEquals(1, restored.getUncommittedBlock().getTransactionList().size());
+                }
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testTamperedJsonDumpIsRejected() throws Exception {
+
+        Ledger source = buildLedger();
+        Path directory = Files.createTempDirectory("block-import");
+        try {
+            Path dump = directory.resolve("chain.jsonl");
+            new ChainExporter(ChainExporter.Format.JSON, false).export(source, 1, source.getNumberOfBlocks(), dump);
+            String json = Files.readString(dump, StandardCharsets.UTF_8);
+
+            // Amount of a Transaction in the fourth Block no longer matches its Merkle Root
+            Path tampered = directory.resolve("tampered.jsonl");
+            Files.writeString(tampered, json.replace("\"transaction_id\":\"10\",\"amount\":10",
+                    "\"transaction_id\":\"10\",\"amount\":99"), StandardCharsets.UTF_8);
+            Ledger restored = new Ledger("restored", "restored ledger", "chapman");
+            LedgerException mismatch = assertThrows(LedgerException.class,
+                    () -> new BlockImporter(2).importBlocks(restored, tampered));
+            assertEquals("Merkle Root Does Not Match: 4", mismatch.getReason());
+            assertEquals(3, restored.getNumberOfBlocks());
+
+            Path malformed = directory.resolve("malformed.jsonl");
+            Files.writeString(malformed, json.replaceFirst("\"amount\":10", "\"amount\":ten"), StandardCharsets.UTF_8);
+            LedgerException invalid = assertThrows(LedgerException.class,
+                    () -> new BlockImporter(2).importBlocks(new Ledger("restored", "restored", "chapman"), malformed));
+            assertEquals("Invalid Record At Line 2: Field amount Is Not a Number", invalid.getReason());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private Ledger buildLedger() throws LedgerException {
+        Ledger ledger = newLedger("source", 3);
+        transfer(ledger, 1, 10, 10);
+        // Account joining mid chain only appears in the balances of the Block it joined in
+        ledger.addToLedger(new Account("bob", 0));
+        transfer(ledger, 11, 20, 10);
+        transfer(ledger, "note \"quoted\"\n", 10);
+        return ledger;
+    }
+
+    private void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
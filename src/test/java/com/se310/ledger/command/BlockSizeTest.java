@@ -0,0 +1,62 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+
+import org.junit.jupiter.api.Test;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test Class for Blocks keeping the size they were sealed at
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class BlockSizeTest {
+
+    @Test
+    public void testValidateChecksSizeEachBlockWasSealedAt() throws LedgerException {
+
+        Ledger ledger = newLedger("sizes", 2);
+        transfer(ledger, 1, 4, 10);
+
+        ledger.setBlockSize(3);
+        transfer(ledger, 5, 7, 10);
+
+        assertEquals(3, ledger.getNumberOfBlocks());
+        assertEquals(2, ledger.getBlock(1).getBlockSize());
+        assertEquals(2, ledger.getBlock(2).getBlockSize());
+        assertEquals(3, ledger.getBlock(3).getBlockSize());
+        assertDoesNotThrow(() -> ledger.validate());
+    }
+
+    @Test
+    public void testLoweredSizeAppliesFromNextBlockWhenCurrentBlockHasNoRoom() throws LedgerException {
+
+        Ledger ledger = newLedger("sizes", 5);
+        transfer(ledger, 1, 3, 10);
+
+        // Block holding three Transactions keeps its size of five
+        ledger.setBlockSize(2);
+        assertEquals(5, ledger.getUncommittedBlock().getBlockSize());
+        transfer(ledger, 4, 5, 10);
+        assertEquals(1, ledger.getNumberOfBlocks());
+        assertEquals(5, ledger.getBlock(1).getTransactionCount());
+
+        transfer(ledger, 6, 7, 10);
+        assertEquals(2, ledger.getNumberOfBlocks());
+        assertEquals(2, ledger.getBlock(2).getBlockSize());
+
+        // Block with room takes the new size right away
+        transfer(ledger, 8, 8, 10);
+        ledger.setBlockSize(3);
+        transfer(ledger, 9, 10, 10);
+        assertEquals(3, ledger.getNumberOfBlocks());
+        assertEquals(3, ledger.getBlock(3).getTransactionCount());
+        assertDoesNotThrow(() -> ledger.validate());
+    }
+}
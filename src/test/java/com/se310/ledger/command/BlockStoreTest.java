@@ -0,0 +1,440 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.BlockStore;
+import com.se310.ledger.FileProcessor;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.LedgerRegistry;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for persisting committed Blocks to a BlockStore and archiving old ones
+ *
+ * @author  Joshua Vaysman
+ * @version 1.3
+ */
+public class BlockStoreTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testCommitDoesNotWaitForStore() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, store);
+
+            // Appends need the store's monitor, which another thread holds while Blocks are committed
+            CountDownLatch held = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread holder = new Thread(() -> {
+                synchronized (store) {
+                    held.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+            holder.start();
+            held.await();
+            try {
+                transfer(ledger, 1, 20, 20);
+                assertEquals(10, ledger.getNumberOfBlocks());
+            } finally {
+                release.countDown();
+                holder.join();
+            }
+
+            ledger.awaitBlockStore();
+            assertEquals(10, ledger.getMetrics().get("stored.blocks"));
+            assertEquals(8, ledger.getMetrics().get("archived.blocks"));
+            assertEquals(10, store.getLastBlockNumber());
+        } finally {
+            store.close();
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testArchivedBlocksAreReadFromStore() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, store);
+            transfer(ledger, 1, 20, 20);
+            ledger.awaitBlockStore();
+
+            assertTrue(ledger.getBlock(1).isArchived());
+            assertFalse(ledger.getBlock(10).isArchived());
+            assertEquals(2, ledger.getBlock(1).getTransactionCount());
+            assertEquals("1", ledger.getBlock(1).getTransactionList().get(0).getTransactionId());
+            assertEquals(120, ledger.getBlock(3).getAccountBalanceMap().get("mary").getBalance());
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            store.close();
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testTornTailIsTruncatedOnReopen() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            Ledger ledger = newLedger("store", 2);
+            transfer(ledger, 1, 10, 20);
+            BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+            for (int blockNumber = 1; blockNumber <= 4; blockNumber++) {
+                store.append(ledger.getBlock(blockNumber));
+            }
+            store.close();
+
+            // Crash in the middle of the next record leaves its header and part of its bytes
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, 1), StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.allocate(24).putInt(5).putInt(100).putInt(200).putInt(0).flip());
+            }
+            long tornSize = Files.size(segmentPath(directory, 1));
+
+            BlockStore reopened = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+            try {
+                assertEquals(4, reopened.getLastBlockNumber());
+                assertTrue(Files.size(segmentPath(directory, 1)) < tornSize);
+                reopened.append(ledger.getBlock(5));
+                assertEquals(ledger.getBlock(5).getHash(), reopened.readBlock(5).getHash());
+                assertEquals(ledger.getBlock(4).getHash(), reopened.readBlock(4).getHash());
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testReopenedStoreInstallsBlocks() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE));
+            transfer(ledger, 1, 20, 20);
+            ledger.closeBlockStore();
+            assertNull(ledger.getBlockStore());
+
+            Ledger restored = new Ledger("store", "block store", "chapman");
+            BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+            try {
+                restored.setRetention(2, store);
+                assertEquals(10, restored.getNumberOfBlocks());
+                assertEquals(ledger.getBlock(10).getHash(), restored.getBlock(10).getHash());
+                assertEquals(400, restored.getAccountBalance("mary"));
+                assertDoesNotThrow(restored::validate);
+            } finally {
+                restored.closeBlockStore();
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCompactionMergesShortSegments() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            Ledger ledger = newLedger("store", 2);
+            transfer(ledger, 1, 20, 20);
+            BlockStore store = BlockStore.open(directory, 2, BlockStore.Compression.NONE);
+            for (int blockNumber = 1; blockNumber <= 10; blockNumber++) {
+                store.append(ledger.getBlock(blockNumber));
+            }
+            store.close();
+
+            // Reopening with longer, compressed segments compacts the five short ones into two
+            BlockStore reopened = BlockStore.open(directory, 8, BlockStore.Compression.DEFLATE);
+            try {
+                reopened.compact().get();
+                assertEquals(2, reopened.getSegmentCount());
+                assertNull(reopened.getCompactionFailure());
+                for (int blockNumber = 1; blockNumber <= 10; blockNumber++) {
+                    assertEquals(ledger.getBlock(blockNumber).getHash(), reopened.readBlock(blockNumber).getHash());
+                }
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCompactionRewritesSegmentLongerThanRollover() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setBlockSize(1);
+            transfer(ledger, 1, 40, 20);
+            BlockStore store = BlockStore.open(directory, 64, BlockStore.Compression.NONE);
+            for (int blockNumber = 1; blockNumber <= 40; blockNumber++) {
+                store.append(ledger.getBlock(blockNumber));
+            }
+            store.close();
+
+            // Compaction started on open rewrites all 40 Blocks, more than an index sized for 4 has room for
+            BlockStore reopened = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+            try {
+                assertEquals(0, reopened.compact().get());
+                assertNull(reopened.getCompactionFailure());
+                assertEquals(1, reopened.getSegmentCount());
+                for (int blockNumber = 1; blockNumber <= 40; blockNumber++) {
+                    assertEquals(ledger.getBlock(blockNumber).getHash(), reopened.readBlock(blockNumber).getHash());
+                }
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCompactionFailureIsReported() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        try {
+            Ledger ledger = newLedger("store", 2);
+            transfer(ledger, 1, 12, 20);
+            BlockStore store = BlockStore.open(directory, 2, BlockStore.Compression.DEFLATE);
+            for (int blockNumber = 1; blockNumber <= 6; blockNumber++) {
+                store.append(ledger.getBlock(blockNumber));
+            }
+            store.close();
+
+            // Zeroed compressed bytes of the first record keep its header valid but cannot be inflated
+            try (FileChannel channel = FileChannel.open(segmentPath(directory, 1), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(16);
+                channel.read(header, 8);
+                channel.write(ByteBuffer.allocate(header.getInt(4)), 24);
+            }
+
+            BlockStore reopened = BlockStore.open(directory, 4, BlockStore.Compression.NONE);
+            assertThrows(ExecutionException.class, () -> reopened.compact().get());
+            assertNotNull(reopened.getCompactionFailure());
+            // Segments being merged are left in place
+            assertEquals(ledger.getBlock(3).getHash(), reopened.readBlock(3).getHash());
+            assertThrows(IOException.class, reopened::close);
+            try (var files = Files.list(directory)) {
+                assertTrue(files.noneMatch(path -> path.toString().endsWith(".compact")));
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testReplacedStoreIsClosedOnceBlocksMoved() throws Exception {
+
+        Path first = Files.createTempDirectory("block-store");
+        Path second = Files.createTempDirectory("block-store");
+        BlockStore previous = BlockStore.open(first, 4, BlockStore.Compression.DEFLATE);
+        BlockStore replacement = BlockStore.open(second, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, previous);
+            transfer(ledger, 1, 20, 20);
+            ledger.awaitBlockStore();
+            assertTrue(ledger.getBlock(1).isArchived());
+
+            ledger.setRetention(2, replacement);
+            ledger.awaitBlockStore();
+            ledger.awaitBlockStore();
+
+            assertSame(replacement, ledger.getBlockStore());
+            assertEquals(10, replacement.getLastBlockNumber());
+            assertThrows(IOException.class, () -> previous.readBlock(1));
+            assertEquals("1", ledger.getBlock(1).getTransactionList().get(0).getTransactionId());
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            replacement.close();
+            deleteDirectory(first);
+            deleteDirectory(second);
+        }
+    }
+
+    @Test
+    public void testMismatchedStoreKeepsCurrentStore() throws Exception {
+
+        Path first = Files.createTempDirectory("block-store");
+        Path other = Files.createTempDirectory("block-store");
+        BlockStore current = BlockStore.open(first, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, current);
+            transfer(ledger, 1, 4, 20);
+
+            Ledger otherLedger = new Ledger("other", "other ledger", "chapman");
+            otherLedger.setBlockSize(2);
+            otherLedger.addToLedger(new Account("bob", 0));
+            for (int i = 1; i <= 4; i++) {
+                finOps.processTransaction(otherLedger, new Transaction("other-" + i, 30, 10, "other",
+                        otherLedger.getUncommittedBlock().getAccount("master"),
+                        otherLedger.getUncommittedBlock().getAccount("bob")));
+            }
+            BlockStore mismatched = BlockStore.open(other, 4, BlockStore.Compression.DEFLATE);
+            for (int blockNumber = 1; blockNumber <= 2; blockNumber++) {
+                mismatched.append(otherLedger.getBlock(blockNumber));
+            }
+
+            LedgerException exception = assertThrows(LedgerException.class, () -> ledger.setRetention(1, mismatched));
+            assertEquals("Block Store Does Not Match Ledger", exception.getReason());
+            assertSame(current, ledger.getBlockStore());
+            assertEquals(2, ledger.getRetainedBlocks());
+            mismatched.close();
+        } finally {
+            current.close();
+            deleteDirectory(first);
+            deleteDirectory(other);
+        }
+    }
+
+    @Test
+    public void testResetClosesStore() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, store);
+            transfer(ledger, 1, 6, 20);
+            ledger.awaitBlockStore();
+
+            ledger.reset();
+            ledger.awaitBlockStore();
+            assertNull(ledger.getBlockStore());
+            assertThrows(IOException.class, () -> store.readBlock(1));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testDetachingStoreRestoresArchivedBlocks() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, store);
+            transfer(ledger, 1, 20, 20);
+            ledger.awaitBlockStore();
+            assertTrue(ledger.getBlock(1).isArchived());
+
+            ledger.setRetention(2, null);
+            ledger.awaitBlockStore();
+            assertFalse(ledger.getBlock(1).isArchived());
+            assertEquals("1", ledger.getBlock(1).getTransactionList().get(0).getTransactionId());
+            assertEquals(2, ledger.getBlock(1).getTransactionCount());
+            assertThrows(IOException.class, () -> store.readBlock(1));
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testRejectedStoreIsClosed() throws Exception {
+
+        Path directory = Files.createTempDirectory("block-store");
+        BlockStore store = BlockStore.open(directory, 4, BlockStore.Compression.DEFLATE);
+        try {
+            Ledger ledger = newLedger("store", 2);
+            ledger.setRetention(2, store);
+            transfer(ledger, 1, 12, 20);
+            ledger.awaitBlockStore();
+            ledger.setRetention(2, null);
+            ledger.awaitBlockStore();
+            long before = countStoreThreads();
+
+            // Blocks of another seed do not match, and reopening them uncompressed starts a compaction
+            ByteArrayOutputStream failures = new ByteArrayOutputStream();
+            FileProcessor processor = new FileProcessor(new LedgerRegistry());
+            processor.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            processor.setFailureOutput(new PrintStream(failures, true));
+            processor.setBlockSize(2);
+            StringBuilder script = new StringBuilder("create-ledger other description \"other ledger\" seed \"other\"\n"
+                    + "create-account mary\n");
+            for (int i = 1; i <= 14; i++) {
+                script.append("process-transaction ").append(i)
+                        .append(" amount 20 fee 10 note \"other\" payer master receiver mary\n");
+            }
+            script.append("set-retention 2 archive ").append(directory).append(" compression none\n");
+            processor.processCommands(new BufferedReader(new StringReader(script.toString())));
+
+            assertEquals(1, processor.getFailureCount());
+            assertTrue(failures.toString().contains("Block Store Does Not Match Ledger"), failures.toString());
+            for (int i = 0; i < 100 && countStoreThreads() > before; i++) {
+                Thread.sleep(20);
+            }
+            assertEquals(before, countStoreThreads());
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    private long countStoreThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith("block-store"))
+                .count();
+    }
+
+    private Path segmentPath(Path directory, int firstBlockNumber) {
+        return directory.resolve(String.format("segment-%010d.dat", firstBlockNumber));
+    }
+
+    private void deleteDirectory(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
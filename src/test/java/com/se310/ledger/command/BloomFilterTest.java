@@ -0,0 +1,127 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.BloomFilter;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.ScalableBloomFilter;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for the Bloom filters answering transaction id lookups
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class BloomFilterTest {
+
+    @Test
+    public void testAddedKeysAreAlwaysFound() {
+
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("tx-" + i);
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(filter.mightContain("tx-" + i), "False negative for tx-" + i);
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateStaysNearConfiguredRate() {
+
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            filter.add("tx-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        // Expected about 1000 at the configured rate
+        assertTrue(falsePositives > 0, "Filter answered every key exactly");
+        assertTrue(falsePositives < 2000, "False positives: " + falsePositives);
+        assertFalse(new BloomFilter(10000, 0.01).mightContain("tx-0"));
+    }
+
+    @Test
+    public void testInvalidSizeIsRejected() {
+
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+
+    @Test
+    public void testScalableFilterGrowsStagesAndKeepsRate() {
+
+        ScalableBloomFilter filter = new ScalableBloomFilter(100, 0.01);
+        long initialMemory = filter.getMemoryBytes();
+        for (int i = 0; i < 1000; i++) {
+            filter.add("tx-" + i);
+        }
+
+        // Stages of 100, 200, 400 and 800 keys hold the first 1500 keys
+        assertEquals(4, filter.getStageCount());
+        assertEquals(1000L, filter.getCount());
+        assertTrue(filter.getMemoryBytes() > initialMemory);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(filter.mightContain("tx-" + i), "False negative for tx-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++) {
+            if (filter.mightContain("other-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1000, "False positives: " + falsePositives);
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new ScalableBloomFilter(100, 1));
+    }
+
+    @Test
+    public void testLedgerFilterIsRebuiltAtNewRate() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("filter", "transaction id filter", "chapman");
+        ledger.setBlockSize(4);
+        ledger.addToLedger(new Account("mary", 0));
+        for (int i = 1; i <= 10; i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), 10, 10, "filter",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+        ledger.getTransactionIdFilter().add("phantom");
+        ScalableBloomFilter previous = ledger.getTransactionIdFilter();
+
+        ledger.setTransactionIdFalsePositiveRate(0.001);
+
+        // Rebuilt from committed and uncommitted Blocks only, keys added from elsewhere are gone
+        ScalableBloomFilter rebuilt = ledger.getTransactionIdFilter();
+        assertNotSame(previous, rebuilt);
+        assertEquals(0.001, rebuilt.getFalsePositiveRate(), 0.0);
+        assertEquals(10L, rebuilt.getCount());
+        for (int i = 1; i <= 10; i++) {
+            assertTrue(rebuilt.mightContain(String.valueOf(i)));
+        }
+        assertFalse(rebuilt.mightContain("phantom"));
+
+        LedgerException duplicate = assertThrows(LedgerException.class, () -> finOps.processTransaction(ledger,
+                new Transaction("10", 10, 10, "filter", ledger.getUncommittedBlock().getAccount("master"),
+                        ledger.getUncommittedBlock().getAccount("mary"))));
+        assertEquals("Transaction Id Must Be Unique", duplicate.getReason());
+        assertThrows(IllegalArgumentException.class, () -> ledger.setTransactionIdFalsePositiveRate(0));
+    }
+}
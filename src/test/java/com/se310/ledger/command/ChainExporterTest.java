@@ -0,0 +1,160 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.Block;
+import com.se310.ledger.ChainExporter;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for the CSV and JSON lines exports of committed Blocks
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ChainExporterTest {
+
+    private static final String NOTE = "line\n\"quoted\", done\ttab\u0001";
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testCsvQuotesFieldsAndWritesEveryRecord() throws Exception {
+
+        Ledger ledger = buildLedger();
+        Block block = ledger.getBlock(1);
+        String csv = export(ledger, ChainExporter.Format.CSV, false);
+
+        assertTrue(csv.startsWith("record,block_number,hash,previous_hash,transaction_id,amount,fee,note,payer,"
+                + "receiver,address,balance\n"), csv);
+        assertTrue(csv.contains("\nblock,1," + block.getHash() + "," + block.getPreviousHash() + ",,,,,,,,\n"), csv);
+        assertTrue(csv.contains("\ntransaction,1,,,1,100,10,transfer,master,mary,,\n"), csv);
+        // Separators, quotes and line breaks are quoted, quotes inside are doubled
+        assertTrue(csv.contains("\ntransaction,1,,,2,50,10,\"line\n\"\"quoted\"\", done\ttab\u0001\",master,mary,,\n"),
+                csv);
+        assertTrue(csv.contains("\nbalance,1,,,,,,,,,mary,150\n"), csv);
+        assertTrue(csv.contains("\nbalance,1,,,,,,,,,master," + block.getAccount("master").getBalance() + "\n"),
+                csv);
+        assertEquals(-1, csv.indexOf("block,2,"));
+    }
+
+    @Test
+    public void testJsonEscapesStringsAndWritesEveryRecord() throws Exception {
+
+        Ledger ledger = buildLedger();
+        Block block = ledger.getBlock(1);
+        String json = export(ledger, ChainExporter.Format.JSON, false);
+
+        assertTrue(json.startsWith("{\"record\":\"block\",\"block_number\":1,\"hash\":\"" + block.getHash()
+                + "\",\"previous_hash\":\"" + block.getPreviousHash() + "\",\"transaction_count\":2}\n"), json);
+        assertTrue(json.contains("{\"record\":\"transaction\",\"block_number\":1,\"transaction_id\":\"1\","
+                + "\"amount\":100,\"fee\":10,\"note\":\"transfer\",\"payer\":\"master\",\"receiver\":\"mary\"}\n"),
+                json);
+        // Control characters without a short escape are written as unicode escapes
+        assertTrue(json.contains("\"note\":\"line\\n\\\"quoted\\\", done\\ttab\\u0001\""), json);
+        assertTrue(json.contains("{\"record\":\"balance\",\"block_number\":1,\"address\":\"mary\",\"balance\":150}\n"),
+                json);
+    }
+
+    @Test
+    public void testLaterBlocksCarryOnlyChangedBalances() throws Exception {
+
+        Ledger ledger = buildLedger();
+        ledger.addToLedger(new Account("bob", 0));
+        transfer(ledger, "4", 10);
+        Path file = Files.createTempFile("chain-export", ".csv");
+        try {
+            assertEquals(2, new ChainExporter(ChainExporter.Format.CSV, false).export(ledger, 1, 2, file));
+            String csv = Files.readString(file);
+            int secondBlock = csv.indexOf("\nblock,2,");
+            assertTrue(secondBlock > 0, csv);
+
+            // Bob joined with a zero balance, master and mary paid and received
+            String balances = csv.substring(secondBlock);
+            assertTrue(balances.contains("\nbalance,2,,,,,,,,,mary,170\n"), balances);
+            assertTrue(balances.contains("\nbalance,2,,,,,,,,,bob,0\n"), balances);
+            assertTrue(balances.contains("\nbalance,2,,,,,,,,,master,"), balances);
+            assertEquals(3, balances.split("\nbalance,").length - 1, balances);
+
+            // Export starting past the first Block still carries every balance of its first Block
+            assertEquals(1, new ChainExporter(ChainExporter.Format.CSV, false).export(ledger, 2, 2, file));
+            assertEquals(3, Files.readString(file).split("\nbalance,").length - 1);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testGzipOutputHoldsThePlainExport() throws Exception {
+
+        Ledger ledger = buildLedger();
+        for (ChainExporter.Format format : new ChainExporter.Format[] {
+                ChainExporter.Format.CSV, ChainExporter.Format.JSON }) {
+            Path file = Files.createTempFile("chain-export", ".gz");
+            try {
+                new ChainExporter(format, true).export(ledger, 1, 1, file);
+                byte[] bytes = Files.readAllBytes(file);
+                assertEquals(0x1f, bytes[0] & 0xff);
+                assertEquals(0x8b, bytes[1] & 0xff);
+
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+                    assertEquals(export(ledger, format, false), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            } finally {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidRangeIsRejected() throws Exception {
+
+        Ledger ledger = buildLedger();
+        Path file = Files.createTempFile("chain-export", ".csv");
+        try {
+            LedgerException range = assertThrows(LedgerException.class,
+                    () -> new ChainExporter(ChainExporter.Format.CSV, false).export(ledger, 2, 1, file));
+            assertEquals("Invalid Block Range", range.getReason());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private Ledger buildLedger() throws LedgerException {
+        Ledger ledger = newLedger("export", 2);
+        transfer(ledger, "1", 100);
+        finOps.processTransaction(ledger, new Transaction("2", 50, 10, NOTE,
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        // Uncommitted Transaction is not exported
+        transfer(ledger, "3", 10);
+        return ledger;
+    }
+
+    private String export(Ledger ledger, ChainExporter.Format format, boolean gzip)
+            throws LedgerException, IOException {
+        Path file = Files.createTempFile("chain-export", ".out");
+        try {
+            assertEquals(1, new ChainExporter(format, gzip).export(ledger, 1, 5, file));
+            return Files.readString(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.FileProcessor;
+import com.se310.ledger.LedgerRegistry;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for processing command scripts line by line
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class FileProcessorTest {
+
+    @Test
+    public void testUnexpectedErrorIsReportedAndProcessingContinues() throws IOException {
+
+        ByteArrayOutputStream failures = new ByteArrayOutputStream();
+        FileProcessor processor = new FileProcessor(new LedgerRegistry());
+        processor.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+        processor.setFailureOutput(new PrintStream(failures, true));
+
+        String script = "create-ledger test description \"file processor\" seed \"chapman\"\n"
+                + "get-block abc\n"
+                + "create-account mary\n";
+        processor.processCommands(new BufferedReader(new StringReader(script)));
+
+        String reported = failures.toString();
+        assertEquals(1, processor.getFailureCount());
+        assertTrue(reported.contains("NumberFormatException"), reported);
+        assertTrue(reported.contains("for Command: get-block On Line Number: 2"), reported);
+        assertTrue(processor.getLedger().getUncommittedBlock().getAccount("mary") != null,
+                "line after the failure was not processed");
+    }
+}
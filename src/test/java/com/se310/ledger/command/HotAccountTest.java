@@ -0,0 +1,125 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for credits accumulated on hot accounts
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class HotAccountTest {
+
+    private static final int THREADS = 4;
+    private static final int CREDITS = 20000;
+
+    @Test
+    public void testConcurrentCreditsSurviveMerges() throws InterruptedException {
+
+        Account account = new Account("mary", 100);
+        account.markHot();
+        assertTrue(account.isHot());
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int j = 0; j < CREDITS; j++) {
+                    account.credit(1);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        // Merge as a sealing Ledger would while the credits are landing
+        start.countDown();
+        boolean running = true;
+        while (running) {
+            account.mergePendingCredits();
+            running = false;
+            for (Thread thread : threads) {
+                running |= thread.isAlive();
+            }
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        account.mergePendingCredits();
+
+        assertEquals(100 + THREADS * CREDITS, account.getBalance());
+        assertEquals(account.getBalance(), account.getAvailableBalance());
+    }
+
+    @Test
+    public void testOverflowingMergeKeepsCreditsPending() {
+
+        Account account = new Account("mary", Integer.MAX_VALUE - 10);
+        account.markHot();
+        account.credit(20);
+
+        assertThrows(ArithmeticException.class, account::mergePendingCredits);
+        assertEquals(Integer.MAX_VALUE - 10, account.getBalance());
+        assertEquals((long) Integer.MAX_VALUE + 10, account.getAvailableBalance());
+    }
+
+    @Test
+    public void testColdAccountIsCreditedInPlace() {
+
+        Account account = new Account("mary", 0);
+        account.credit(50);
+        account.mergePendingCredits();
+
+        assertFalse(account.isHot());
+        assertEquals(50, account.getBalance());
+    }
+
+    @Test
+    public void testHotAccountDetectionIsOffByDefault() throws LedgerException {
+
+        Ledger ledger = sealTransfersToMary(Ledger.DEFAULT_HOT_ACCOUNT_SHARE);
+        assertNull(ledger.getHotAccount("mary"));
+        assertFalse(ledger.getUncommittedBlock().getAccount("mary").isHot());
+
+        // Turned on, an account credited by every Transaction of a Block becomes hot
+        Ledger detecting = sealTransfersToMary(0.5);
+        assertNotNull(detecting.getHotAccount("mary"));
+        assertTrue(detecting.getUncommittedBlock().getAccount("mary").isHot());
+        assertEquals(100, detecting.getAccountBalance("mary"));
+    }
+
+    private Ledger sealTransfersToMary(double hotAccountShare) throws LedgerException {
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("hot", "hot accounts", "chapman");
+        ledger.setHotAccountShare(hotAccountShare);
+        ledger.addToLedger(new Account("mary", 0));
+        for (int i = 1; i <= ledger.getBlockSize(); i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), 10, 10, "hot",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+        return ledger;
+    }
+}
@@ -0,0 +1,134 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.BlockImporter;
+import com.se310.ledger.ChainExporter;
+import com.se310.ledger.FileProcessor;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerRegistry;
+
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Bulk import benchmark comparing script replay through FileProcessor with BlockImporter loading the
+ * same chain from a binary dump and from a JSON lines dump.
+ * Each path runs several rounds on a fresh Ledger after a warm-up round, and the median is reported
+ * together with its speedup over replay. Dumps are written once by ChainExporter from the replayed Ledger.
+ * Not run by the test suite, after mvn test-compile run:
+ *   java -cp target/classes:target/test-classes com.se310.ledger.command.ImportBenchmark
+ *       [transactions] [block size] [accounts] [rounds]
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ImportBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int transactions = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int accounts = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 7;
+
+        String script = buildScript(transactions, accounts);
+        Path directory = Files.createTempDirectory("import-benchmark");
+        Path binaryDump = directory.resolve("chain.bin");
+        Path jsonDump = directory.resolve("chain.jsonl");
+
+        Ledger replayed = replay(script, blockSize);
+        int blocks = replayed.getNumberOfBlocks();
+        new ChainExporter(ChainExporter.Format.BINARY, false).export(replayed, 1, blocks, binaryDump);
+        new ChainExporter(ChainExporter.Format.JSON, false).export(replayed, 1, blocks, jsonDump);
+        System.out.printf("%d transactions, %d blocks of %d, %d accounts, %d cores%n", transactions, blocks,
+                blockSize, accounts, Runtime.getRuntime().availableProcessors());
+        System.out.printf("binary dump %d KB, json lines dump %d KB%n", Files.size(binaryDump) / 1024,
+                Files.size(jsonDump) / 1024);
+
+        long replayNanos = median(rounds, () -> replay(script, blockSize));
+        long binaryNanos = median(rounds, () -> importDump(binaryDump, blocks));
+        long jsonNanos = median(rounds, () -> importDump(jsonDump, blocks));
+        Files.delete(binaryDump);
+        Files.delete(jsonDump);
+        Files.delete(directory);
+
+        report("script replay", replayNanos, replayNanos);
+        report("binary import", binaryNanos, replayNanos);
+        report("json lines import", jsonNanos, replayNanos);
+    }
+
+    /**
+     * Helper method building a script that creates the accounts and funds transfers between them
+     */
+    private static String buildScript(int transactions, int accounts) {
+        StringBuilder script = new StringBuilder();
+        script.append("create-ledger benchmark description \"import benchmark\" seed \"chapman\"\n");
+        for (int i = 0; i < accounts; i++) {
+            script.append("create-account account-").append(i).append('\n');
+        }
+        for (int i = 1; i <= transactions; i++) {
+            String payer = i <= accounts ? "master" : "account-" + (i * 31 % accounts);
+            script.append("process-transaction ").append(i).append(" amount ").append(i <= accounts ? 100000 : 1)
+                    .append(" fee 10 note \"transfer ").append(i).append("\" payer ").append(payer)
+                    .append(" receiver account-").append(i % accounts).append('\n');
+        }
+        return script.toString();
+    }
+
+    /**
+     * Helper method replaying the script into a new Ledger
+     */
+    private static Ledger replay(String script, int blockSize) throws Exception {
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        FileProcessor processor = new FileProcessor(new LedgerRegistry());
+        processor.setOutput(discard);
+        processor.setFailureOutput(discard);
+        processor.setBlockSize(blockSize);
+        processor.processCommands(new BufferedReader(new StringReader(script)));
+        if (processor.getFailureCount() > 0) {
+            throw new IllegalStateException("Replay Failed: " + processor.getFailureCount() + " Commands");
+        }
+        return processor.getLedger();
+    }
+
+    /**
+     * Helper method importing the dump into a new Ledger
+     */
+    private static Ledger importDump(Path dump, int expectedBlocks) throws Exception {
+        Ledger ledger = new Ledger("benchmark", "import benchmark", "chapman");
+        int count = new BlockImporter(BlockImporter.DEFAULT_BATCH_SIZE).importBlocks(ledger, dump);
+        if (count != expectedBlocks) {
+            throw new IllegalStateException("Imported " + count + " Of " + expectedBlocks + " Blocks");
+        }
+        return ledger;
+    }
+
+    /**
+     * Helper method running one warm-up round and returning the median of the timed rounds
+     */
+    private static long median(int rounds, Run run) throws Exception {
+        run.run();
+        long[] nanos = new long[rounds];
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            run.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[rounds / 2];
+    }
+
+    private static void report(String label, long nanos, long replayNanos) {
+        System.out.printf("%-20s %8.1f ms  %5.1fx%n", label, nanos / 1e6, (double) replayNanos / nanos);
+    }
+
+    /**
+     * One timed run
+     */
+    private interface Run {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,142 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.Block;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.LedgerListener;
+import com.se310.ledger.Transaction;
+import com.se310.ledger.TransactionJournal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durability benchmark comparing a sync per Transaction with TransactionJournal group commit.
+ * Concurrent callers process Transactions against one Ledger, and throughput and median and
+ * 99th percentile latency per Transaction are reported for each configuration.
+ * Not run by the test suite, after mvn test-compile run:
+ *   java -cp target/classes:target/test-classes com.se310.ledger.command.JournalBenchmark [threads] [transactions]
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class JournalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int transactions = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+        Path directory = Files.createTempDirectory("journal-benchmark");
+
+        run("sync per transaction", threads, transactions, ledger -> {
+            PerTransactionSync sync = new PerTransactionSync(directory.resolve("naive.journal"));
+            ledger.addLedgerListener(sync);
+            return sync::close;
+        });
+        for (long delayMicros : new long[] { 0, 200, 1000 }) {
+            run("group commit " + delayMicros + "us", threads, transactions, ledger -> {
+                TransactionJournal journal = TransactionJournal.open(directory.resolve("group-" + delayMicros
+                        + ".journal"), delayMicros, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+                ledger.setTransactionJournal(journal);
+                return () -> {
+                    System.out.printf("  syncs %d for %d transactions%n", journal.getSyncCount(), transactions);
+                    journal.close();
+                };
+            });
+        }
+    }
+
+    /**
+     * Process Transactions from concurrent callers and print throughput and latency
+     */
+    private static void run(String label, int threads, int transactions, Durability durability) throws Exception {
+        Ledger ledger = new Ledger("benchmark", "journal benchmark", "chapman");
+        ledger.setBlockSize(100);
+        ledger.addToLedger(new Account("mary", 0));
+        Closer closer = durability.attach(ledger);
+
+        FinancialOps finOps = new FinancialOps();
+        AtomicInteger nextTransactionId = new AtomicInteger();
+        long[] latencies = new long[transactions];
+        CountDownLatch done = new CountDownLatch(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                int id;
+                while ((id = nextTransactionId.getAndIncrement()) < transactions) {
+                    long submitted = System.nanoTime();
+                    try {
+                        finOps.processTransaction(ledger, new Transaction(String.valueOf(id + 1), 1, 10, "benchmark",
+                                ledger.getUncommittedBlock().getAccount("master"),
+                                ledger.getUncommittedBlock().getAccount("mary")));
+                    } catch (LedgerException e) {
+                        throw new IllegalStateException(e.getReason());
+                    }
+                    latencies[id] = System.nanoTime() - submitted;
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-22s %8.0f tx/s  p50 %7.1f us  p99 %8.1f us%n", label,
+                transactions * 1e9 / elapsed, latencies[transactions / 2] / 1e3,
+                latencies[transactions * 99 / 100] / 1e3);
+        closer.close();
+    }
+
+    /**
+     * Makes a Ledger durable and returns what to close when the run is over
+     */
+    private interface Durability {
+        Closer attach(Ledger ledger) throws IOException;
+    }
+
+    private interface Closer {
+        void close() throws IOException;
+    }
+
+    /**
+     * Naive durability writing and syncing each Transaction as it is accepted, under the Ledger lock
+     */
+    private static class PerTransactionSync implements LedgerListener {
+
+        private final FileChannel channel;
+
+        private PerTransactionSync(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public void transactionAccepted(Ledger ledger, Transaction transaction) {
+            try {
+                channel.write(ByteBuffer.wrap((transaction + "\n").getBytes(StandardCharsets.UTF_8)));
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void blockSealed(Ledger ledger, Block block) {
+        }
+
+        private void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerEvent;
+import com.se310.ledger.LedgerEventPublisher;
+import com.se310.ledger.LedgerEventPublisher.OverflowPolicy;
+import com.se310.ledger.LedgerException;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for streaming Ledger events to subscribers with overflow policies
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class LedgerEventPublisherTest {
+
+    // Delivery tasks are queued and run by the test, so no subscriber is called before runDeliveries
+    private final List<Runnable> deliveries = new ArrayList<>();
+
+    @Test
+    public void testDropPolicyCountsEventsBeyondBuffer() throws LedgerException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 2, 1000, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, OverflowPolicy.DROP);
+
+        transfer(ledger, 3);
+        assertEquals(1, publisher.getDroppedEventCount());
+
+        subscriber.subscription.request(10);
+        runDeliveries();
+        assertEquals(2, subscriber.events.size());
+        assertEquals("1", subscriber.events.get(0).getTransaction().getTransactionId());
+    }
+
+    @Test
+    public void testBlockPolicyDoesNotHoldUpIngest() throws LedgerException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 1, 60_000, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, OverflowPolicy.BLOCK);
+
+        // A minute per event if ingest waited for room, staged events are returned right away instead
+        long start = System.nanoTime();
+        transfer(ledger, 3);
+        assertTrue(System.nanoTime() - start < 5_000_000_000L, "ingest waited on the subscriber");
+
+        // One event in the buffer, one staged, and the last found staging full
+        assertEquals(1, publisher.getDroppedEventCount());
+        subscriber.subscription.request(10);
+        runDeliveries();
+        assertEquals(2, subscriber.events.size());
+        assertEquals("2", subscriber.events.get(1).getTransaction().getTransactionId());
+    }
+
+    @Test
+    public void testBlockPolicyDropsStagedEventsPastTimeout() throws LedgerException, InterruptedException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 2, 1, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, OverflowPolicy.BLOCK);
+
+        transfer(ledger, 4);
+        Thread.sleep(20);
+        subscriber.subscription.request(10);
+        runDeliveries();
+
+        assertEquals(2, subscriber.events.size());
+        assertEquals(2, publisher.getDroppedEventCount());
+    }
+
+    @Test
+    public void testDisconnectPolicyFailsSubscriber() throws LedgerException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 1, 1000, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, OverflowPolicy.DISCONNECT);
+
+        transfer(ledger, 2);
+        runDeliveries();
+
+        assertEquals(0, publisher.getSubscriberCount());
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertTrue(subscriber.events.isEmpty());
+    }
+
+    @Test
+    public void testNonPositiveRequestRemovesSubscription() throws LedgerException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 4, 1000, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        assertEquals(1, publisher.getSubscriberCount());
+
+        subscriber.subscription.request(0);
+        runDeliveries();
+
+        assertEquals(0, publisher.getSubscriberCount());
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        transfer(ledger, 1);
+        runDeliveries();
+        assertTrue(subscriber.events.isEmpty());
+    }
+
+    @Test
+    public void testCloseCompletesAfterBufferedEvents() throws LedgerException {
+
+        Ledger ledger = newLedger("events", 10);
+        LedgerEventPublisher publisher = new LedgerEventPublisher(ledger, 4, 1000, deliveries::add);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        transfer(ledger, 2);
+
+        publisher.close();
+        runDeliveries();
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+        runDeliveries();
+        assertEquals(2, subscriber.events.size());
+        assertTrue(subscriber.completed);
+        assertNull(subscriber.error);
+    }
+
+    private void transfer(Ledger ledger, int count) throws LedgerException {
+        int first = ledger.getUncommittedBlock().getTransactionList().size() + 1;
+        LedgerFixtures.transfer(ledger, first, first + count - 1, 100);
+    }
+
+    private void runDeliveries() {
+        while (!deliveries.isEmpty()) {
+            deliveries.remove(0).run();
+        }
+    }
+
+    /**
+     * Subscriber recording what it is given, requesting nothing on its own
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<LedgerEvent> {
+        private final List<LedgerEvent> events = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(LedgerEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
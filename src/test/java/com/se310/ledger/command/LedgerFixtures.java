@@ -0,0 +1,74 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Transaction;
+
+/**
+ * Shared test fixtures building a "chapman" Ledger with an empty Account for mary and
+ * funding transfers from master to mary
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+final class LedgerFixtures {
+
+    private static final FinancialOps FIN_OPS = new FinancialOps();
+
+    private LedgerFixtures() {
+    }
+
+    /**
+     * Create Ledger seeded with "chapman" holding master and an empty Account for mary
+     * @param name name of the Ledger, also used for its description
+     * @param blockSize number of Transactions per Block
+     * @return Ledger
+     * @throws LedgerException
+     */
+    static Ledger newLedger(String name, int blockSize) throws LedgerException {
+        Ledger ledger = new Ledger(name, name + " ledger", "chapman");
+        ledger.setBlockSize(blockSize);
+        ledger.addToLedger(new Account("mary", 0));
+        return ledger;
+    }
+
+    /**
+     * Build Transaction from master to mary without processing it
+     * @param ledger
+     * @param transactionId
+     * @param amount
+     * @param fee
+     * @return Transaction
+     */
+    static Transaction transaction(Ledger ledger, String transactionId, int amount, int fee) {
+        return new Transaction(transactionId, amount, fee, "transfer",
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary"));
+    }
+
+    /**
+     * Process Transaction from master to mary with the minimum fee
+     * @param ledger
+     * @param transactionId
+     * @param amount
+     * @throws LedgerException
+     */
+    static void transfer(Ledger ledger, String transactionId, int amount) throws LedgerException {
+        FIN_OPS.processTransaction(ledger, transaction(ledger, transactionId, amount, 10));
+    }
+
+    /**
+     * Process Transactions from master to mary numbered firstId to lastId inclusive
+     * @param ledger
+     * @param firstId
+     * @param lastId
+     * @param amount
+     * @throws LedgerException
+     */
+    static void transfer(Ledger ledger, int firstId, int lastId, int amount) throws LedgerException {
+        for (int id = firstId; id <= lastId; id++) {
+            transfer(ledger, String.valueOf(id), amount);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.Block;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.LedgerSnapshot;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test Class for the read views published at each Block seal
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class LedgerSnapshotTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testHeldSnapshotDoesNotChangeAfterLaterSeals() throws LedgerException {
+
+        Ledger ledger = newLedger("snapshot", 2);
+        transfer(ledger, 1, 2, 10);
+
+        LedgerSnapshot held = ledger.getSnapshot();
+        transfer(ledger, 3, 5, 10);
+
+        // Fifth Transaction is applied but not sealed, so only one more Block is visible
+        assertEquals(2, ledger.getNumberOfBlocks());
+        assertEquals(1, held.getNumberOfBlocks());
+        assertEquals(1, held.getBlockNumber());
+        assertEquals(1, held.getBlocks().size());
+        assertEquals(20, held.getBalance("mary"));
+        assertEquals(40, ledger.getSnapshot().getBalance("mary"));
+
+        // Shared transaction index is ahead of the held snapshot, which must not answer from it
+        assertNotNull(held.findTransaction("2"));
+        assertNull(held.findTransaction("3"));
+        assertNotNull(ledger.getSnapshot().findTransaction("4"));
+        assertNull(ledger.getSnapshot().findTransaction("5"));
+    }
+
+    @Test
+    public void testCommittedAccountsAreSharedUntilChanged() throws LedgerException {
+
+        Ledger ledger = newLedger("snapshot", 2);
+        ledger.addToLedger(new Account("bob", 0));
+        transfer(ledger, 1, 4, 10);
+
+        // Bob took no part in the second Block, so it holds the Account of the first one
+        Block first = ledger.getBlock(1);
+        Block second = ledger.getBlock(2);
+        assertSame(first.getAccount("bob"), second.getAccount("bob"));
+        assertNotSame(first.getAccount("mary"), second.getAccount("mary"));
+        assertEquals(20, first.getAccount("mary").getBalance());
+        assertEquals(40, second.getAccount("mary").getBalance());
+
+        // Reference to the shared Account is copied into the uncommitted Block before it changes
+        Account sharedMary = second.getAccount("mary");
+        assertSame(sharedMary, ledger.getUncommittedBlock().getAccount("mary"));
+        finOps.processTransaction(ledger, new Transaction("5", 10, 10, "shared",
+                ledger.getUncommittedBlock().getAccount("master"), sharedMary));
+        finOps.processTransaction(ledger, new Transaction("6", 10, 10, "shared",
+                ledger.getUncommittedBlock().getAccount("master"), sharedMary));
+        assertEquals(40, second.getAccount("mary").getBalance());
+        assertEquals(60, ledger.getBlock(3).getAccount("mary").getBalance());
+        assertEquals(60, ledger.getSnapshot().getBalance("mary"));
+        assertEquals(20, ledger.getAccountBalance("mary", 1));
+        assertDoesNotThrow(ledger::validate);
+    }
+
+    @Test
+    public void testSnapshotIsReadOnly() throws LedgerException {
+
+        Ledger ledger = newLedger("snapshot", 1);
+        transfer(ledger, 1, 1, 10);
+
+        LedgerSnapshot snapshot = ledger.getSnapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getBalances().put("mary", 0));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.getBlocks().remove(1));
+    }
+
+    @Test
+    public void testReadersAlwaysSeeBalancedSnapshot() throws Exception {
+
+        Ledger ledger = newLedger("snapshot", 3);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && failure.get() == null) {
+                LedgerSnapshot snapshot = ledger.getSnapshot();
+                if (snapshot.getNumberOfBlocks() == 0) {
+                    continue;
+                }
+                long total = 0;
+                for (Integer balance : snapshot.getBalances().values()) {
+                    total += balance;
+                }
+                for (Block block : snapshot.getBlocks().values()) {
+                    total += block.getFeeTotal();
+                }
+                if (total != Integer.MAX_VALUE || snapshot.getBlocks().size() != snapshot.getNumberOfBlocks()) {
+                    failure.set("Snapshot of Block " + snapshot.getBlockNumber() + " is not balanced");
+                }
+            }
+        });
+        reader.start();
+        try {
+            transfer(ledger, 1, 3000, 10);
+        } finally {
+            done.set(true);
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(1000, ledger.getNumberOfBlocks());
+    }
+}
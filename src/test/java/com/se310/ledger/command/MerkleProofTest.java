@@ -0,0 +1,240 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.IncrementalMerkleBuilder;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.MerkleProof;
+import com.se310.ledger.MerkleTrees;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for Merkle inclusion proofs
+ *
+ * @author  Joshua Vaysman
+ * @version 1.4
+ */
+public class MerkleProofTest {
+
+    @Test
+    public void testProofForEveryLeaf() {
+
+        for (int size = 1; size <= 12; size++) {
+            List<String> leaves = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                leaves.add("leaf " + i);
+            }
+
+            MerkleTrees merkleTrees = new MerkleTrees(leaves);
+            merkleTrees.merkle_tree();
+
+            for (int i = 0; i < size; i++) {
+                MerkleProof proof = merkleTrees.getProof(i);
+                assertEquals("leaf " + i, proof.getLeaf());
+                assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, merkleTrees.getRoot()),
+                        "Proof failed for leaf " + i + " of " + size);
+            }
+            assertNull(merkleTrees.getProof(size));
+        }
+    }
+
+    @Test
+    public void testTamperedLeafIsRejected() {
+
+        List<String> leaves = List.of("seed", "tx 1", "tx 2", "tx 3", "tx 4");
+        MerkleTrees merkleTrees = new MerkleTrees(leaves);
+        merkleTrees.merkle_tree();
+
+        MerkleProof proof = merkleTrees.getProof(2);
+        assertFalse(MerkleTrees.verifyProof("tx 9", proof, merkleTrees.getRoot()));
+        assertFalse(MerkleTrees.verifyProof(proof.getLeaf(), proof, "not the root"));
+    }
+
+    @Test
+    public void testIncrementalBuilderMatchesBatchTree() {
+
+        for (int size : new int[] {1, 2, 3, 5, 11, 16, 17, 100, 2500}) {
+            List<String> leaves = new ArrayList<>();
+            IncrementalMerkleBuilder builder = new IncrementalMerkleBuilder("seed");
+            leaves.add("seed");
+            for (int i = 1; i < size; i++) {
+                leaves.add("leaf " + i);
+                builder.addLeaf("leaf " + i);
+            }
+
+            MerkleTrees merkleTrees = new MerkleTrees(leaves);
+            merkleTrees.merkle_tree();
+            String incrementalRoot = builder.buildRoot();
+            MerkleTrees incremental = builder.build();
+
+            assertEquals(merkleTrees.getRoot(), incrementalRoot, "Root differs for " + size + " leaves");
+            assertEquals(merkleTrees.getRoot(), incremental.getRoot(), "Root differs for " + size + " leaves");
+            MerkleProof proof = incremental.getProof(size - 1);
+            assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, merkleTrees.getRoot()));
+        }
+    }
+
+    @Test
+    public void testWideTreeIsHashedWhenBuilt() {
+
+        // One builder is reset between trees, as the Ledger does between Blocks
+        IncrementalMerkleBuilder builder = new IncrementalMerkleBuilder("seed", 4096);
+        for (int size : new int[] {1, 2, 3, 1024, 1025, 2500}) {
+            builder.reset("seed", 4096);
+            List<String> leaves = new ArrayList<>();
+            leaves.add("seed");
+            long hashesBefore = MerkleTrees.getHashCount();
+            for (int i = 1; i < size; i++) {
+                leaves.add("leaf " + i);
+                builder.addLeaf("leaf " + i);
+            }
+            assertEquals(hashesBefore, MerkleTrees.getHashCount(), "Leaves were hashed as they were added");
+
+            MerkleTrees merkleTrees = new MerkleTrees(leaves);
+            merkleTrees.merkle_tree();
+            assertEquals(merkleTrees.getRoot(), builder.buildRoot(), "Root differs for " + size + " leaves");
+            MerkleProof proof = builder.build().getProof(size - 1);
+            assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, merkleTrees.getRoot()));
+        }
+    }
+
+    @Test
+    public void testWideBlockProofVerifiesAgainstBlockHash() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("proofs", "merkle proofs", "chapman");
+        ledger.setBlockSize(1500);
+        ledger.addToLedger(new Account("mary", 0));
+        for (int i = 1; i <= 1500; i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), 1, 10, "proof",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+
+        String blockHash = ledger.getBlock(1).getHash();
+        assertEquals(ledger.buildMerkleTree(ledger.getBlock(1)).getRoot(), blockHash);
+        MerkleProof proof = finOps.getTransactionProof(ledger, "1234");
+        assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, blockHash));
+        assertDoesNotThrow(ledger::validate);
+    }
+
+    @Test
+    public void testLedgerProofVerifiesAgainstBlockHash() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("proofs", "merkle proofs", "chapman");
+        ledger.setBlockSize(3);
+        ledger.addToLedger(new Account("mary", 0));
+        for (int i = 1; i <= 10; i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), i, 10, "proof",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+
+        // Transactions 1 to 9 are sealed in Blocks 1 to 3, each proof is rebuilt from its own Block
+        for (int i = 1; i <= 9; i++) {
+            MerkleProof proof = finOps.getTransactionProof(ledger, String.valueOf(i));
+            String blockHash = ledger.getBlock((i - 1) / 3 + 1).getHash();
+            assertEquals(blockHash, proof.getRoot());
+            assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, blockHash), "Proof failed for " + i);
+        }
+
+        LedgerException uncommitted = assertThrows(LedgerException.class,
+                () -> finOps.getTransactionProof(ledger, "10"));
+        assertEquals("Transaction Is Not Committed to a Block", uncommitted.getReason());
+        LedgerException missing = assertThrows(LedgerException.class,
+                () -> finOps.getTransactionProof(ledger, "11"));
+        assertEquals("Transaction Does Not Exist", missing.getReason());
+    }
+
+    @Test
+    public void testSealedBlockProofHashesNothing() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("proofs", "merkle proofs", "chapman");
+        ledger.setBlockSize(100);
+        ledger.addToLedger(new Account("mary", 0));
+        for (int i = 1; i <= 100; i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), i, 10, "proof",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+
+        // Levels were kept when the Block was sealed, so serving proofs reads them without hashing
+        long hashes = MerkleTrees.getHashCount();
+        List<MerkleProof> proofs = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            proofs.add(finOps.getTransactionProof(ledger, String.valueOf(i)));
+        }
+        assertEquals(hashes, MerkleTrees.getHashCount());
+
+        String blockHash = ledger.getBlock(1).getHash();
+        for (MerkleProof proof : proofs) {
+            // Seed and 100 Transactions make 101 leaves, one sibling for each of 7 levels
+            assertEquals(7, proof.size());
+            assertTrue(MerkleTrees.verifyProof(proof.getLeaf(), proof, blockHash));
+        }
+    }
+
+    @Test
+    public void testEvictedBlockIsHashedOnceForProofs() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("proofs", "merkle proofs", "chapman");
+        ledger.setBlockSize(2);
+        ledger.addToLedger(new Account("mary", 0));
+        int transactions = 2 * (Ledger.DEFAULT_PROOF_CACHE_BLOCKS + 2);
+        for (int i = 1; i <= transactions; i++) {
+            finOps.processTransaction(ledger, new Transaction(String.valueOf(i), i, 10, "proof",
+                    ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+        }
+        assertEquals(Ledger.DEFAULT_PROOF_CACHE_BLOCKS, ledger.getMetrics().get("proof.cache.blocks").intValue());
+
+        // Block 1 left the cache, its first proof hashes the tree again and the next one does not
+        MerkleProof first = finOps.getTransactionProof(ledger, "1");
+        long hashes = MerkleTrees.getHashCount();
+        MerkleProof second = finOps.getTransactionProof(ledger, "2");
+        assertEquals(hashes, MerkleTrees.getHashCount());
+
+        String blockHash = ledger.getBlock(1).getHash();
+        assertTrue(MerkleTrees.verifyProof(first.getLeaf(), first, blockHash));
+        assertTrue(MerkleTrees.verifyProof(second.getLeaf(), second, blockHash));
+    }
+
+    @Test
+    public void testAcceptedTransactionKeepsItsLeaf() throws LedgerException {
+
+        FinancialOps finOps = new FinancialOps();
+        Ledger ledger = new Ledger("leaf", "frozen leaf", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+        ledger.addToLedger(new Account("bob", 0));
+        Account master = ledger.getUncommittedBlock().getAccount("master");
+        Account mary = ledger.getUncommittedBlock().getAccount("mary");
+
+        Transaction pending = new Transaction("1", 10, 10, "pending", master, mary);
+        finOps.submitTransaction(ledger, pending);
+        String leaf = pending.toString();
+
+        // Pending Transaction and the accounts it names can no longer change its leaf
+        assertTrue(pending.isAccepted());
+        assertThrows(IllegalStateException.class, () -> pending.setFee(99));
+        assertThrows(IllegalStateException.class, () -> mary.setAddress("eve"));
+        assertThrows(IllegalStateException.class, () -> master.setAddress("eve"));
+        assertEquals(leaf, pending.toString());
+
+        // Account not named by any Transaction is still free to change
+        Account bob = ledger.getUncommittedBlock().getAccount("bob");
+        bob.setAddress("robert");
+        assertEquals("robert", bob.getAddress());
+    }
+}
@@ -0,0 +1,120 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Mempool;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for producing Blocks from the Mempool
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class ProduceBlockTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testRejectedTransactionsDoNotLeaveBlockShort() throws LedgerException {
+
+        Ledger ledger = new Ledger("produce", "produce block", "chapman");
+        ledger.setBlockSize(3);
+        ledger.addToLedger(new Account("mary", 0));
+        ledger.addToLedger(new Account("bob", 0));
+
+        // Highest fees come from an Account without funds and are pulled first
+        submit(ledger, "broke-1", 50, "bob", "mary");
+        submit(ledger, "broke-2", 40, "bob", "mary");
+        for (int i = 1; i <= 4; i++) {
+            submit(ledger, "paid-" + i, 10 + i, "master", "mary");
+        }
+
+        Map<String,String> rejected = finOps.produceBlock(ledger);
+
+        assertEquals(2, rejected.size());
+        assertTrue(rejected.containsKey("broke-1"));
+        assertTrue(rejected.containsKey("broke-2"));
+        assertEquals(1, ledger.getNumberOfBlocks());
+        assertEquals(3, ledger.getBlock(1).getTransactionCount());
+        assertEquals(1, ledger.getMempool().size());
+        assertEquals(0, ledger.getUncommittedBlock().getTransactionList().size());
+    }
+
+    @Test
+    public void testEmptyMempoolLeavesBlockOpen() throws LedgerException {
+
+        Ledger ledger = new Ledger("produce", "produce block", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+
+        assertTrue(finOps.produceBlock(ledger).isEmpty());
+        assertEquals(0, ledger.getNumberOfBlocks());
+    }
+
+    @Test
+    public void testSubmitRejectsIdAlreadyInUncommittedBlock() throws LedgerException {
+
+        Ledger ledger = new Ledger("produce", "produce block", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+        finOps.processTransaction(ledger, new Transaction("1", 10, 10, "applied",
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+
+        LedgerException duplicate = assertThrows(LedgerException.class,
+                () -> submit(ledger, "1", 10, "master", "mary"));
+        assertEquals("Transaction Id Must Be Unique", duplicate.getReason());
+        assertEquals(0, ledger.getMempool().size());
+    }
+
+    @Test
+    public void testDrainWithoutRoomRemovesNothing() throws LedgerException {
+
+        Ledger ledger = new Ledger("produce", "produce block", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+        Mempool mempool = new Mempool(10);
+        mempool.submit(new Transaction("1", 10, 10, "pending",
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary")));
+
+        assertTrue(mempool.drain(-5).isEmpty());
+        assertTrue(mempool.drain(0).isEmpty());
+        assertEquals(1, mempool.size());
+    }
+
+    @Test
+    public void testRejectedSubmitLeavesTransactionEditable() throws LedgerException {
+
+        Ledger ledger = new Ledger("produce", "produce block", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+        ledger.setMempool(new Mempool(1));
+        submit(ledger, "1", 10, "master", "mary");
+
+        Transaction overflow = new Transaction("2", 10, 10, "pending",
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary"));
+        LedgerException full = assertThrows(LedgerException.class, () -> finOps.submitTransaction(ledger, overflow));
+        assertEquals("Mempool Is Full", full.getReason());
+        assertFalse(overflow.isAccepted());
+
+        // Transaction that never entered the pool can still be changed and resubmitted
+        overflow.setFee(20);
+        finOps.produceBlock(ledger);
+        finOps.submitTransaction(ledger, overflow);
+        assertTrue(overflow.isAccepted());
+        assertTrue(ledger.getMempool().contains("2"));
+    }
+
+    private void submit(Ledger ledger, String transactionId, int fee, String payer, String receiver)
+            throws LedgerException {
+        finOps.submitTransaction(ledger, new Transaction(transactionId, 10, fee, "pending",
+                ledger.getUncommittedBlock().getAccount(payer), ledger.getUncommittedBlock().getAccount(receiver)));
+    }
+}
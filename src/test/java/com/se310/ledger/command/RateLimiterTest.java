@@ -0,0 +1,95 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.RateLimiter;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for per payer token buckets
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class RateLimiterTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testBurstIsSpentThenRefused() {
+
+        // One permit every 10 seconds, so nothing refills while the burst is spent
+        RateLimiter limiter = new RateLimiter(0.1, 3);
+        assertTrue(limiter.tryAcquire("mary"));
+        assertTrue(limiter.tryAcquire("mary"));
+        assertTrue(limiter.tryAcquire("mary"));
+        assertFalse(limiter.tryAcquire("mary"));
+    }
+
+    @Test
+    public void testBucketRefillsAtRateUpToBurst() throws InterruptedException {
+
+        RateLimiter limiter = new RateLimiter(20, 2);
+        assertTrue(limiter.tryAcquire("mary"));
+        assertTrue(limiter.tryAcquire("mary"));
+        assertFalse(limiter.tryAcquire("mary"));
+
+        // A second refills 20 permits, the bucket only holds 2 of them
+        Thread.sleep(1000);
+        assertTrue(limiter.tryAcquire("mary"));
+        assertTrue(limiter.tryAcquire("mary"));
+        assertFalse(limiter.tryAcquire("mary"));
+    }
+
+    @Test
+    public void testPayersHaveSeparateBuckets() {
+
+        RateLimiter limiter = new RateLimiter(0.1, 1);
+        assertTrue(limiter.tryAcquire("mary"));
+        assertFalse(limiter.tryAcquire("mary"));
+
+        assertTrue(limiter.tryAcquire("bob"));
+        assertFalse(limiter.tryAcquire("bob"));
+    }
+
+    @Test
+    public void testRateAndBurstMustBePositive() {
+
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0));
+    }
+
+    @Test
+    public void testRejectedTransactionSpendsPermit() throws LedgerException {
+
+        Ledger ledger = new Ledger("limited", "rate limited ledger", "chapman");
+        ledger.addToLedger(new Account("mary", 0));
+        ledger.setRateLimiter(new RateLimiter(0.1, 1));
+        Account master = ledger.getUncommittedBlock().getAccount("master");
+        Account mary = ledger.getUncommittedBlock().getAccount("mary");
+
+        // Rejected for its funds, the attempt still spends Mary's only permit
+        LedgerException funds = assertThrows(LedgerException.class, () -> finOps.processTransaction(ledger,
+                new Transaction("1", 100, 10, "no funds", mary, master)));
+        assertEquals("Payer Does Not Have Required Funds", funds.getReason());
+
+        // Master has a bucket of its own
+        finOps.processTransaction(ledger, new Transaction("2", 100, 10, "funded", master, mary));
+        LedgerException masterLimited = assertThrows(LedgerException.class, () -> finOps.processTransaction(ledger,
+                new Transaction("3", 10, 10, "limited", master, mary)));
+        assertEquals("Payer Rate Limit Exceeded", masterLimited.getReason());
+
+        LedgerException maryLimited = assertThrows(LedgerException.class, () -> finOps.processTransaction(ledger,
+                new Transaction("4", 50, 10, "limited", mary, master)));
+        assertEquals("Payer Rate Limit Exceeded", maryLimited.getReason());
+    }
+}
@@ -0,0 +1,62 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.ReplayResult;
+import com.se310.ledger.ReplayVerifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class replaying ledger.script against its expected results
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplayVerifierTest {
+
+    // First line of results_ledger-1.txt is the command line the results were captured with
+    private final ReplayVerifier verifier = new ReplayVerifier(1);
+
+    @Test
+    public void testLedgerScriptMatchesExpectedResults() throws Exception {
+
+        ReplayResult result = verifier.verify(resource("/ledger.script"), resource("/results_ledger-1.txt"));
+
+        assertTrue(result.isMatched(), result.toString());
+        assertNotNull(result.getStateDigest());
+        assertEquals(result.getStateDigest(),
+                verifier.verify(resource("/ledger.script"), resource("/results_ledger-1.txt")).getStateDigest());
+    }
+
+    @Test
+    public void testFirstDivergenceIsReported() throws Exception {
+
+        List<String> expected = Files.readAllLines(resource("/results_ledger-1.txt"));
+        expected.set(10, "Processing Transaction: 2 999 10 fund account master bob ");
+
+        ReplayResult result = verifier.verify(Files.newBufferedReader(resource("/ledger.script")),
+                new BufferedReader(new StringReader(String.join("\n", expected))));
+
+        assertFalse(result.isMatched());
+        assertEquals(11, result.getDivergenceLineNumber());
+        assertEquals(9, result.getLinesCompared());
+        assertEquals("Processing Transaction: 2 999 10 fund account master bob ", result.getExpectedLine());
+        assertNull(result.getStateDigest());
+    }
+
+    private Path resource(String name) throws Exception {
+        return Path.of(Objects.requireNonNull(getClass().getResource(name)).toURI());
+    }
+}
@@ -0,0 +1,109 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.ReplicationFollower;
+import com.se310.ledger.ReplicationLeader;
+import com.se310.ledger.Transaction;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for leader and follower replication over loopback
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class ReplicationTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+    private int nextTransactionId = 1;
+
+    @Test
+    public void testFollowerCatchesUpAndResumes() throws Exception {
+
+        Ledger leaderLedger = new Ledger("leader", "replication test", "chapman");
+        leaderLedger.addToLedger(new Account("mary", 0));
+        processBlocks(leaderLedger, 2);
+
+        ReplicationLeader leader = new ReplicationLeader(leaderLedger, 0);
+        leader.start();
+
+        Ledger followerLedger = new Ledger("follower", "replication test", "chapman");
+        ReplicationFollower follower = new ReplicationFollower(followerLedger, leader.getPort());
+        follower.start();
+
+        // Backlog first, then blocks sealed while connected
+        awaitBlocks(followerLedger, 2);
+        processBlocks(leaderLedger, 1);
+        awaitBlocks(followerLedger, 3);
+        follower.stop();
+
+        // Blocks sealed while disconnected are picked up on reconnect
+        processBlocks(leaderLedger, 2);
+        follower = new ReplicationFollower(followerLedger, leader.getPort());
+        follower.start();
+        awaitBlocks(followerLedger, 5);
+
+        for (int blockNumber = 1; blockNumber <= 5; blockNumber++) {
+            assertEquals(leaderLedger.getBlock(blockNumber).getHash(), followerLedger.getBlock(blockNumber).getHash());
+        }
+        assertEquals(leaderLedger.getLatestBlock().getAccount("mary").getBalance(),
+                followerLedger.getLatestBlock().getAccount("mary").getBalance());
+        assertNotNull(finOps.getTransaction(followerLedger, "42"));
+        assertNull(follower.getFailureReason());
+        followerLedger.validate();
+
+        follower.stop();
+        leader.stop();
+    }
+
+    @Test
+    public void testFollowerRejectsDivergedChain() throws Exception {
+
+        Ledger leaderLedger = new Ledger("leader", "replication test", "chapman");
+        leaderLedger.addToLedger(new Account("mary", 0));
+        processBlocks(leaderLedger, 1);
+
+        ReplicationLeader leader = new ReplicationLeader(leaderLedger, 0);
+        leader.start();
+
+        // Different seed produces different Merkle Roots
+        Ledger followerLedger = new Ledger("follower", "replication test", "other seed");
+        ReplicationFollower follower = new ReplicationFollower(followerLedger, leader.getPort());
+        follower.start();
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (follower.isRunning() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertNotNull(follower.getFailureReason());
+        assertEquals(0, followerLedger.getNumberOfBlocks());
+
+        leader.stop();
+    }
+
+    private void processBlocks(Ledger ledger, int blockCount) throws LedgerException {
+        for (int i = 0; i < blockCount * 10; i++) {
+            Transaction transaction = new Transaction(String.valueOf(nextTransactionId++), 100, 10, "replicated",
+                    ledger.getUncommittedBlock().getAccount("master"),
+                    ledger.getUncommittedBlock().getAccount("mary"));
+            finOps.processTransaction(ledger, transaction);
+        }
+    }
+
+    private void awaitBlocks(Ledger ledger, int blockCount) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (ledger.getNumberOfBlocks() < blockCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(ledger.getNumberOfBlocks() >= blockCount, "Follower did not reach block " + blockCount);
+    }
+}
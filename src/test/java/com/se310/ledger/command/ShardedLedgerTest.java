@@ -0,0 +1,254 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.ShardedLedger;
+import com.se310.ledger.Transaction;
+import com.se310.ledger.TransactionJournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for cross shard transfers of the ShardedLedger
+ *
+ * @author  Joshua Vaysman
+ * @version 1.1
+ */
+public class ShardedLedgerTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testCrossShardCreditIsRecordedInReceiverShard() throws LedgerException {
+
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        try {
+            String receiver = createAccountOutsideShardOf(ledger, "master", "mary");
+            Ledger payerShard = ledger.getShard("master");
+            Ledger receiverShard = ledger.getShard(receiver);
+            receiverShard.setBlockSize(1);
+
+            ledger.processTransaction("1", 100, 10, "credit", "master", receiver);
+
+            Transaction debit = finOps.getTransaction(payerShard, "1");
+            assertNotNull(debit);
+            assertEquals(10, debit.getFee());
+
+            // Credit entry sealed the receiver shard's Block, so it is part of that Block's hash
+            Transaction credit = finOps.getTransaction(receiverShard, "1");
+            assertNotNull(credit);
+            assertEquals(0, credit.getFee());
+            assertEquals(100, credit.getAmount());
+            assertEquals(1, receiverShard.getNumberOfBlocks());
+            assertNotNull(receiverShard.getBlock(1).getHash());
+            assertEquals(100, ledger.getAccountBalance(receiver));
+
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    public void testTransactionIdIsUniqueAcrossShards() throws LedgerException {
+
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        try {
+            String receiver = createAccountOutsideShardOf(ledger, "master", "mary");
+            String other = createAccountOutsideShardOf(ledger, receiver, "bob");
+            ledger.processTransaction("1", 100, 10, "first", "master", receiver);
+
+            LedgerException fromMaster = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("1", 10, 10, "again", "master", other));
+            assertEquals("Transaction Id Must Be Unique", fromMaster.getReason());
+
+            // Receiver shard only holds the credit entry, the id is still taken there
+            LedgerException fromReceiver = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("1", 10, 10, "again", receiver, other));
+            assertEquals("Transaction Id Must Be Unique", fromReceiver.getReason());
+        } finally {
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailedTransferReleasesTransactionId() throws LedgerException {
+
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        try {
+            String receiver = createAccountOutsideShardOf(ledger, "master", "mary");
+
+            LedgerException missing = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("1", 100, 10, "missing", "master", "nobody"));
+            assertEquals("Account Does Not Exist", missing.getReason());
+            LedgerException funds = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("2", 100, 10, "no funds", receiver, "master"));
+            assertNotEquals("Transaction Id Must Be Unique", funds.getReason());
+
+            ledger.processTransaction("1", 100, 10, "retry", "master", receiver);
+            ledger.processTransaction("2", 50, 10, "retry", receiver, "master");
+            assertNull(finOps.getTransaction(ledger.getShard("master"), "3"));
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentTransfersConserveBalance() throws LedgerException {
+
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        try {
+            List<String> addresses = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                String address = "account-" + i;
+                ledger.createAccount(address);
+                addresses.add(address);
+                ledger.processTransaction("fund-" + i, 100_000, 10, "fund", "master", address);
+            }
+
+            // Transfers in both directions between every pair of shards, on every shard thread at once
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                String payer = addresses.get(i % addresses.size());
+                String receiver = addresses.get((i * 7 + 3) % addresses.size());
+                futures.add(ledger.submitTransaction("t-" + i, 1 + i % 50, 10, "transfer", payer, receiver));
+            }
+            for (CompletableFuture<String> future : futures) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    // Rejected transfers are fine, only the total must hold
+                }
+            }
+
+            assertDoesNotThrow(ledger::validate);
+            assertNotNull(ledger.computeGlobalRoot());
+        } finally {
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    public void testRefusedDebitAbortsBothShards() throws Exception {
+
+        // Every write to /dev/full fails, so the payer shard's journal fails on its first batch
+        Path full = Path.of("/dev/full");
+        if (!Files.isWritable(full)) {
+            return;
+        }
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        Ledger payerShard = ledger.getShard("master");
+        TransactionJournal journal = TransactionJournal.open(full, 0, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        try {
+            String receiver = createAccountOutsideShardOf(ledger, "master", "mary");
+            Ledger receiverShard = ledger.getShard(receiver);
+            payerShard.setTransactionJournal(journal);
+
+            // Journal took the first transfer, so both sides are recorded although it is not on disk
+            LedgerException notDurable = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("1", 100, 10, "lost", "master", receiver));
+            assertTrue(notDurable.getReason().startsWith("Transaction Is Not Durable"));
+            assertEquals(100, receiverShard.getUncommittedBlock().getAccount(receiver).getBalance());
+
+            // Second transfer is refused at commit, the reservation and both held ids are released
+            LedgerException refused = assertThrows(LedgerException.class,
+                    () -> ledger.processTransaction("2", 100, 10, "refused", "master", receiver));
+            assertTrue(refused.getReason().startsWith("Transaction Journal Failed"));
+            Account master = payerShard.getUncommittedBlock().getAccount("master");
+            assertEquals(0, master.getReservedBalance());
+            assertEquals(master.getBalance(), master.getAvailableBalance());
+            assertEquals(100, receiverShard.getUncommittedBlock().getAccount(receiver).getBalance());
+            assertNull(finOps.getTransaction(payerShard, "2"));
+            assertNull(finOps.getTransaction(receiverShard, "2"));
+            assertDoesNotThrow(ledger::validate);
+
+            payerShard.setTransactionJournal(null);
+            ledger.processTransaction("2", 100, 10, "retry", "master", receiver);
+            assertEquals(200, receiverShard.getUncommittedBlock().getAccount(receiver).getBalance());
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            payerShard.setTransactionJournal(null);
+            journal.close();
+            ledger.shutdown();
+        }
+    }
+
+    @Test
+    public void testCrossShardTransfersShareJournalBatches() throws Exception {
+
+        ShardedLedger ledger = new ShardedLedger("sharded", "sharded ledger", "chapman", 4);
+        Path file = Files.createTempFile("sharded-journal", ".log");
+        TransactionJournal journal = TransactionJournal.open(file, 200_000, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        Ledger payerShard = ledger.getShard("master");
+        try {
+            String receiver = createAccountOutsideShardOf(ledger, "master", "mary");
+            payerShard.setTransactionJournal(journal);
+
+            // Durability is awaited without the shard locks, so transfers arriving together join one batch
+            int transfers = 8;
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicInteger failures = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int i = 1; i <= transfers; i++) {
+                String transactionId = String.valueOf(i);
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        ledger.processTransaction(transactionId, 10, 10, "batch", "master", receiver);
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            assertEquals(0, failures.get());
+            assertEquals(transfers, journal.getDurableSequence());
+            assertTrue(journal.getSyncCount() < transfers, "Syncs: " + journal.getSyncCount());
+            assertEquals(transfers * 10, ledger.getShard(receiver).getUncommittedBlock().getAccount(receiver)
+                    .getBalance());
+            assertDoesNotThrow(ledger::validate);
+        } finally {
+            payerShard.setTransactionJournal(null);
+            journal.close();
+            Files.delete(file);
+            ledger.shutdown();
+        }
+    }
+
+    private String createAccountOutsideShardOf(ShardedLedger ledger, String address, String prefix)
+            throws LedgerException {
+        for (int i = 0; ; i++) {
+            String candidate = prefix + i;
+            if (ledger.getShardIndex(candidate) != ledger.getShardIndex(address)) {
+                ledger.createAccount(candidate);
+                return candidate;
+            }
+        }
+    }
+}
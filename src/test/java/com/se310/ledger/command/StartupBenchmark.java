@@ -0,0 +1,81 @@
+package com.se310.ledger.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Startup benchmark launching LedgerCli in fresh JVMs, with and without the AppCDS archive,
+ * and measuring the time until the first command's output appears and until the JVM exits.
+ * Not run by the test suite, after mvn -P appcds package run:
+ *   java -cp target/test-classes com.se310.ledger.command.StartupBenchmark
+ *       target/assignment1-1.0-SNAPSHOT.jar src/test/resources/ledger.script target/ledger-cds.jsa
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class StartupBenchmark {
+
+    private static final int RUNS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: StartupBenchmark <jar> <script> [cds archive]");
+            System.exit(1);
+        }
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        report("default", List.of(java, "-Xshare:auto", "-jar", args[0], args[1]));
+        if (args.length > 2 && Files.exists(Path.of(args[2]))) {
+            report("appcds", List.of(java, "-XX:SharedArchiveFile=" + args[2], "-jar", args[0], args[1]));
+        }
+    }
+
+    /**
+     * Launch the command repeatedly and print median timings
+     * @param label
+     * @param command
+     */
+    private static void report(String label, List<String> command) throws IOException, InterruptedException {
+        long[] firstOutput = new long[RUNS];
+        long[] exit = new long[RUNS];
+
+        // One untimed run so both modes start with the files in the page cache
+        launch(command, new long[1], new long[1], 0);
+        for (int run = 0; run < RUNS; run++) {
+            launch(command, firstOutput, exit, run);
+        }
+
+        System.out.printf("%-8s first command %6.1f ms, exit %6.1f ms (median of %d)%n",
+                label, median(firstOutput) / 1e6, median(exit) / 1e6, RUNS);
+    }
+
+    /**
+     * Launch the command once, recording when its first line of output arrives and when it exits
+     */
+    private static void launch(List<String> command, long[] firstOutput, long[] exit, int run)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(new ArrayList<>(command)).redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line = reader.readLine();
+            firstOutput[run] = System.nanoTime() - start;
+            while (line != null) {
+                line = reader.readLine();
+            }
+        }
+        process.waitFor();
+        exit[run] = System.nanoTime() - start;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,172 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FileProcessor;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.LedgerRegistry;
+import com.se310.ledger.Transaction;
+import com.se310.ledger.TransactionJournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.se310.ledger.command.LedgerFixtures.newLedger;
+import static com.se310.ledger.command.LedgerFixtures.transfer;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for group commit of the TransactionJournal and how the Ledger handles a failed journal
+ *
+ * @author  Joshua Vaysman
+ * @version 1.2
+ */
+public class TransactionJournalTest {
+
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testRecordsWithinDelayShareOneSync() throws Exception {
+
+        Path file = Files.createTempFile("journal", ".log");
+        TransactionJournal journal = TransactionJournal.open(file, 200_000, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        try {
+            Account master = new Account("master", 1000);
+            Account mary = new Account("mary", 0);
+            long sequence = 0;
+            for (int i = 1; i <= 10; i++) {
+                sequence = journal.append(new Transaction(String.valueOf(i), 10, 10, "batch", master, mary));
+            }
+
+            journal.awaitDurable(sequence);
+            assertEquals(10, journal.getDurableSequence());
+            assertEquals(1, journal.getSyncCount());
+        } finally {
+            journal.close();
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testCloseSyncsBufferedRecordsAndRefusesMore() throws Exception {
+
+        Path file = Files.createTempFile("journal", ".log");
+        TransactionJournal journal = TransactionJournal.open(file, 10_000_000, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        try {
+            Account master = new Account("master", 1000);
+            Account mary = new Account("mary", 0);
+            for (int i = 1; i <= 3; i++) {
+                journal.append(new Transaction(String.valueOf(i), 10, 10, "close", master, mary));
+            }
+            assertEquals(0, journal.getDurableSequence());
+
+            // Closing does not wait out the delay, it syncs what is buffered right away
+            journal.close();
+            assertEquals(3, journal.getDurableSequence());
+            assertTrue(Files.size(file) > 0);
+            assertFalse(journal.isWritable());
+            assertDoesNotThrow(() -> journal.awaitDurable(3));
+
+            assertThrows(IOException.class,
+                    () -> journal.append(new Transaction("4", 10, 10, "late", master, mary)));
+            assertThrows(IOException.class, () -> journal.awaitDurable(4));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testProcessorClosesJournalsOfEveryLedger() throws Exception {
+
+        Path file = Files.createTempFile("journal", ".log");
+        try {
+            LedgerRegistry registry = new LedgerRegistry();
+            FileProcessor processor = new FileProcessor(registry);
+            processor.setOutput(new PrintStream(OutputStream.nullOutputStream()));
+            String script = "create-ledger journaled description \"journaled ledger\" seed \"chapman\"\n"
+                    + "create-account mary\n"
+                    + "set-journal file " + file + "\n"
+                    + "process-transaction 1 amount 20 fee 10 note \"journaled\" payer master receiver mary\n"
+                    + "create-ledger plain description \"plain ledger\" seed \"chapman\"\n";
+            processor.processCommands(new BufferedReader(new StringReader(script)));
+            TransactionJournal journal = registry.getLedger("journaled").getTransactionJournal();
+            assertTrue(journal.isWritable());
+
+            // Journal of a Ledger that is no longer current is closed too
+            processor.closeJournals();
+            assertEquals(0, processor.getFailureCount());
+            assertNull(registry.getLedger("journaled").getTransactionJournal());
+            assertFalse(journal.isWritable());
+            assertTrue(Files.size(file) > 0);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFailedJournalRefusesTransactionsBeforeApplyingThem() throws Exception {
+
+        // Every write to /dev/full fails, so the first batch is lost
+        Path full = Path.of("/dev/full");
+        if (!Files.isWritable(full)) {
+            return;
+        }
+        Ledger ledger = newLedger("journal", Ledger.DEFAULT_BLOCK_SIZE);
+        TransactionJournal journal = TransactionJournal.open(full, 0, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        ledger.setTransactionJournal(journal);
+        try {
+            // Journal took the Transaction, so it is applied even though it never reached the disk
+            LedgerException notDurable = assertThrows(LedgerException.class, () -> transfer(ledger, "1", 100));
+            assertTrue(notDurable.getReason().startsWith("Transaction Is Not Durable"));
+            assertFalse(journal.isWritable());
+            assertEquals(100, ledger.getUncommittedBlock().getAccount("mary").getBalance());
+            assertEquals(1, ledger.getUncommittedBlock().getTransactionList().size());
+
+            LedgerException refused = assertThrows(LedgerException.class, () -> transfer(ledger, "2", 100));
+            assertTrue(refused.getReason().startsWith("Transaction Journal Failed"));
+            assertEquals(100, ledger.getUncommittedBlock().getAccount("mary").getBalance());
+            assertEquals(1, ledger.getUncommittedBlock().getTransactionList().size());
+
+            LedgerException duplicate = assertThrows(LedgerException.class, () -> transfer(ledger, "1", 100));
+            assertEquals("Transaction Id Must Be Unique", duplicate.getReason());
+        } finally {
+            ledger.setTransactionJournal(null);
+            journal.close();
+        }
+    }
+
+    @Test
+    public void testRejectedTransactionIsNotJournaled() throws Exception {
+
+        Path file = Files.createTempFile("journal", ".log");
+        Ledger ledger = newLedger("journal", Ledger.DEFAULT_BLOCK_SIZE);
+        TransactionJournal journal = TransactionJournal.open(file, 0, TransactionJournal.DEFAULT_MAX_BATCH_BYTES);
+        ledger.setTransactionJournal(journal);
+        try {
+            LedgerException funds = assertThrows(LedgerException.class, () -> finOps.processTransaction(ledger,
+                    new Transaction("1", 100, 10, "no funds", ledger.getUncommittedBlock().getAccount("mary"),
+                            ledger.getUncommittedBlock().getAccount("master"))));
+            assertEquals("Payer Does Not Have Required Funds", funds.getReason());
+
+            transfer(ledger, "2", 100);
+            journal.close();
+            assertEquals(1, journal.getDurableSequence());
+        } finally {
+            ledger.setTransactionJournal(null);
+            Files.delete(file);
+        }
+    }
+}
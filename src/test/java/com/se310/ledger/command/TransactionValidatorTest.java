@@ -0,0 +1,102 @@
+package com.se310.ledger.command;
+
+import com.se310.ledger.Account;
+import com.se310.ledger.FinancialOps;
+import com.se310.ledger.Ledger;
+import com.se310.ledger.LedgerException;
+import com.se310.ledger.Transaction;
+import com.se310.ledger.TransactionValidator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test Class for Transaction checks and the transaction id filter they rely on
+ *
+ * @author  Joshua Vaysman
+ * @version 1.0
+ */
+public class TransactionValidatorTest {
+
+    private final TransactionValidator validator = new TransactionValidator();
+    private final FinancialOps finOps = new FinancialOps();
+
+    @Test
+    public void testInvalidTransactionsAreRejected() {
+
+        Ledger ledger = newLedger();
+
+        assertReason("Transaction Amount Is Out of Range", () -> validator.preValidate(ledger,
+                transaction(ledger, "1", -1, 10, "note")));
+        assertReason("Transaction Fee Must Be Greater Than 10", () -> validator.preValidate(ledger,
+                transaction(ledger, "1", 10, 9, "note")));
+        assertReason("Note Length Must Be Less Than 1024 Chars", () -> validator.preValidate(ledger,
+                transaction(ledger, "1", 10, 10, "n".repeat(1025))));
+        assertDoesNotThrow(() -> validator.preValidate(ledger, transaction(ledger, "1", 0, 10, "n".repeat(1024))));
+    }
+
+    @Test
+    public void testCommittedDuplicateIsRejectedBeforeTheLock() throws LedgerException {
+
+        Ledger ledger = newLedger();
+        ledger.setBlockSize(1);
+        finOps.processTransaction(ledger, transaction(ledger, "1", 10, 10, "first"));
+
+        assertReason("Transaction Id Must Be Unique", () -> validator.preValidate(ledger,
+                transaction(ledger, "1", 10, 10, "again")));
+        assertReason("Transaction Id Must Be Unique", () -> finOps.processTransaction(ledger,
+                transaction(ledger, "1", 10, 10, "again")));
+    }
+
+    @Test
+    public void testUncommittedDuplicateIsRejectedUnderTheLock() throws LedgerException {
+
+        Ledger ledger = newLedger();
+        finOps.processTransaction(ledger, transaction(ledger, "1", 10, 10, "first"));
+
+        // Not committed yet, so only the exact check under the lock can find it
+        assertDoesNotThrow(() -> validator.preValidate(ledger, transaction(ledger, "1", 10, 10, "again")));
+        assertReason("Transaction Id Must Be Unique", () -> finOps.processTransaction(ledger,
+                transaction(ledger, "1", 10, 10, "again")));
+        assertEquals(1, ledger.getUncommittedBlock().getTransactionList().size());
+    }
+
+    @Test
+    public void testFilterFalsePositiveFallsBackToExactCheck() throws LedgerException {
+
+        Ledger ledger = newLedger();
+        ledger.setBlockSize(2);
+        finOps.processTransaction(ledger, transaction(ledger, "1", 10, 10, "first"));
+        finOps.processTransaction(ledger, transaction(ledger, "2", 10, 10, "second"));
+
+        // Id the filter answers positive for although no Transaction has it
+        ledger.getTransactionIdFilter().add("phantom");
+        assertTrue(ledger.getTransactionIdFilter().mightContain("phantom"));
+        assertNull(finOps.getTransaction(ledger, "phantom"));
+
+        assertEquals("phantom", finOps.processTransaction(ledger, transaction(ledger, "phantom", 10, 10, "third")));
+        assertEquals("phantom", finOps.getTransaction(ledger, "phantom").getTransactionId());
+    }
+
+    private Ledger newLedger() {
+        Ledger ledger = new Ledger("validator", "transaction validator", "chapman");
+        assertDoesNotThrow(() -> ledger.addToLedger(new Account("mary", 0)));
+        return ledger;
+    }
+
+    private Transaction transaction(Ledger ledger, String transactionId, int amount, int fee, String note) {
+        return new Transaction(transactionId, amount, fee, note,
+                ledger.getUncommittedBlock().getAccount("master"), ledger.getUncommittedBlock().getAccount("mary"));
+    }
+
+    private void assertReason(String reason, Executable executable) {
+        LedgerException exception = assertThrows(LedgerException.class, executable);
+        assertEquals(reason, exception.getReason());
+    }
+}